@@ -0,0 +1,163 @@
+package benchmarks;
+
+import chapter13.RedBlackTree;
+import chapter18.BTreeMap;
+import chapter18.LongBTreeMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
+
+/*
+Compares the chapter 18 B+ trees against RedBlackTree, each benchmark processes all size keys
+
+The B+ trees are also run with a few fanouts to find the one that suits the cache of the machine,
+RedBlackTree ignores the fanout
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class BTreeMapBenchmark {
+
+    // The map implementations to compare
+    public enum Tree {
+        RED_BLACK,
+        B_TREE,
+        LONG_B_TREE
+    }
+
+    // The width of the key range of each scan
+    private static final int SCAN_LENGTH = 100;
+
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    @Param({"UNIFORM", "SORTED"})
+    public Inputs.Distribution distribution;
+
+    @Param({"RED_BLACK", "B_TREE", "LONG_B_TREE"})
+    public Tree tree;
+
+    @Param({"32", "64", "128"})
+    public int fanout;
+
+    private Integer[] keys;
+    private long[] longKeys;
+    private RedBlackTree<Integer, Integer> redBlackTree;
+    private BTreeMap<Integer, Integer> bTree;
+    private LongBTreeMap<Integer> longBTree;
+
+    @Setup
+    public void setUp() {
+        int[] ints = Inputs.ints(this.size, this.distribution);
+        this.keys = Inputs.boxed(ints);
+        this.longKeys = new long[this.size];
+
+        for (int i = 0; i < this.size; i++) {
+            this.longKeys[i] = ints[i];
+        }
+
+        this.build();
+    }
+
+    private void build() {
+        switch (this.tree) {
+            case RED_BLACK:
+                this.redBlackTree = new RedBlackTree<Integer, Integer>();
+
+                for (Integer key : this.keys) {
+                    this.redBlackTree.insert(key, key);
+                }
+
+                break;
+            case B_TREE:
+                this.bTree = new BTreeMap<Integer, Integer>(this.fanout);
+
+                for (Integer key : this.keys) {
+                    this.bTree.insert(key, key);
+                }
+
+                break;
+            default:
+                this.longBTree = new LongBTreeMap<Integer>(this.fanout);
+
+                for (int i = 0; i < this.size; i++) {
+                    this.longBTree.insert(this.longKeys[i], this.keys[i]);
+                }
+        }
+    }
+
+    @Benchmark
+    public void insert() {
+        this.build();
+    }
+
+    @Benchmark
+    public void lookup(Blackhole blackhole) {
+        switch (this.tree) {
+            case RED_BLACK:
+                for (Integer key : this.keys) {
+                    blackhole.consume(this.redBlackTree.lookup(key));
+                }
+
+                break;
+            case B_TREE:
+                for (Integer key : this.keys) {
+                    blackhole.consume(this.bTree.lookup(key));
+                }
+
+                break;
+            default:
+                for (long key : this.longKeys) {
+                    blackhole.consume(this.longBTree.lookup(key));
+                }
+        }
+    }
+
+    @Benchmark
+    public long rangeScan() {
+        // Scans the SCAN_LENGTH wide key range above every SCAN_LENGTH-th key
+        long checksum = 0;
+
+        for (int i = 0; i < this.size; i += SCAN_LENGTH) {
+            int low = this.keys[i];
+
+            switch (this.tree) {
+                case RED_BLACK:
+                    for (Integer key : this.redBlackTree.keys(low, low + SCAN_LENGTH)) {
+                        checksum += key;
+                    }
+
+                    break;
+                case B_TREE:
+                    for (Integer key : this.bTree.keys(low, low + SCAN_LENGTH)) {
+                        checksum += key;
+                    }
+
+                    break;
+                default:
+                    PrimitiveIterator.OfLong scan = this.longBTree.keys(low, low + SCAN_LENGTH);
+
+                    while (scan.hasNext()) {
+                        checksum += scan.nextLong();
+                    }
+            }
+        }
+
+        return checksum;
+    }
+}
@@ -0,0 +1,40 @@
+package benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/*
+Entry point of benchmarks.jar
+
+Accepts the usual JMH command line, but unless -rf/-rff are given the results are written as JSON
+to jmh-result-<timestamp>.json so that runs can be compared later, e.g.
+
+    mvn -B package
+    java -jar benchmarks/target/benchmarks.jar SortBenchmark -p size=1000000 -p distribution=UNIFORM
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(commandLine);
+
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+
+        if (!commandLine.getResult().hasValue()) {
+            String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+            options.result("jmh-result-" + timestamp + ".json");
+        }
+
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,108 @@
+package benchmarks;
+
+import chapter6.BlockingHeap;
+import chapter6.Heap;
+import chapter6.MultiQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+Compares shared priority queues on a hold model workload run by every available thread
+
+Each operation schedules a job a random delay after the one it takes, so every queue stays at size
+jobs. Run with -t to vary the thread count, e.g. -t 1 shows the cost of the locking alone
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@Threads(Threads.MAX)
+public class ConcurrentHeapBenchmark {
+
+    private static final int MAX_DELAY = 1 << 20;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Heap<Long> synchronizedHeap;
+    private BlockingHeap<Long> blockingHeap;
+    private MultiQueue<Long> multiQueue;
+    private PriorityBlockingQueue<Long> priorityBlockingQueue;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(Inputs.SEED);
+        Long[] jobs = new Long[this.size];
+
+        for (int i = 0; i < this.size; i++) {
+            jobs[i] = (long) random.nextInt(MAX_DELAY);
+        }
+
+        this.synchronizedHeap = new Heap<Long>(jobs, false);
+        this.blockingHeap = new BlockingHeap<Long>(false);
+        this.multiQueue = new MultiQueue<Long>(false);
+        this.priorityBlockingQueue = new PriorityBlockingQueue<Long>();
+
+        for (Long job : jobs) {
+            this.blockingHeap.offer(job);
+            this.multiQueue.offer(job);
+            this.priorityBlockingQueue.offer(job);
+        }
+    }
+
+    private static long nextJob(long job) {
+        return job + 1 + ThreadLocalRandom.current().nextInt(MAX_DELAY);
+    }
+
+    @Benchmark
+    public long synchronizedHeap() {
+        // The baseline the other queues replace, one monitor around the sequential heap
+        synchronized (this.synchronizedHeap) {
+            long job = this.synchronizedHeap.deleteHighestPriority();
+            this.synchronizedHeap.addElement(nextJob(job));
+
+            return job;
+        }
+    }
+
+    @Benchmark
+    public long blockingHeap() throws InterruptedException {
+        long job = this.blockingHeap.take();
+        this.blockingHeap.put(nextJob(job));
+
+        return job;
+    }
+
+    @Benchmark
+    public long multiQueue() throws InterruptedException {
+        long job = this.multiQueue.take();
+        this.multiQueue.put(nextJob(job));
+
+        return job;
+    }
+
+    @Benchmark
+    public long priorityBlockingQueue() throws InterruptedException {
+        long job = this.priorityBlockingQueue.take();
+        this.priorityBlockingQueue.put(nextJob(job));
+
+        return job;
+    }
+}
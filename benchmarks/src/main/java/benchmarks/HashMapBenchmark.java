@@ -0,0 +1,142 @@
+package benchmarks;
+
+import chapter11.ConcurrentHashMap;
+import chapter11.HashMap;
+import chapter11.IntHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+Hash table benchmarks for chapter 11, each benchmark processes all size keys
+
+BOXED runs use chapter11.HashMap and PRIMITIVE runs use chapter11.IntHashMap. Sizes stop at 10^7
+because 10^8 boxed entries do not fit in the forked JVM's heap
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class HashMapBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"UNIFORM", "SORTED", "REVERSED", "FEW_UNIQUE", "ZIPFIAN"})
+    public Inputs.Distribution distribution;
+
+    @Param({"BOXED", "PRIMITIVE"})
+    public Inputs.ElementType elementType;
+
+    private int[] keys;
+    private Integer[] boxedKeys;
+    private HashMap<Integer, Integer> boxedMap;
+    private IntHashMap<Integer> primitiveMap;
+    private ConcurrentHashMap<Integer, Integer> concurrentMap;
+
+    @Setup
+    public void setUp() {
+        this.keys = Inputs.ints(this.size, this.distribution);
+        this.boxedKeys = Inputs.boxed(this.keys);
+
+        if (this.elementType == Inputs.ElementType.BOXED) {
+            this.boxedMap = this.buildBoxed();
+            this.concurrentMap = this.buildConcurrent();
+        } else {
+            this.primitiveMap = this.buildPrimitive();
+        }
+    }
+
+    private HashMap<Integer, Integer> buildBoxed() {
+        HashMap<Integer, Integer> map = new HashMap<>();
+
+        for (Integer key : this.boxedKeys) {
+            map.insert(key, key);
+        }
+
+        return map;
+    }
+
+    private IntHashMap<Integer> buildPrimitive() {
+        IntHashMap<Integer> map = new IntHashMap<>();
+
+        for (int i = 0; i < this.keys.length; i++) {
+            map.insert(this.keys[i], this.boxedKeys[i]);
+        }
+
+        return map;
+    }
+
+    private ConcurrentHashMap<Integer, Integer> buildConcurrent() {
+        ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>();
+
+        for (Integer key : this.boxedKeys) {
+            map.insert(key, key);
+        }
+
+        return map;
+    }
+
+    @Benchmark
+    public Object insert() {
+        if (this.elementType == Inputs.ElementType.BOXED) {
+            return this.buildBoxed();
+        }
+
+        return this.buildPrimitive();
+    }
+
+    @Benchmark
+    public void search(Blackhole blackhole) {
+        if (this.elementType == Inputs.ElementType.BOXED) {
+            for (Integer key : this.boxedKeys) {
+                blackhole.consume(this.boxedMap.search(key));
+            }
+        } else {
+            for (int key : this.keys) {
+                blackhole.consume(this.primitiveMap.search(key));
+            }
+        }
+    }
+
+    @Benchmark
+    public void insertThenDelete(Blackhole blackhole) {
+        // Deletes drain the table, so each invocation builds its own first
+        if (this.elementType == Inputs.ElementType.BOXED) {
+            HashMap<Integer, Integer> map = this.buildBoxed();
+
+            for (Integer key : this.boxedKeys) {
+                blackhole.consume(map.delete(key));
+            }
+        } else {
+            IntHashMap<Integer> map = this.buildPrimitive();
+
+            for (int key : this.keys) {
+                blackhole.consume(map.delete(key));
+            }
+        }
+    }
+
+    @Benchmark
+    public void concurrentSearch(Blackhole blackhole) {
+        // Single threaded cost of the lock free read path, boxed keys only
+        if (this.elementType == Inputs.ElementType.BOXED) {
+            for (Integer key : this.boxedKeys) {
+                blackhole.consume(this.concurrentMap.search(key));
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package benchmarks;
+
+import chapter6.Heap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+Compares heap arities on a timer queue workload to find the crossover arity for each size
+
+The hold model keeps the queue at a constant size: every operation expires the earliest timer and
+schedules a new one a random delay later, as a scheduler with size pending timers would
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class HeapArityBenchmark {
+
+    private static final int OPERATIONS = 1 << 16;
+    private static final int MAX_DELAY = 1 << 20;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"2", "4", "8", "16"})
+    public int arity;
+
+    private Long[] deadlines;
+    private Heap<Long> timers;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        this.random = new SplittableRandom(Inputs.SEED);
+        this.deadlines = new Long[this.size];
+
+        for (int i = 0; i < this.size; i++) {
+            this.deadlines[i] = (long) this.random.nextInt(MAX_DELAY);
+        }
+
+        this.timers = new Heap<Long>(this.deadlines, false, this.arity);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public long holdTimers() {
+        long now = 0;
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            now = this.timers.deleteHighestPriority();
+            this.timers.addElement(now + 1 + this.random.nextInt(MAX_DELAY));
+        }
+
+        return now;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object heapify() {
+        return new Heap<Long>(this.deadlines, false, this.arity);
+    }
+}
@@ -0,0 +1,113 @@
+package benchmarks;
+
+import chapter6.Heap;
+import chapter6.IndexedHeap;
+import chapter6.LongIntHeap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+Priority queue benchmarks for chapter 6, each benchmark processes all size elements
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class HeapBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000", "100000000"})
+    public int size;
+
+    @Param({"UNIFORM", "SORTED", "REVERSED", "FEW_UNIQUE", "ZIPFIAN"})
+    public Inputs.Distribution distribution;
+
+    private Integer[] input;
+    private long[] priorities;
+    private int[] payloads;
+
+    @Setup
+    public void setUp() {
+        int[] ints = Inputs.ints(this.size, this.distribution);
+        this.input = Inputs.boxed(ints);
+        this.priorities = new long[this.size];
+        this.payloads = new int[this.size];
+
+        for (int i = 0; i < this.size; i++) {
+            this.priorities[i] = ints[i];
+            this.payloads[i] = i;
+        }
+    }
+
+    @Benchmark
+    public Object heapify() {
+        return new Heap<Integer>(this.input);
+    }
+
+    @Benchmark
+    public Object addElement() {
+        Heap<Integer> heap = new Heap<Integer>(new Integer[0]);
+
+        for (Integer element : this.input) {
+            heap.addElement(element);
+        }
+
+        return heap;
+    }
+
+    @Benchmark
+    public void deleteHighestPriority(Blackhole blackhole) {
+        // Includes building the heap, compare against heapify to isolate the deletions
+        Heap<Integer> heap = new Heap<Integer>(this.input);
+
+        for (int i = 0; i < this.size; i++) {
+            blackhole.consume(heap.deleteHighestPriority());
+        }
+    }
+
+    @Benchmark
+    public Object indexedDecreaseKey() {
+        // Inserts every element under its own handle, then lowers each key in place as Dijkstra would
+        IndexedHeap<Integer> heap = new IndexedHeap<Integer>(this.size);
+
+        for (int i = 0; i < this.size; i++) {
+            heap.insert(i, this.input[i]);
+        }
+
+        for (int i = this.size - 1; i >= 0; i--) {
+            heap.decreaseKey(i, this.input[i] - this.size);
+        }
+
+        return heap;
+    }
+
+    @Benchmark
+    public int primitiveDrain() {
+        // The primitive counterpart of deleteHighestPriority: one bulk heapify, then batched polls
+        LongIntHeap heap = new LongIntHeap(this.size);
+        heap.addAll(this.priorities, this.payloads);
+
+        int[] out = new int[1024];
+        int checksum = 0;
+
+        while (!heap.isEmpty()) {
+            int count = heap.pollInto(out, out.length);
+            checksum += out[count - 1];
+        }
+
+        return checksum;
+    }
+}
@@ -0,0 +1,145 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+
+public class Inputs {
+
+    // The shapes of input data every benchmark can be run against
+    public enum Distribution {
+        UNIFORM,
+        SORTED,
+        REVERSED,
+        FEW_UNIQUE,
+        ZIPFIAN,
+        ORGAN_PIPE, // Ascending then descending, a classic bad case for median-of-three pivots
+        SAWTOOTH    // SAWTOOTH_TEETH ascending runs one after another
+    }
+
+    // Whether a benchmark works on boxed objects or on the primitive specialization
+    public enum ElementType {
+        BOXED,
+        PRIMITIVE
+    }
+
+    // Fixed so that every run and every algorithm sees exactly the same data
+    public static final long SEED = 0x5DEECE66DL;
+
+    private static final int FEW_UNIQUE_VALUES = 16;
+    private static final double ZIPF_EXPONENT = 1.1;
+    private static final int SAWTOOTH_TEETH = 16;
+
+    public static int[] ints(int size, Distribution distribution) {
+        /*
+        Generates non-negative ints below size with the requested distribution
+
+        Parameters:
+            size: The number of elements to generate
+            distribution: The shape of the data
+
+        Returns:
+            A new array of length size
+         */
+
+        SplittableRandom random = new SplittableRandom(SEED);
+        int[] array = new int[size];
+
+        switch (distribution) {
+            case SORTED:
+                for (int i = 0; i < size; i++) {
+                    array[i] = i;
+                }
+                break;
+            case REVERSED:
+                for (int i = 0; i < size; i++) {
+                    array[i] = size - 1 - i;
+                }
+                break;
+            case FEW_UNIQUE:
+                for (int i = 0; i < size; i++) {
+                    array[i] = random.nextInt(FEW_UNIQUE_VALUES);
+                }
+                break;
+            case ZIPFIAN:
+                for (int i = 0; i < size; i++) {
+                    array[i] = zipf(random, size);
+                }
+                break;
+            case ORGAN_PIPE:
+                // The even values ascend and the odd values descend, so every value is distinct
+                for (int i = 0; i < size; i++) {
+                    array[i] = Math.min(2 * i, 2 * (size - 1 - i) + 1);
+                }
+                break;
+            case SAWTOOTH:
+                int toothLength = Math.max(size / SAWTOOTH_TEETH, 1);
+
+                for (int i = 0; i < size; i++) {
+                    array[i] = i % toothLength;
+                }
+                break;
+            default:
+                for (int i = 0; i < size; i++) {
+                    array[i] = random.nextInt(size);
+                }
+        }
+
+        return array;
+    }
+
+    private static int zipf(SplittableRandom random, int numRanks) {
+        /*
+        Draws a rank in [0, numRanks) with probability roughly proportional to 1 / (rank + 1)^s, using
+        the inverse CDF of the continuous power law as an approximation to the discrete one
+         */
+
+        double oneMinusS = 1.0 - ZIPF_EXPONENT;
+        double u = random.nextDouble();
+        double rank = Math.pow(1.0 + u * (Math.pow(numRanks, oneMinusS) - 1.0), 1.0 / oneMinusS);
+
+        return Math.min((int) rank, numRanks) - 1;
+    }
+
+    public static long[] longs(int size, Distribution distribution) {
+        /*
+        Generates the same data as ints, widened to longs
+         */
+
+        int[] source = ints(size, distribution);
+        long[] array = new long[size];
+
+        for (int i = 0; i < size; i++) {
+            array[i] = source[i];
+        }
+
+        return array;
+    }
+
+    public static double[] doubles(int size, Distribution distribution) {
+        /*
+        Generates the same data as ints centered on zero, so that sums of sub-arrays can be negative
+         */
+
+        int[] source = ints(size, distribution);
+        double[] array = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            array[i] = source[i] - size / 2.0;
+        }
+
+        return array;
+    }
+
+    public static Integer[] boxed(int[] source) {
+        /*
+        Returns a boxed copy of source
+         */
+
+        Integer[] array = new Integer[source.length];
+
+        for (int i = 0; i < source.length; i++) {
+            array[i] = source[i];
+        }
+
+        return array;
+    }
+}
@@ -0,0 +1,82 @@
+package benchmarks;
+
+import chapter10.DoublyLinkedList;
+import chapter10.Queue;
+import chapter10.Stack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+Benchmarks for the chapter 10 containers, each one pushes then pops all size elements
+
+The containers never look at their elements, so only the input size is varied
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ListBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000", "100000000"})
+    public int size;
+
+    private Integer[] input;
+
+    @Setup
+    public void setUp() {
+        this.input = Inputs.boxed(Inputs.ints(this.size, Inputs.Distribution.UNIFORM));
+    }
+
+    @Benchmark
+    public void stackPushPop(Blackhole blackhole) {
+        Stack<Integer> stack = new Stack<>(new Integer[0]);
+
+        for (Integer element : this.input) {
+            stack.push(element);
+        }
+
+        while (!stack.isEmpty()) {
+            blackhole.consume(stack.pop());
+        }
+    }
+
+    @Benchmark
+    public void queueEnqueueDequeue(Blackhole blackhole) {
+        Queue<Integer> queue = new Queue<>(new Integer[0]);
+
+        for (Integer element : this.input) {
+            queue.enqueue(element);
+        }
+
+        while (!queue.isEmpty()) {
+            blackhole.consume(queue.dequeue());
+        }
+    }
+
+    @Benchmark
+    public void linkedListAddBackPopFront(Blackhole blackhole) {
+        DoublyLinkedList<Integer> list = new DoublyLinkedList<>(new Integer[0]);
+
+        for (Integer element : this.input) {
+            list.addBack(element);
+        }
+
+        while (!list.isEmpty()) {
+            blackhole.consume(list.popFront());
+        }
+    }
+}
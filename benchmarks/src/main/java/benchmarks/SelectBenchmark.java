@@ -0,0 +1,87 @@
+package benchmarks;
+
+import chapter4.MaxSubarray;
+import chapter9.QuantileSketch;
+import chapter9.RandomizedSelect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+Array query benchmarks for chapters 4 and 9
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SelectBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000", "100000000"})
+    public int size;
+
+    @Param({"UNIFORM", "SORTED", "REVERSED", "FEW_UNIQUE", "ZIPFIAN"})
+    public Inputs.Distribution distribution;
+
+    private Integer[] boxedInput;
+    private int[] primitiveInput;
+    private int[] primitiveWork;
+    private double[] doubleInput;
+
+    @Setup
+    public void setUp() {
+        this.primitiveInput = Inputs.ints(this.size, this.distribution);
+        this.primitiveWork = new int[this.size];
+        this.boxedInput = Inputs.boxed(this.primitiveInput);
+        this.doubleInput = Inputs.doubles(this.size, this.distribution);
+    }
+
+    @Benchmark
+    public Object selectMedian() {
+        return RandomizedSelect.select(this.boxedInput, this.size / 2);
+    }
+
+    @Benchmark
+    public int selectMedianInPlace() {
+        // The in place overload reorders its input, so select from a fresh copy every time
+        System.arraycopy(this.primitiveInput, 0, this.primitiveWork, 0, this.size);
+        return RandomizedSelect.select(this.primitiveWork, 0, this.size, this.size / 2);
+    }
+
+    @Benchmark
+    public int[] selectQuantiles() {
+        // p50, p90, p99 and p99.9 from a single batch of partitioning
+        int[] ranks = {this.size / 2, this.size / 10 * 9, this.size / 100 * 99, this.size / 1000 * 999};
+
+        System.arraycopy(this.primitiveInput, 0, this.primitiveWork, 0, this.size);
+        return RandomizedSelect.selectMany(this.primitiveWork, 0, this.size, ranks);
+    }
+
+    @Benchmark
+    public double[] sketchQuantiles() {
+        // Streams the input through a sketch instead of holding it all
+        QuantileSketch sketch = new QuantileSketch();
+
+        for (double value : this.doubleInput) {
+            sketch.update(value);
+        }
+
+        return sketch.getQuantiles(new double[]{0.5, 0.9, 0.99, 0.999});
+    }
+
+    @Benchmark
+    public Object maxSubarray() {
+        return MaxSubarray.maxSubarray(this.doubleInput);
+    }
+}
@@ -0,0 +1,195 @@
+package benchmarks;
+
+import chapter6.HeapSort;
+import chapter7.ParallelQuicksort;
+import chapter7.Quicksort;
+import chapter8.CountingSort;
+import chapter8.KeyRadixSort;
+import chapter8.LSDRadixSort;
+import chapter8.ParallelMSDRadixSort;
+import chapter8.Sorter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+Sorting benchmarks for chapters 6 to 8
+
+Every benchmark first copies the pristine input into a work array, so the copy is part of the
+measured time but costs the same O(n) for every algorithm
+
+The baseline quickSort of Comparable[] recurses once per split and goes quadratic on many duplicates,
+so its FEW_UNIQUE and ZIPFIAN runs on boxed input sort only the first MAX_DEGENERATE_SIZE elements, and
+larger sizes repeat that measurement. Uncapped they overflow the stack from 10^6 elements on
+
+ORGAN_PIPE and SAWTOOTH are regression inputs for the quicksorts, which used to overflow the stack on
+them when pivots kept splitting badly
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SortBenchmark {
+
+    // The most elements the baseline quicksort gets on boxed duplicate heavy input
+    private static final int MAX_DEGENERATE_SIZE = 100000;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000", "100000000"})
+    public int size;
+
+    @Param({"UNIFORM", "SORTED", "REVERSED", "FEW_UNIQUE", "ZIPFIAN", "ORGAN_PIPE", "SAWTOOTH"})
+    public Inputs.Distribution distribution;
+
+    @Param({"BOXED", "PRIMITIVE"})
+    public Inputs.ElementType elementType;
+
+    private final Sorter sorter = new Sorter();
+
+    private int[] primitiveInput;
+    private int[] primitiveWork;
+    private Integer[] boxedInput;
+    private Integer[] boxedWork;
+    private Integer[] quickSortWork; // A prefix of boxedInput, capped on duplicate heavy input
+
+    @Setup
+    public void setUp() {
+        this.primitiveInput = Inputs.ints(this.size, this.distribution);
+        this.primitiveWork = new int[this.size];
+
+        if (this.elementType == Inputs.ElementType.BOXED) {
+            this.boxedInput = Inputs.boxed(this.primitiveInput);
+            this.boxedWork = new Integer[this.size];
+
+            boolean degenerate = this.distribution == Inputs.Distribution.FEW_UNIQUE
+                    || this.distribution == Inputs.Distribution.ZIPFIAN;
+            this.quickSortWork = new Integer[degenerate ? Math.min(this.size, MAX_DEGENERATE_SIZE) : this.size];
+        }
+    }
+
+    private Integer[] boxedCopy() {
+        System.arraycopy(this.boxedInput, 0, this.boxedWork, 0, this.size);
+        return this.boxedWork;
+    }
+
+    private int[] primitiveCopy() {
+        System.arraycopy(this.primitiveInput, 0, this.primitiveWork, 0, this.size);
+        return this.primitiveWork;
+    }
+
+    @Benchmark
+    public Object quickSort() {
+        if (this.elementType == Inputs.ElementType.BOXED) {
+            System.arraycopy(this.boxedInput, 0, this.quickSortWork, 0, this.quickSortWork.length);
+            return Quicksort.quickSort(this.quickSortWork);
+        }
+
+        return Quicksort.quickSort(this.primitiveCopy());
+    }
+
+    @Benchmark
+    public Object introSort() {
+        // Introsort only sorts Comparable[], the primitive run measures boxing up front
+        if (this.elementType == Inputs.ElementType.BOXED) {
+            return Quicksort.introSort(this.boxedCopy());
+        }
+
+        return Quicksort.introSort(Inputs.boxed(this.primitiveCopy()));
+    }
+
+    @Benchmark
+    public Object parallelQuickSort() {
+        if (this.elementType == Inputs.ElementType.BOXED) {
+            return ParallelQuicksort.parallelQuickSort(this.boxedCopy());
+        }
+
+        return ParallelQuicksort.parallelQuickSort(this.primitiveCopy());
+    }
+
+    @Benchmark
+    public Object heapSort() {
+        if (this.elementType == Inputs.ElementType.BOXED) {
+            return new HeapSort<Integer>().heapSort(this.boxedCopy(), true);
+        }
+
+        return HeapSort.heapSort(this.primitiveCopy(), true);
+    }
+
+    @Benchmark
+    public Object bottomUpHeapSort() {
+        if (this.elementType == Inputs.ElementType.BOXED) {
+            return new HeapSort<Integer>().bottomUpHeapSort(this.boxedCopy(), true);
+        }
+
+        return HeapSort.bottomUpHeapSort(this.primitiveCopy(), true);
+    }
+
+    @Benchmark
+    public Object countingSort() {
+        // Counting sort only works on ints, the boxed run measures unboxing up front
+        if (this.elementType == Inputs.ElementType.BOXED) {
+            return CountingSort.countingSort(unboxed(this.boxedCopy()));
+        }
+
+        return CountingSort.countingSort(this.primitiveCopy());
+    }
+
+    @Benchmark
+    public Object radixSort() {
+        if (this.elementType == Inputs.ElementType.BOXED) {
+            return LSDRadixSort.radixSort(unboxed(this.boxedCopy()));
+        }
+
+        return LSDRadixSort.radixSort(this.primitiveCopy());
+    }
+
+    @Benchmark
+    public Object parallelRadixSort() {
+        if (this.elementType == Inputs.ElementType.BOXED) {
+            return ParallelMSDRadixSort.parallelRadixSort(unboxed(this.boxedCopy()));
+        }
+
+        return ParallelMSDRadixSort.parallelRadixSort(this.primitiveCopy());
+    }
+
+    @Benchmark
+    public Object keyRadixSort() {
+        // Boxed runs sort the records by an extracted key, primitive runs compute the permutation only
+        if (this.elementType == Inputs.ElementType.BOXED) {
+            return KeyRadixSort.sortByInt(this.boxedCopy(), Integer::intValue);
+        }
+
+        return KeyRadixSort.sortedPermutation(this.primitiveCopy());
+    }
+
+    @Benchmark
+    public Object adaptiveSort() {
+        // Includes the cost of sampling the input and choosing an engine
+        if (this.elementType == Inputs.ElementType.BOXED) {
+            return this.sorter.sort(this.boxedCopy());
+        }
+
+        return this.sorter.sort(this.primitiveCopy());
+    }
+
+    private static int[] unboxed(Integer[] source) {
+        int[] array = new int[source.length];
+
+        for (int i = 0; i < source.length; i++) {
+            array[i] = source[i];
+        }
+
+        return array;
+    }
+}
@@ -0,0 +1,176 @@
+package benchmarks;
+
+import chapter12.BinaryTreeMap;
+import chapter13.RedBlackTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/*
+Search tree benchmarks for chapters 12 and 13, each benchmark processes all keys
+
+BinaryTreeMap degenerates into a list on SORTED and REVERSED keys, expect those runs to be
+quadratic while RedBlackTree stays O(log n) per operation. So that the default matrix finishes, those
+runs use at most MAX_DEGENERATE_SIZE keys, larger sizes repeat that measurement. Sizes stop at 10^7
+because 10^8 boxed entries do not fit in the forked JVM's heap
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class TreeMapBenchmark {
+
+    // The tree implementations to compare
+    public enum Tree {
+        BINARY,
+        RED_BLACK
+    }
+
+    // The most keys BinaryTreeMap gets on SORTED and REVERSED input, where every operation is O(n)
+    private static final int MAX_DEGENERATE_SIZE = 100000;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"UNIFORM", "SORTED", "REVERSED", "FEW_UNIQUE", "ZIPFIAN"})
+    public Inputs.Distribution distribution;
+
+    @Param({"BINARY", "RED_BLACK"})
+    public Tree tree;
+
+    private Integer[] keys;
+    private Integer[] distinctSortedKeys;
+
+    // The prebuilt trees live in their own states, so only the benchmarks that query them pay for the build
+
+    @State(Scope.Thread)
+    public static class BuiltTree {
+        private BinaryTreeMap<Integer, Integer> map;
+
+        @Setup
+        public void setUp(TreeMapBenchmark benchmark) {
+            this.map = benchmark.build(false);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SizedTree {
+        private BinaryTreeMap<Integer, Integer> map;
+
+        @Setup
+        public void setUp(TreeMapBenchmark benchmark) {
+            this.map = benchmark.build(true);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        boolean degenerate = this.tree == Tree.BINARY && (this.distribution == Inputs.Distribution.SORTED
+                || this.distribution == Inputs.Distribution.REVERSED);
+        int numKeys = degenerate ? Math.min(this.size, MAX_DEGENERATE_SIZE) : this.size;
+
+        this.keys = Inputs.boxed(Inputs.ints(numKeys, this.distribution));
+        this.distinctSortedKeys = Arrays.stream(this.keys).sorted().distinct().toArray(Integer[]::new);
+    }
+
+    private BinaryTreeMap<Integer, Integer> empty(boolean trackSizes) {
+        return this.tree == Tree.BINARY
+                ? new BinaryTreeMap<Integer, Integer>(trackSizes)
+                : new RedBlackTree<Integer, Integer>(trackSizes);
+    }
+
+    private BinaryTreeMap<Integer, Integer> build(boolean trackSizes) {
+        BinaryTreeMap<Integer, Integer> map = this.empty(trackSizes);
+
+        for (Integer key : this.keys) {
+            map.insert(key, key);
+        }
+
+        return map;
+    }
+
+    @Benchmark
+    public Object insert() {
+        return this.build(false);
+    }
+
+    @Benchmark
+    public void lookup(BuiltTree builtTree, Blackhole blackhole) {
+        for (Integer key : this.keys) {
+            blackhole.consume(builtTree.map.lookup(key));
+        }
+    }
+
+    @Benchmark
+    public Object buildFromSorted() {
+        // The bulk counterpart of insert on SORTED keys, linear for both trees
+        BinaryTreeMap<Integer, Integer> map = this.empty(false);
+        map.buildFromSorted(this.distinctSortedKeys, this.distinctSortedKeys);
+
+        return map;
+    }
+
+    @Benchmark
+    public Object putAll() {
+        BinaryTreeMap<Integer, Integer> map = this.empty(false);
+        map.putAll(this.keys, this.keys);
+
+        return map;
+    }
+
+    @Benchmark
+    public Object insertTrackingSizes() {
+        // The cost of maintaining subtree sizes, compare against insert
+        return this.build(true);
+    }
+
+    @Benchmark
+    public void rank(SizedTree sizedTree, Blackhole blackhole) {
+        // Only run on trees that track sizes, the untracked rank walks O(n) keys per query
+        for (Integer key : this.keys) {
+            blackhole.consume(sizedTree.map.rank(key));
+        }
+    }
+
+    @Benchmark
+    public void select(SizedTree sizedTree, Blackhole blackhole) {
+        int treeSize = sizedTree.map.getSize();
+
+        for (int i = 0; i < this.keys.length; i++) {
+            blackhole.consume(sizedTree.map.select(Math.floorMod(this.keys[i], treeSize)));
+        }
+    }
+
+    @Benchmark
+    public Object delete() {
+        // Includes building the tree, compare against insert to isolate the deletions
+        BinaryTreeMap<Integer, Integer> map = this.build(false);
+
+        for (Integer key : this.keys) {
+            map.delete(key);
+        }
+
+        return map;
+    }
+
+    @Benchmark
+    public void floor(BuiltTree builtTree, Blackhole blackhole) {
+        for (Integer key : this.keys) {
+            blackhole.consume(builtTree.map.floor(key - 1));
+        }
+    }
+}
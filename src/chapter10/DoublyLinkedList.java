@@ -302,7 +302,7 @@ public class DoublyLinkedList<T> {
 
                 this.size -= 1;
 
-                return element;
+                return currentElement.value;
             }
 
             // Otherwise move on to the next element
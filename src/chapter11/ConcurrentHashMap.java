@@ -0,0 +1,413 @@
+package chapter11;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConcurrentHashMap<K, V> {
+
+    // A chained entry, next is volatile so readers can walk a bucket without locking
+    private static class TableElement<K, V> {
+        public final int hash;
+        public final K key;
+        public volatile V value;
+        public volatile TableElement<K, V> next;
+
+        public TableElement(int hash, K key, V value, TableElement<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    // A bucket array together with the resize that replaces it, a table is resized at most once
+    private static class Table<K, V> {
+        public final AtomicReferenceArray<TableElement<K, V>> buckets;
+        public final AtomicReference<ResizeState<K, V>> resize;
+
+        public Table(int length) {
+            this.buckets = new AtomicReferenceArray<>(length);
+            this.resize = new AtomicReference<>(null);
+        }
+    }
+
+    // Placed in a bucket of the old table once that bucket has been moved into the new table
+    private static class ForwardingElement<K, V> extends TableElement<K, V> {
+        public final Table<K, V> nextTable;
+
+        public ForwardingElement(Table<K, V> nextTable) {
+            super(MOVED, null, null, null);
+            this.nextTable = nextTable;
+        }
+    }
+
+    // Shared bookkeeping for one resize that any number of threads can help with
+    private static class ResizeState<K, V> {
+        public final Table<K, V> oldTable;
+        public final Table<K, V> newTable;
+        public final ForwardingElement<K, V> forwarder;
+        public final AtomicInteger transferIndex; // Buckets below this index have not been claimed yet
+        public final AtomicInteger bucketsMoved;
+
+        public ResizeState(Table<K, V> oldTable) {
+            this.oldTable = oldTable;
+            this.newTable = new Table<>(oldTable.buckets.length() * 2);
+            this.forwarder = new ForwardingElement<>(this.newTable);
+            this.transferIndex = new AtomicInteger(oldTable.buckets.length());
+            this.bucketsMoved = new AtomicInteger(0);
+        }
+    }
+
+    private static final int MOVED = -1; // Hash of forwarding elements, real hashes are non-negative
+    private static final int MIN_TRANSFER_STRIDE = 16;
+    private static final int NUM_CPUS = Runtime.getRuntime().availableProcessors();
+
+    private volatile Table<K, V> table;
+    private final Object[] locks;
+    private final int lockMask;
+    private final double maxLoadFactor; // Defined as (# elements) / (# buckets)
+    private final LongAdder size;
+
+    public ConcurrentHashMap(int size, int concurrencyLevel) {
+        /*
+        Builds a chained hash table that is safe to use from many threads at once
+
+        Parameters:
+            size: The initial number of buckets, rounded up to a power of two
+            concurrencyLevel: The number of lock stripes writers are spread over, rounded up to a power of two
+         */
+
+        int numLocks = powerOfTwoAtLeast(Math.max(concurrencyLevel, 1));
+
+        // Every stripe must cover at least one bucket so that a bucket and its two successors
+        // after a resize are always guarded by the same lock
+        this.table = new Table<>(powerOfTwoAtLeast(Math.max(size, numLocks)));
+        this.locks = new Object[numLocks];
+        this.lockMask = numLocks - 1;
+        this.maxLoadFactor = 2.0;
+        this.size = new LongAdder();
+
+        for (int i = 0; i < numLocks; i++) {
+            this.locks[i] = new Object();
+        }
+    }
+
+    public ConcurrentHashMap(int size) {
+        this(size, 64);
+    }
+
+    // A constructor with a default table size of 128
+    public ConcurrentHashMap() {
+        this(128);
+    }
+
+    private static int powerOfTwoAtLeast(int n) {
+        /*
+        Returns the smallest power of two that is at least n
+         */
+
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    private static int spread(Object key) {
+        /*
+        Mixes the high bits of the hash code into the low bits used for indexing, and clears the sign
+        bit so that real hashes never collide with MOVED
+         */
+
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & 0x7fffffff;
+    }
+
+    public V search(K key) {
+        /*
+        Searches for a key and returns its value without taking any lock
+
+        Parameters:
+            key: The key to search for in the hash table
+
+        Returns:
+            null: If the key is not in the hash table
+            value in <key, value> if key is in hash table
+         */
+
+        int hash = spread(key);
+        AtomicReferenceArray<TableElement<K, V>> tab = this.table.buckets;
+
+        while (true) {
+            TableElement<K, V> element = tab.get(hash & (tab.length() - 1));
+
+            if (element == null) {
+                return null;
+            }
+
+            // The bucket was moved by a resize, follow it to the new table
+            if (element.hash == MOVED) {
+                tab = ((ForwardingElement<K, V>) element).nextTable.buckets;
+                continue;
+            }
+
+            while (element != null) {
+                if (element.hash == hash && (element.key == key || element.key.equals(key))) {
+                    return element.value;
+                }
+
+                element = element.next;
+            }
+
+            return null;
+        }
+    }
+
+    public void insert(K key, V value) {
+        /*
+        Inserts a key value pair into the hash table, replacing the value if the key is already present
+
+        Parameters:
+            key: The key to hash and insert into the table
+            value: The value corresponding to the hashed key
+         */
+
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported, delete reports absence as null");
+        }
+
+        int hash = spread(key);
+        Table<K, V> tab = this.table;
+
+        while (true) {
+            AtomicReferenceArray<TableElement<K, V>> buckets = tab.buckets;
+            int index = hash & (buckets.length() - 1);
+            TableElement<K, V> head = buckets.get(index);
+
+            if (head != null && head.hash == MOVED) {
+                // Help finish the resize before writing into the new table
+                tab = this.helpResize(tab, (ForwardingElement<K, V>) head);
+                continue;
+            }
+
+            boolean added = false;
+
+            synchronized (this.locks[index & this.lockMask]) {
+                head = buckets.get(index);
+
+                // The bucket may have been moved while we waited for the lock
+                if (head != null && head.hash == MOVED) {
+                    continue;
+                }
+
+                if (head == null) {
+                    buckets.set(index, new TableElement<>(hash, key, value, null));
+                    added = true;
+                } else {
+                    TableElement<K, V> element = head;
+
+                    while (true) {
+                        if (element.hash == hash && (element.key == key || element.key.equals(key))) {
+                            element.value = value;
+                            break;
+                        }
+
+                        if (element.next == null) {
+                            // Appending at the tail never disturbs readers already walking the bucket
+                            element.next = new TableElement<>(hash, key, value, null);
+                            added = true;
+                            break;
+                        }
+
+                        element = element.next;
+                    }
+                }
+            }
+
+            if (added) {
+                this.size.increment();
+                this.checkForResize(tab);
+            }
+
+            return;
+        }
+    }
+
+    public V delete(K key) {
+        /*
+        Deletes a key from the hash table
+
+        Parameters:
+            key: The key of the table element to delete
+
+        Returns:
+            null: If the element is not in the table
+            value: In <key, value> if the element is in the table
+         */
+
+        int hash = spread(key);
+        Table<K, V> tab = this.table;
+
+        while (true) {
+            AtomicReferenceArray<TableElement<K, V>> buckets = tab.buckets;
+            int index = hash & (buckets.length() - 1);
+            TableElement<K, V> head = buckets.get(index);
+
+            if (head == null) {
+                return null;
+            }
+
+            if (head.hash == MOVED) {
+                tab = this.helpResize(tab, (ForwardingElement<K, V>) head);
+                continue;
+            }
+
+            V deleted = null;
+
+            synchronized (this.locks[index & this.lockMask]) {
+                head = buckets.get(index);
+
+                if (head != null && head.hash == MOVED) {
+                    continue;
+                }
+
+                TableElement<K, V> previous = null;
+                TableElement<K, V> element = head;
+
+                while (element != null) {
+                    if (element.hash == hash && (element.key == key || element.key.equals(key))) {
+                        // Unlink the element, readers standing on it still see the rest of the bucket
+                        if (previous == null) {
+                            buckets.set(index, element.next);
+                        } else {
+                            previous.next = element.next;
+                        }
+
+                        deleted = element.value;
+                        break;
+                    }
+
+                    previous = element;
+                    element = element.next;
+                }
+            }
+
+            if (deleted != null) {
+                this.size.decrement();
+            }
+
+            return deleted;
+        }
+    }
+
+    private void checkForResize(Table<K, V> tab) {
+        /*
+        Starts a resize of tab if the load factor has passed its maximum, and helps with it
+         */
+
+        if (this.size.sum() <= this.maxLoadFactor * tab.buckets.length()) {
+            return;
+        }
+
+        ResizeState<K, V> state = tab.resize.get();
+
+        if (state == null) {
+            // A table that is still being filled by a resize must not start its own, the thread that
+            // publishes it checks again once every bucket has arrived
+            if (tab != this.table) {
+                return;
+            }
+
+            // Only one thread wins the right to start the resize of this table, the rest join it
+            tab.resize.compareAndSet(null, new ResizeState<>(tab));
+            state = tab.resize.get();
+        }
+
+        this.transfer(state);
+    }
+
+    private Table<K, V> helpResize(Table<K, V> tab, ForwardingElement<K, V> forwarder) {
+        /*
+        Helps move buckets of tab into the new table, and returns the table writers should use next
+         */
+
+        this.transfer(tab.resize.get());
+
+        return forwarder.nextTable;
+    }
+
+    private void transfer(ResizeState<K, V> state) {
+        /*
+        Claims strides of unmoved buckets and moves them until none are left to claim
+
+        Parameters:
+            state: The resize this thread is helping with
+         */
+
+        int oldLength = state.oldTable.buckets.length();
+        int stride = Math.max(oldLength / (8 * NUM_CPUS), MIN_TRANSFER_STRIDE);
+
+        while (true) {
+            int high = state.transferIndex.get();
+
+            if (high <= 0) {
+                return;
+            }
+
+            int low = Math.max(high - stride, 0);
+
+            if (!state.transferIndex.compareAndSet(high, low)) {
+                continue;
+            }
+
+            for (int i = low; i < high; i++) {
+                this.transferBucket(state, i);
+            }
+
+            // The thread that moves the last bucket publishes the new table
+            if (state.bucketsMoved.addAndGet(high - low) == oldLength) {
+                this.table = state.newTable;
+
+                // Our inserts during the resize may already call for another one
+                this.checkForResize(state.newTable);
+                return;
+            }
+        }
+    }
+
+    private void transferBucket(ResizeState<K, V> state, int index) {
+        /*
+        Splits one old bucket into buckets index and index + oldLength of the new table
+
+        The old elements are copied rather than relinked, so readers still walking the old bucket are
+        never sent into the wrong chain
+         */
+
+        AtomicReferenceArray<TableElement<K, V>> oldBuckets = state.oldTable.buckets;
+        AtomicReferenceArray<TableElement<K, V>> newBuckets = state.newTable.buckets;
+        int oldLength = oldBuckets.length();
+
+        synchronized (this.locks[index & this.lockMask]) {
+            TableElement<K, V> lowHead = null;
+            TableElement<K, V> highHead = null;
+
+            for (TableElement<K, V> element = oldBuckets.get(index); element != null; element = element.next) {
+                if ((element.hash & oldLength) == 0) {
+                    lowHead = new TableElement<>(element.hash, element.key, element.value, lowHead);
+                } else {
+                    highHead = new TableElement<>(element.hash, element.key, element.value, highHead);
+                }
+            }
+
+            newBuckets.set(index, lowHead);
+            newBuckets.set(index + oldLength, highHead);
+            oldBuckets.set(index, state.forwarder);
+        }
+    }
+
+    public int getSize() {
+        /*
+        Returns the number of elements stored in the table, which may be stale under concurrent updates
+         */
+
+        return (int) this.size.sum();
+    }
+}
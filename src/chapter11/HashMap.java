@@ -29,11 +29,34 @@ public class HashMap<K, V>{
         }
     }
 
+    // The number of old buckets moved into the new table by each operation during an incremental resize
+    private static final int BUCKETS_PER_MIGRATION_STEP = 4;
+
     private int tableSize;
     private double loadFactor; // Defined as (# elements) / (# buckets)
     private DoublyLinkedList<TableElement>[] hashBuckets;
     private int size;
 
+    // State for incremental resizing, oldBuckets is null unless a migration is in progress
+    private boolean incrementalResize;
+    private DoublyLinkedList<TableElement>[] oldBuckets;
+    private int migrationIndex; // Old buckets below this index have already been moved
+    private long maxOperationNanos;
+
+    public HashMap(int size, boolean incrementalResize) {
+        /*
+        Builds a chained hash table
+
+        Parameters:
+            size: The initial number of buckets
+            incrementalResize: Whether to spread the cost of growing the table over later operations
+                instead of rehashing every element at once
+         */
+
+        this(size);
+        this.incrementalResize = incrementalResize;
+    }
+
     public HashMap(int size) {
         this.tableSize = size;
         this.loadFactor = 0.0;
@@ -63,19 +86,13 @@ public class HashMap<K, V>{
             value: The value corresponding to the hashed key
          */
 
-        // First compute the hash
-        int hashValue = key.hashCode() % this.tableSize;
+        long startTime = this.startOperationTimer();
 
-        // A possible case that happens in testing
-        if (hashValue < 0) {
-            hashValue = this.tableSize + hashValue;
-        }
+        this.migrateBuckets();
 
-        // Create a new TableElement
+        // Create a new TableElement and append to the linked list in its bucket
         TableElement newElem = new TableElement(key, value);
-
-        // Append to linked list in bucket
-        this.hashBuckets[hashValue].addFront(newElem);
+        this.getOrCreateBucket(this.bucketIndex(key, this.tableSize)).addFront(newElem);
 
         // Increase size and update load factor
         this.size += 1;
@@ -83,7 +100,52 @@ public class HashMap<K, V>{
 
         // Check load factor for resizing
         if (this.loadFactor > 2) {
-            this.resizeHashTable(2.0);
+            if (this.incrementalResize) {
+                this.startIncrementalResize(2.0);
+            } else {
+                this.resizeHashTable(2.0);
+            }
+        }
+
+        this.recordOperationTime(startTime);
+    }
+
+    private int bucketIndex(Object key, int numBuckets) {
+        /*
+        Hashes a key to a bucket index in a table with numBuckets buckets
+         */
+
+        int hashValue = key.hashCode() % numBuckets;
+
+        // A possible case that happens in testing
+        if (hashValue < 0) {
+            hashValue = numBuckets + hashValue;
+        }
+
+        return hashValue;
+    }
+
+    private long startOperationTimer() {
+        /*
+        Returns the start time of an operation, only maps that resize incrementally pay for reading the clock
+         */
+
+        return this.incrementalResize ? System.nanoTime() : 0;
+    }
+
+    private void recordOperationTime(long startTime) {
+        /*
+        Tracks the slowest single insert, search or delete seen so far on maps that resize incrementally
+         */
+
+        if (!this.incrementalResize) {
+            return;
+        }
+
+        long elapsed = System.nanoTime() - startTime;
+
+        if (elapsed > this.maxOperationNanos) {
+            this.maxOperationNanos = elapsed;
         }
     }
 
@@ -103,7 +165,10 @@ public class HashMap<K, V>{
             factor: The factor by which to resize the hash table
          */
 
-        int newSize = (int) factor * this.hashBuckets.length;
+        // Any migration still in progress must finish before we start a new table
+        this.finishMigration();
+
+        int newSize = (int) (factor * this.hashBuckets.length);
 
         // Allocate an array of the new size
         DoublyLinkedList<TableElement>[] newTable = new DoublyLinkedList[newSize];
@@ -120,21 +185,124 @@ public class HashMap<K, V>{
         // Set the new table up
         this.hashBuckets = newTable;
         this.tableSize = newSize;
-        this.size = 0; // Set size to zero because re-inserting elements will increment size
+        this.updateLoadFactor();
+
+        // Move the elements straight into their new buckets, going through insert would time and count
+        // every one of them again
+        for (DoublyLinkedList<TableElement> bucket : oldTable) {
+            this.migrateBucket(bucket);
+        }
+    }
+
+    private void startIncrementalResize(double factor) {
+        /*
+        Allocates the larger table and leaves the old one live, its buckets are moved over a few at a
+        time by later operations instead of all at once
+
+        Parameters:
+            factor: The factor by which to resize the hash table
+         */
+
+        // Any migration still in progress must finish before we start a new table
+        this.finishMigration();
+
+        int newSize = (int) (factor * this.hashBuckets.length);
+
+        // Buckets of the new table are created on first use, so starting a resize is a single allocation
+        DoublyLinkedList<TableElement>[] newTable = new DoublyLinkedList[newSize];
+
+        this.oldBuckets = this.hashBuckets;
+        this.migrationIndex = 0;
+        this.hashBuckets = newTable;
+        this.tableSize = newSize;
+        this.updateLoadFactor();
+    }
+
+    private void migrateBuckets() {
+        /*
+        Moves a bounded number of old buckets into the new table if a migration is in progress
+         */
+
+        if (this.oldBuckets == null) {
+            return;
+        }
+
+        int stop = Math.min(this.migrationIndex + BUCKETS_PER_MIGRATION_STEP, this.oldBuckets.length);
+
+        while (this.migrationIndex < stop) {
+            this.migrateBucket(this.oldBuckets[this.migrationIndex]);
+            this.migrationIndex += 1;
+        }
+
+        if (this.migrationIndex == this.oldBuckets.length) {
+            this.oldBuckets = null;
+        }
+    }
+
+    private void finishMigration() {
+        /*
+        Moves every remaining old bucket into the new table
+         */
+
+        if (this.oldBuckets == null) {
+            return;
+        }
+
+        while (this.migrationIndex < this.oldBuckets.length) {
+            this.migrateBucket(this.oldBuckets[this.migrationIndex]);
+            this.migrationIndex += 1;
+        }
+
+        this.oldBuckets = null;
+    }
+
+    private void migrateBucket(DoublyLinkedList<TableElement> bucket) {
+        /*
+        Empties one old bucket into the new table
+
+        Elements are appended behind anything inserted since the resize began, so that within a bucket
+        newer entries for a key are still found first
+         */
+
+        if (bucket == null) {
+            return;
+        }
 
         TableElement nextElement;
 
-        for (DoublyLinkedList linkedList : oldTable) {
-            // Loop through the linked lists and hash them into the new table
-            // Get the element from the linked list
-            while (linkedList.peekFront() != null) {
-                // Get the next element from this list
-                nextElement = (TableElement) linkedList.popFront();
+        while (bucket.peekFront() != null) {
+            nextElement = bucket.popFront();
+            this.getOrCreateBucket(this.bucketIndex(nextElement.key, this.tableSize)).addBack(nextElement);
+        }
+    }
 
-                // Insert this element into the new table
-                this.insert((K) nextElement.key, (V) nextElement.value);
-            }
+    private DoublyLinkedList<TableElement> getOrCreateBucket(int index) {
+        /*
+        Returns the bucket at index in the current table, creating it if the table was built lazily
+         */
+
+        DoublyLinkedList<TableElement> bucket = this.hashBuckets[index];
+
+        if (bucket == null) {
+            bucket = new DoublyLinkedList<>(new TableElement[0]);
+            this.hashBuckets[index] = bucket;
         }
+
+        return bucket;
+    }
+
+    private DoublyLinkedList<TableElement> oldBucketFor(Object key) {
+        /*
+        Returns the old bucket that may still hold key, or null if that bucket was already migrated
+         */
+
+        if (this.oldBuckets == null) {
+            return null;
+        }
+
+        int oldIndex = this.bucketIndex(key, this.oldBuckets.length);
+
+        return oldIndex < this.migrationIndex ? null : this.oldBuckets[oldIndex];
     }
 
     public V search(K key) {
@@ -149,17 +317,24 @@ public class HashMap<K, V>{
             value in <key, value> if key is in hash table
          */
 
-        // Hash the key to the appropriate spot
-        int hash = key.hashCode() % this.tableSize;
+        long startTime = this.startOperationTimer();
 
-        if (hash < 0) {
-            hash = this.tableSize + hash;
-        }
+        this.migrateBuckets();
 
         // A dummy object we use to interface with the doubly linked list
         TableElement searchElement = new TableElement(key, null);
         // The result of the search, either the element or null
-        TableElement searchResult = this.hashBuckets[hash].contains(searchElement);
+        DoublyLinkedList<TableElement> bucket = this.hashBuckets[this.bucketIndex(key, this.tableSize)];
+        TableElement searchResult = bucket == null ? null : bucket.contains(searchElement);
+
+        // Entries that have not been migrated yet are still in the old table
+        DoublyLinkedList<TableElement> oldBucket = this.oldBucketFor(key);
+
+        if (searchResult == null && oldBucket != null) {
+            searchResult = oldBucket.contains(searchElement);
+        }
+
+        this.recordOperationTime(startTime);
 
         if (searchResult == null) {
             return null;
@@ -180,17 +355,24 @@ public class HashMap<K, V>{
             value: In <key, value> if the element is in the table
          */
 
-        // Compute the hash
-        int hash = key.hashCode() % this.tableSize;
+        long startTime = this.startOperationTimer();
 
-        if (hash < 0) {
-            hash = this.tableSize + hash;
-        }
+        this.migrateBuckets();
 
         // Delete the element in the relevant bucket
         TableElement dummyElement = new TableElement(key, null);
 
-        TableElement deleted = this.hashBuckets[hash].delete(dummyElement);
+        DoublyLinkedList<TableElement> bucket = this.hashBuckets[this.bucketIndex(key, this.tableSize)];
+        TableElement deleted = bucket == null ? null : bucket.delete(dummyElement);
+
+        // Entries that have not been migrated yet are still in the old table
+        DoublyLinkedList<TableElement> oldBucket = this.oldBucketFor(key);
+
+        if (deleted == null && oldBucket != null) {
+            deleted = oldBucket.delete(dummyElement);
+        }
+
+        this.recordOperationTime(startTime);
 
         if (deleted == null) {
             return null;
@@ -208,4 +390,20 @@ public class HashMap<K, V>{
         return this.size;
     }
 
+    public long getMaxOperationNanos() {
+        /*
+        Returns the duration in nanoseconds of the slowest single insert, search or delete so far, only
+        tracked on maps built with incrementalResize and 0 on all others
+         */
+
+        return this.maxOperationNanos;
+    }
+
+    public void resetMaxOperationNanos() {
+        /*
+        Clears the slowest operation metric, e.g. after a warm up phase
+         */
+
+        this.maxOperationNanos = 0;
+    }
 }
@@ -0,0 +1,229 @@
+package chapter11;
+
+public class IntHashMap<V> extends OpenAddressingMap<V> {
+    /*
+    An open addressing hash table keyed by primitive ints, see OpenAddressingMap for the probing and
+    deletion scheme it shares with LongHashMap
+     */
+
+    private static final int FREE_KEY = 0;
+
+    private int[] keys;
+
+    public IntHashMap(int size, double maxLoadFactor) {
+        /*
+        Builds an open addressing hash table keyed by primitive ints
+
+        Parameters:
+            size: The number of elements we expect to store without resizing
+            maxLoadFactor: The load factor (strictly between 0 and 1) at which the table doubles
+         */
+
+        super(maxLoadFactor);
+        this.allocateTable(this.tableSizeFor(size));
+    }
+
+    public IntHashMap(int size) {
+        this(size, 0.5);
+    }
+
+    // A constructor with a default table size of 100
+    public IntHashMap() {
+        this(100);
+    }
+
+    private void allocateTable(int length) {
+        /*
+        Allocates empty key and value arrays of the given power of two length
+         */
+
+        this.keys = new int[length];
+        this.allocateValues(length);
+    }
+
+    private static int hash(int key) {
+        /*
+        Scrambles the key so that sequential ids spread over the whole table
+         */
+
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int findSlot(int key) {
+        /*
+        Returns the slot holding key, or -1 if it is not in the table
+         */
+
+        int slot = hash(key) & this.mask;
+        int current;
+
+        while ((current = this.keys[slot]) != FREE_KEY) {
+            if (current == key) {
+                return slot;
+            }
+
+            slot = (slot + 1) & this.mask;
+        }
+
+        return -1;
+    }
+
+    private int emptySlotFor(int key) {
+        /*
+        Returns the first empty slot of key's probe run, for a key known not to be in the table
+         */
+
+        int slot = hash(key) & this.mask;
+
+        while (this.keys[slot] != FREE_KEY) {
+            slot = (slot + 1) & this.mask;
+        }
+
+        return slot;
+    }
+
+    public void insert(int key, V value) {
+        /*
+        Inserts a key value pair into the hash table, replacing the value if the key is already present
+
+        Parameters:
+            key: The key to hash and insert into the table
+            value: The value corresponding to the hashed key
+         */
+
+        if (key == FREE_KEY) {
+            this.insertFreeKey(value);
+            return;
+        }
+
+        int slot = this.findSlot(key);
+
+        if (slot >= 0) {
+            this.values[slot] = value;
+            return;
+        }
+
+        // Grow before adding a new key so that a table at its maximum length is left unchanged
+        if (this.isFull()) {
+            this.resizeHashTable(2);
+        }
+
+        slot = this.emptySlotFor(key);
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        this.size += 1;
+    }
+
+    public V search(int key) {
+        /*
+        Searches for a key and returns its value
+
+        Parameters:
+            key: The key to search for in the hash table
+
+        Returns:
+            null: If the key is not in the hash table
+            value in <key, value> if key is in hash table
+         */
+
+        if (key == FREE_KEY) {
+            return this.searchFreeKey();
+        }
+
+        int slot = this.findSlot(key);
+
+        return slot < 0 ? null : (V) this.values[slot];
+    }
+
+    public V delete(int key) {
+        /*
+        Deletes a key from the hash table
+
+        Parameters:
+            key: The key of the table element to delete
+
+        Returns:
+            null: If the element is not in the table
+            value: In <key, value> if the element is in the table
+         */
+
+        if (key == FREE_KEY) {
+            return this.deleteFreeKey();
+        }
+
+        int slot = this.findSlot(key);
+
+        if (slot < 0) {
+            return null;
+        }
+
+        V deleted = (V) this.values[slot];
+        this.shiftBackFrom(slot);
+        this.size -= 1;
+
+        return deleted;
+    }
+
+    private void shiftBackFrom(int hole) {
+        /*
+        Closes the hole left by a deletion with a backward shift, see OpenAddressingMap
+
+        Parameters:
+            hole: The slot that was just vacated
+         */
+
+        int slot = hole;
+
+        while (true) {
+            slot = (slot + 1) & this.mask;
+            int current = this.keys[slot];
+
+            if (current == FREE_KEY) {
+                break;
+            }
+
+            if (this.canFillHole(hole, hash(current) & this.mask, slot)) {
+                this.keys[hole] = current;
+                this.values[hole] = this.values[slot];
+                hole = slot;
+            }
+        }
+
+        this.keys[hole] = FREE_KEY;
+        this.values[hole] = null;
+    }
+
+    private void resizeHashTable(int factor) {
+        /*
+        Resizes the hash table to grow while maintaining asymptotic guarantees
+
+        Parameters:
+            factor: The factor by which to resize the hash table
+         */
+
+        int[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+
+        this.allocateTable(this.grownLength(factor));
+
+        // Re-probe every occupied slot into the new arrays, no equality checks are needed
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+
+            if (key != FREE_KEY) {
+                int slot = this.emptySlotFor(key);
+                this.keys[slot] = key;
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    public boolean containsKey(int key) {
+        /*
+        Returns whether the key is present in the table
+         */
+
+        return key == FREE_KEY ? this.containsFreeKey() : this.findSlot(key) >= 0;
+    }
+}
@@ -0,0 +1,130 @@
+package chapter11;
+
+abstract class OpenAddressingMap<V> {
+    /*
+    The parts of IntHashMap and LongHashMap that do not depend on the key type
+
+    Both keep their keys in a primitive array of power of two length and probe linearly from the
+    slot the key hashes to. The key 0 marks an empty slot, so an entry with key 0 lives outside the
+    table. Deletions close their hole with a backward shift instead of leaving a tombstone: later
+    members of the probe run move back into the hole unless their home slot lies cyclically within
+    (hole, slot], so lookups can always stop at the first empty slot
+
+    The probing loops stay in the subclasses, since Java generics cannot abstract over int[] and long[]
+    without boxing every key
+     */
+
+    // The longest table, one more doubling would overflow the length
+    static final int MAX_TABLE_LENGTH = 1 << 30;
+
+    Object[] values;
+    int mask; // Table length is a power of two, so mask = length - 1
+    int size;
+    private int resizeThreshold;
+    private final double maxLoadFactor; // Defined as (# elements) / (# slots)
+
+    private boolean hasFreeKey;
+    private V freeKeyValue;
+
+    OpenAddressingMap(double maxLoadFactor) {
+        if (maxLoadFactor <= 0.0 || maxLoadFactor >= 1.0) {
+            throw new IllegalArgumentException("Load factor must be strictly between 0 and 1");
+        }
+
+        this.maxLoadFactor = maxLoadFactor;
+        this.size = 0;
+    }
+
+    int tableSizeFor(int expectedSize) {
+        /*
+        Returns the smallest power of two table length that holds expectedSize elements under the load
+        factor
+         */
+
+        long needed = (long) Math.ceil(Math.max(expectedSize, 2) / this.maxLoadFactor);
+
+        if (needed > MAX_TABLE_LENGTH) {
+            return MAX_TABLE_LENGTH;
+        }
+
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+    void allocateValues(int length) {
+        /*
+        Allocates an empty value array of the given power of two length, the subclass allocates the keys
+         */
+
+        this.values = new Object[length];
+        this.mask = length - 1;
+        this.resizeThreshold = (int) (length * this.maxLoadFactor);
+    }
+
+    boolean isFull() {
+        // Whether one more key in the table would exceed the load factor
+        return this.size >= this.resizeThreshold;
+    }
+
+    int grownLength(int factor) {
+        /*
+        Returns the table length after growing by factor, or throws an IllegalStateException if that
+        would exceed MAX_TABLE_LENGTH
+         */
+
+        int length = this.mask + 1;
+
+        if (length > MAX_TABLE_LENGTH / factor) {
+            throw new IllegalStateException("The table cannot grow beyond " + MAX_TABLE_LENGTH
+                    + " slots, it already holds " + this.size + " keys");
+        }
+
+        return length * factor;
+    }
+
+    boolean canFillHole(int hole, int home, int slot) {
+        /*
+        Returns whether the key in slot, which hashes to home, may move back into hole during a backward
+        shift, i.e. whether home is not cyclically within (hole, slot]
+         */
+
+        return ((slot - home) & this.mask) >= ((slot - hole) & this.mask);
+    }
+
+    void insertFreeKey(V value) {
+        if (!this.hasFreeKey) {
+            this.hasFreeKey = true;
+            this.size += 1;
+        }
+
+        this.freeKeyValue = value;
+    }
+
+    V searchFreeKey() {
+        return this.hasFreeKey ? this.freeKeyValue : null;
+    }
+
+    V deleteFreeKey() {
+        if (!this.hasFreeKey) {
+            return null;
+        }
+
+        V deleted = this.freeKeyValue;
+        this.hasFreeKey = false;
+        this.freeKeyValue = null;
+        this.size -= 1;
+
+        return deleted;
+    }
+
+    boolean containsFreeKey() {
+        return this.hasFreeKey;
+    }
+
+    public int getSize() {
+        /*
+        Returns the number of elements stored in the table
+         */
+
+        return this.size;
+    }
+}
@@ -1,6 +1,8 @@
 package chapter12;
 
-import jdk.nashorn.api.tree.Tree;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 public class BinaryTreeMap<K extends Comparable, V> {
 
@@ -11,13 +13,12 @@ public class BinaryTreeMap<K extends Comparable, V> {
         public TreeElement rightChild;
         public TreeElement leftChild;
         public TreeElement parent;
+        public boolean isRed; // Only maintained by balanced subclasses such as RedBlackTree
+        public int subtreeSize; // The number of elements rooted here, only maintained when sizes are tracked
 
         public TreeElement(K key, V value) {
             this.key = key;
             this.value = value;
-            this.rightChild = rightChild;
-            this.leftChild = leftChild;
-            this.parent = parent;
         }
 
         public int compareTo(TreeElement otherElement) {
@@ -29,39 +30,72 @@ public class BinaryTreeMap<K extends Comparable, V> {
         }
     }
 
-    private TreeElement root;
-    private int size;
+    protected TreeElement root;
+    protected int size;
+
+    // Stands in for every missing child and the root's parent, null here and a black sentinel in RedBlackTree
+    protected TreeElement nil;
+
+    // Whether every element knows the size of its subtree, which makes rank and select O(height)
+    protected final boolean trackSizes;
+
+    public BinaryTreeMap(boolean trackSizes) {
+        /*
+        Builds an empty binary search tree
+
+        Parameters:
+            trackSizes: Whether to maintain subtree sizes, so that rank, select and countInRange take
+                        O(height) instead of O(n) time at the cost of an int per element and a walk
+                        back up the tree on every insert and delete
+         */
 
-    public BinaryTreeMap() {
-        // Builds an empty binary search tree
         this.root = null;
         this.size = 0;
+        this.nil = null;
+        this.trackSizes = trackSizes;
+    }
+
+    public BinaryTreeMap() {
+        this(false);
     }
 
     protected TreeElement insertHelper(K key, V value) {
         /*
-        Inserts a key value pair into the search tree
+        Inserts a key value pair into the search tree, a key that is already present gets the new value
 
         Parameters:
             key: The key to compare to other elements
             value: The value to store in this TreeMap
+
+        Returns:
+            null: If the key was already in the tree and only its value was replaced
+            The new tree element otherwise
          */
+
         // Create the new Tree Element
         TreeElement newElement = new TreeElement(key, value);
+        newElement.leftChild = this.nil;
+        newElement.rightChild = this.nil;
+        newElement.subtreeSize = 1;
 
         // Pointers we will use during iteration
         TreeElement currentNode = this.root;
-        TreeElement currentParent = null;
+        TreeElement currentParent = this.nil;
+        int comparison = 0;
 
         // Traverse the tree to find the appropriate leaf
-        while (currentNode != null) {
+        while (currentNode != this.nil) {
             currentParent = currentNode;
+            comparison = newElement.compareTo(currentNode);
 
-            if (newElement.compareTo(currentNode) >= 0) {
+            if (comparison == 0) {
+                currentNode.value = value;
+                return null;
+            } else if (comparison > 0) {
                 // Add to right subtree
                 currentNode = currentNode.rightChild;
             } else {
-                currentNode = currentParent.leftChild;
+                currentNode = currentNode.leftChild;
             }
         }
 
@@ -69,15 +103,16 @@ public class BinaryTreeMap<K extends Comparable, V> {
         newElement.parent = currentParent;
 
         // Set the correct child
-        if (currentParent == null) {
+        if (currentParent == this.nil) {
             this.root = newElement;
-        } else if (newElement.compareTo(currentParent) >= 0) {
+        } else if (comparison > 0) {
             // Insert to the right
             currentParent.rightChild = newElement;
         } else {
             currentParent.leftChild = newElement;
         }
 
+        this.updateSizesUpward(currentParent);
         this.size += 1;
 
         return newElement;
@@ -87,7 +122,157 @@ public class BinaryTreeMap<K extends Comparable, V> {
         this.insertHelper(key, value);
     }
 
-    private TreeElement lookUpTreeElement(K key) {
+    public void buildFromSorted(K[] keys, V[] values) {
+        /*
+        Replaces the contents of the tree with the given entries in O(n), instead of the O(n log n) (or
+        O(n^2) for a plain tree) of inserting them one at a time
+
+        The middle key becomes the root and each half is built the same way, so the result is perfectly
+        balanced. Every level is black except an incomplete last level, which is red, so the tree is a
+        valid red black tree as well
+
+        Parameters:
+            keys: The keys in strictly increasing order
+            values: The values, values[i] belongs to keys[i]
+         */
+
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Got " + keys.length + " keys but " + values.length + " values");
+        }
+
+        TreeElement[] elements = (TreeElement[]) new BinaryTreeMap.TreeElement[keys.length];
+
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0 && keys[i - 1].compareTo(keys[i]) >= 0) {
+                throw new IllegalArgumentException("Keys must be strictly increasing but key " + i + " is not");
+            }
+
+            elements[i] = new TreeElement(keys[i], values[i]);
+        }
+
+        this.buildFromElements(elements, elements.length);
+    }
+
+    public void putAll(K[] keys, V[] values) {
+        /*
+        Inserts a batch of entries, a key that is already present gets the new value, and of keys repeated
+        within the batch the last one wins as if they were inserted in order
+
+        The batch is sorted first. A batch that is large next to the tree is merged with the existing
+        entries in order and the whole tree is rebuilt in O(n + m log m), a small one is inserted key by
+        key in sorted order, which walks nearby paths of the tree one after another
+
+        Parameters:
+            keys: The keys to insert, in any order
+            values: The values, values[i] belongs to keys[i]
+         */
+
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Got " + keys.length + " keys but " + values.length + " values");
+        }
+
+        TreeElement[] batch = (TreeElement[]) new BinaryTreeMap.TreeElement[keys.length];
+
+        for (int i = 0; i < keys.length; i++) {
+            batch[i] = new TreeElement(keys[i], values[i]);
+        }
+
+        // A stable sort keeps repeated keys in batch order, then only the last of each run is kept
+        Arrays.sort(batch, (element1, element2) -> element1.compareTo(element2));
+        int batchSize = 0;
+
+        for (int i = 0; i < batch.length; i++) {
+            if (i + 1 < batch.length && batch[i].compareTo(batch[i + 1]) == 0) {
+                continue;
+            }
+
+            batch[batchSize] = batch[i];
+            batchSize += 1;
+        }
+
+        // Inserting costs about log2(n) steps per key, rebuilding about one step per key of both
+        int depth = 32 - Integer.numberOfLeadingZeros(this.size);
+
+        if ((long) batchSize * depth < this.size) {
+            for (int i = 0; i < batchSize; i++) {
+                this.insert(batch[i].key, batch[i].value);
+            }
+
+            return;
+        }
+
+        // Merge the existing elements and the batch, reusing the existing elements
+        TreeElement[] merged = (TreeElement[]) new BinaryTreeMap.TreeElement[this.size + batchSize];
+        TreeElement existing = this.size == 0 ? this.nil : this.min(this.root);
+        int numMerged = 0;
+        int next = 0;
+
+        while (existing != this.nil || next < batchSize) {
+            int comparison = existing == this.nil ? 1 : next == batchSize ? -1 : existing.compareTo(batch[next]);
+
+            if (comparison < 0) {
+                merged[numMerged] = existing;
+                existing = this.successor(existing);
+            } else if (comparison > 0) {
+                merged[numMerged] = batch[next];
+                next += 1;
+            } else {
+                existing.value = batch[next].value;
+                merged[numMerged] = existing;
+                existing = this.successor(existing);
+                next += 1;
+            }
+
+            numMerged += 1;
+        }
+
+        this.buildFromElements(merged, numMerged);
+    }
+
+    private void buildFromElements(TreeElement[] elements, int count) {
+        /*
+        Links the first count elements, which are in strictly increasing key order, into a perfectly
+        balanced tree that replaces the current one
+         */
+
+        // The depth of the last level if it is incomplete, those elements are red. A full last level
+        // is one deeper than any element and stays black
+        int redLevel = 0;
+
+        for (int remaining = count - 1; remaining >= 0; remaining = remaining / 2 - 1) {
+            redLevel += 1;
+        }
+
+        this.root = this.link(elements, 0, count - 1, this.nil, 0, redLevel);
+        this.size = count;
+    }
+
+    private TreeElement link(TreeElement[] elements, int low, int high, TreeElement parent, int depth,
+                             int redLevel) {
+        /*
+        Makes the middle of elements[low..high] the root of a subtree built from that range
+
+        Returns:
+            The root of the subtree, or nil if the range is empty
+         */
+
+        if (low > high) {
+            return this.nil;
+        }
+
+        int middle = (low + high) >>> 1;
+        TreeElement element = elements[middle];
+
+        element.parent = parent;
+        element.leftChild = this.link(elements, low, middle - 1, element, depth + 1, redLevel);
+        element.rightChild = this.link(elements, middle + 1, high, element, depth + 1, redLevel);
+        element.isRed = depth == redLevel;
+        element.subtreeSize = high - low + 1;
+
+        return element;
+    }
+
+    protected TreeElement lookUpTreeElement(K key) {
         /*
         Searches for key and outputs its Tree Node
 
@@ -100,15 +285,14 @@ public class BinaryTreeMap<K extends Comparable, V> {
          */
 
         TreeElement currentNode = this.root;
-        // A dummy node for comparisons
-        TreeElement dummyElement = new TreeElement(key, null);
 
-        while (currentNode != null) {
+        while (currentNode != this.nil) {
+            int comparison = key.compareTo(currentNode.key);
+
             // If this is the correct element return it
-            if (dummyElement.compareTo(currentNode) == 0) {
-                // Return the value
+            if (comparison == 0) {
                 return currentNode;
-            } else if (dummyElement.compareTo(currentNode) < 0) {
+            } else if (comparison < 0) {
                 // Search the left sub-tree
                 currentNode = currentNode.leftChild;
             } else {
@@ -119,14 +303,14 @@ public class BinaryTreeMap<K extends Comparable, V> {
         return null;
     }
 
-    private TreeElement min(TreeElement subTreeRoot) {
+    protected TreeElement min(TreeElement subTreeRoot) {
         /*
         Finds the minimum element of the sub-tree rooted at subTreeRoot
          */
 
         TreeElement currentNode = subTreeRoot;
 
-        while (currentNode.leftChild != null) {
+        while (currentNode.leftChild != this.nil) {
             currentNode = currentNode.leftChild;
         }
 
@@ -135,20 +319,20 @@ public class BinaryTreeMap<K extends Comparable, V> {
 
     public V min() {
         /*
-        Returns the node of min value in the tree
+        Returns the value of the min key in the tree, or null if the tree is empty
          */
 
-        return this.min(this.root).value;
+        return this.size == 0 ? null : this.min(this.root).value;
     }
 
-    private TreeElement max(TreeElement subTreeRoot) {
+    protected TreeElement max(TreeElement subTreeRoot) {
         /*
         Finds the element of maximum value in the sub-tree rooted at subTreeRoot
          */
 
         TreeElement currentNode = subTreeRoot;
 
-        while (currentNode.rightChild != null) {
+        while (currentNode.rightChild != this.nil) {
             currentNode = currentNode.rightChild;
         }
 
@@ -157,10 +341,10 @@ public class BinaryTreeMap<K extends Comparable, V> {
 
     public V max() {
         /*
-        Returns the maximum value in the tree
+        Returns the value of the max key in the tree, or null if the tree is empty
          */
 
-        return this.max(this.root).value;
+        return this.size == 0 ? null : this.max(this.root).value;
     }
 
     public V lookup(K key) {
@@ -175,7 +359,9 @@ public class BinaryTreeMap<K extends Comparable, V> {
             value: The value corresponding to the key if it exists
          */
 
-        return lookUpTreeElement(key).value;
+        TreeElement element = this.lookUpTreeElement(key);
+
+        return element == null ? null : element.value;
     }
 
     public V delete(K key) {
@@ -196,18 +382,24 @@ public class BinaryTreeMap<K extends Comparable, V> {
             return null;
         }
 
-        if (nodeToDelete.leftChild == null) {
+        // The lowest element whose subtree loses an element
+        TreeElement lowestChanged = nodeToDelete.parent;
+
+        if (nodeToDelete.leftChild == this.nil) {
             // Replace with right child
             this.transplant(nodeToDelete, nodeToDelete.rightChild);
-        } else if (nodeToDelete.rightChild == null) {
+        } else if (nodeToDelete.rightChild == this.nil) {
             // Otherwise replace with left child
             this.transplant(nodeToDelete, nodeToDelete.leftChild);
         } else {
             // Otherwise we have to get the correct child to replace
             // Find the min of the tree rooted at the node we want to delete's right subtree
             TreeElement replaceWith = this.min(nodeToDelete.rightChild);
+            lowestChanged = replaceWith;
 
             if (replaceWith.parent != nodeToDelete) {
+                lowestChanged = replaceWith.parent;
+
                 // If this isn't a direct child of the delete node we have to do a bit more work
                 this.transplant(replaceWith, replaceWith.rightChild);
                 replaceWith.rightChild = nodeToDelete.rightChild;
@@ -220,17 +412,18 @@ public class BinaryTreeMap<K extends Comparable, V> {
             replaceWith.leftChild.parent = replaceWith;
         }
 
+        this.updateSizesUpward(lowestChanged);
         this.size -= 1;
 
         return nodeToDelete.value;
     }
 
-    private void transplant(TreeElement firstNode, TreeElement secondNode) {
+    protected void transplant(TreeElement firstNode, TreeElement secondNode) {
         /*
         Replaces first node with second node
          */
 
-        if (firstNode.parent == null) {
+        if (firstNode.parent == this.nil) {
             this.root = secondNode;
         } else if (firstNode == firstNode.parent.leftChild) {
             // If this is a left child, replacement should also be
@@ -240,11 +433,292 @@ public class BinaryTreeMap<K extends Comparable, V> {
             firstNode.parent.rightChild = secondNode;
         }
 
+        // A sentinel gets a parent too, the red black delete fixup starts from it
         if (secondNode != null) {
             secondNode.parent = firstNode.parent;
         }
     }
 
+    protected int sizeOf(TreeElement node) {
+        return node == this.nil ? 0 : node.subtreeSize;
+    }
+
+    protected void updateSizesUpward(TreeElement node) {
+        /*
+        Recomputes the subtree sizes from node up to the root after an element was added or removed
+        below node, the sizes of everything under node must already be correct
+         */
+
+        if (!this.trackSizes) {
+            return;
+        }
+
+        while (node != this.nil) {
+            node.subtreeSize = this.sizeOf(node.leftChild) + this.sizeOf(node.rightChild) + 1;
+            node = node.parent;
+        }
+    }
+
+    protected TreeElement successor(TreeElement node) {
+        /*
+        Returns the element with the next larger key, or nil if node holds the max key
+         */
+
+        if (node.rightChild != this.nil) {
+            return this.min(node.rightChild);
+        }
+
+        // Climb until we leave a left subtree, that parent is the next key
+        TreeElement parent = node.parent;
+
+        while (parent != this.nil && node == parent.rightChild) {
+            node = parent;
+            parent = parent.parent;
+        }
+
+        return parent;
+    }
+
+    private TreeElement bound(K key, boolean below, boolean inclusive) {
+        /*
+        Finds the closest element to key on one side of it in a single walk down the tree
+
+        Parameters:
+            key: The key to search around
+            below: Whether to look for the largest key below key (true) or the smallest above it (false)
+            inclusive: Whether an element holding key itself qualifies
+
+        Returns:
+            The closest qualifying element, or nil if there is none
+         */
+
+        TreeElement best = this.nil;
+        TreeElement currentNode = this.root;
+
+        while (currentNode != this.nil) {
+            int comparison = key.compareTo(currentNode.key);
+
+            if (comparison == 0 && inclusive) {
+                return currentNode;
+            }
+
+            if (below ? comparison > 0 : comparison < 0) {
+                // This node qualifies, a closer one can only be further towards key
+                best = currentNode;
+                currentNode = below ? currentNode.rightChild : currentNode.leftChild;
+            } else {
+                currentNode = below ? currentNode.leftChild : currentNode.rightChild;
+            }
+        }
+
+        return best;
+    }
+
+    private K keyOf(TreeElement element) {
+        return element == this.nil ? null : element.key;
+    }
+
+    public K floor(K key) {
+        /*
+        Returns the largest key less than or equal to key, or null if there is none
+         */
+
+        return this.keyOf(this.bound(key, true, true));
+    }
+
+    public K ceiling(K key) {
+        /*
+        Returns the smallest key greater than or equal to key, or null if there is none
+         */
+
+        return this.keyOf(this.bound(key, false, true));
+    }
+
+    public K lower(K key) {
+        /*
+        Returns the largest key strictly less than key, or null if there is none
+         */
+
+        return this.keyOf(this.bound(key, true, false));
+    }
+
+    public K higher(K key) {
+        /*
+        Returns the smallest key strictly greater than key, or null if there is none
+         */
+
+        return this.keyOf(this.bound(key, false, false));
+    }
+
+    public int rank(K key) {
+        /*
+        Returns the number of keys in the tree strictly less than key, key itself need not be present
+
+        Takes O(height) time if sizes are tracked, otherwise the keys are walked in order from the min
+        in O(height + rank) time
+         */
+
+        if (this.trackSizes) {
+            int rank = 0;
+            TreeElement currentNode = this.root;
+
+            while (currentNode != this.nil) {
+                if (key.compareTo(currentNode.key) <= 0) {
+                    currentNode = currentNode.leftChild;
+                } else {
+                    // Everything in the left subtree and the node itself are smaller
+                    rank += this.sizeOf(currentNode.leftChild) + 1;
+                    currentNode = currentNode.rightChild;
+                }
+            }
+
+            return rank;
+        }
+
+        if (this.size == 0) {
+            return 0;
+        }
+
+        int rank = 0;
+
+        for (TreeElement element = this.min(this.root); element != this.nil; element = this.successor(element)) {
+            if (element.key.compareTo(key) >= 0) {
+                break;
+            }
+
+            rank += 1;
+        }
+
+        return rank;
+    }
+
+    public K select(int rank) {
+        /*
+        Returns the key with the given rank, i.e. the (rank + 1)-th smallest key
+
+        Takes O(height) time if sizes are tracked, otherwise the keys are walked in order from the min
+        in O(height + rank) time
+
+        Parameters:
+            rank: The number of keys smaller than the one to return
+
+        Returns:
+            null: If rank is negative or not smaller than the size of the tree
+            The key of that rank otherwise
+         */
+
+        if (rank < 0 || rank >= this.size) {
+            return null;
+        }
+
+        if (this.trackSizes) {
+            TreeElement currentNode = this.root;
+
+            while (true) {
+                int leftSize = this.sizeOf(currentNode.leftChild);
+
+                if (rank < leftSize) {
+                    currentNode = currentNode.leftChild;
+                } else if (rank == leftSize) {
+                    return currentNode.key;
+                } else {
+                    // Skip the left subtree and the node itself
+                    rank -= leftSize + 1;
+                    currentNode = currentNode.rightChild;
+                }
+            }
+        }
+
+        TreeElement element = this.min(this.root);
+
+        for (int i = 0; i < rank; i++) {
+            element = this.successor(element);
+        }
+
+        return element.key;
+    }
+
+    public int countInRange(K low, K high) {
+        /*
+        Returns the number of keys in [low, high], in O(height) time if sizes are tracked and
+        O(height + count) time otherwise
+         */
+
+        if (low.compareTo(high) > 0) {
+            return 0;
+        }
+
+        if (this.trackSizes) {
+            int count = this.rank(high) - this.rank(low);
+
+            return this.lookUpTreeElement(high) == null ? count : count + 1;
+        }
+
+        int count = 0;
+
+        for (K key : this.keys(low, high)) {
+            count += 1;
+        }
+
+        return count;
+    }
+
+    public Iterable<K> keys(K low, K high) {
+        /*
+        Returns the keys in [low, high] in increasing order
+
+        The keys are produced lazily by walking successors, so iterating over m keys takes O(log n + m)
+        time. The tree must not be modified while iterating
+
+        Parameters:
+            low: The smallest key to include
+            high: The largest key to include
+         */
+
+        return () -> new KeyIterator(this.bound(low, false, true), high);
+    }
+
+    public Iterable<K> keys() {
+        /*
+        Returns every key in the tree in increasing order
+         */
+
+        return () -> new KeyIterator(this.size == 0 ? this.nil : this.min(this.root), null);
+    }
+
+    // Walks successors from a start element up to an optional largest key
+    private class KeyIterator implements Iterator<K> {
+        private TreeElement next;
+        private final K high;
+
+        public KeyIterator(TreeElement start, K high) {
+            this.high = high;
+            this.next = this.inRange(start) ? start : BinaryTreeMap.this.nil;
+        }
+
+        private boolean inRange(TreeElement element) {
+            return element != BinaryTreeMap.this.nil && (this.high == null || element.key.compareTo(this.high) <= 0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != BinaryTreeMap.this.nil;
+        }
+
+        @Override
+        public K next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException("No keys left in the range");
+            }
+
+            K key = this.next.key;
+            TreeElement following = BinaryTreeMap.this.successor(this.next);
+            this.next = this.inRange(following) ? following : BinaryTreeMap.this.nil;
+
+            return key;
+        }
+    }
+
     public int getSize() {
         /*
         Returns the number of elements stored in the tree
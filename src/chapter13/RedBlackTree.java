@@ -3,43 +3,33 @@ import chapter12.BinaryTreeMap;
 
 public class RedBlackTree<K extends Comparable, V> extends BinaryTreeMap<K, V> {
 
-    // A class to hold the Tree Nodes
-    private class TreeElement {
-        public K key;
-        public V value;
-        public TreeElement parent;
-        public TreeElement rightChild;
-        public TreeElement leftChild;
-        public boolean isRed;
-
-
-        public TreeElement(K key, V value, TreeElement parent, TreeElement rightChild, TreeElement leftChild, boolean isRed) {
-            this.key = key;
-            this.value = value;
-            this.parent = parent;
-            this.rightChild = rightChild;
-            this.leftChild = leftChild;
-            this.isRed = isRed;
-        }
+    public RedBlackTree(boolean trackSizes) {
+        /*
+        Constructs a new red-black tree with no elements, every missing child is one black sentinel
 
-        public int compareTo(TreeElement other) {
-            /*
-            The standard compareTo method of comparables
-             */
+        Parameters:
+            trackSizes: Whether to maintain subtree sizes for O(log n) rank, select and countInRange
+         */
 
-            return this.key.compareTo(other.key);
-        }
+        super(trackSizes);
+        this.nil = new TreeElement(null, null);
+        this.nil.isRed = false;
+        this.root = this.nil;
     }
 
-    private int size;
-    private TreeElement root;
-    private TreeElement sentinel;
-
     public RedBlackTree() {
-        // Constructs a new red-black tree with no elements
-        this.size = 0;
-        this.root = null;
-        this.sentinel = new TreeElement(null, null, null, null, null, false);
+        this(false);
+    }
+
+    private void updateRotatedSizes(TreeElement oldTop, TreeElement newTop) {
+        /*
+        Fixes the sizes of the two elements a rotation swapped, the subtree as a whole keeps its size
+         */
+
+        if (this.trackSizes) {
+            newTop.subtreeSize = oldTop.subtreeSize;
+            oldTop.subtreeSize = this.sizeOf(oldTop.leftChild) + this.sizeOf(oldTop.rightChild) + 1;
+        }
     }
 
     private void rotateLeft(TreeElement node) {
@@ -52,7 +42,7 @@ public class RedBlackTree<K extends Comparable, V> extends BinaryTreeMap<K, V> {
         node.rightChild = newParent.leftChild;
 
         // Set the parent pointer for this swapped node
-        if (newParent.leftChild != this.sentinel) {
+        if (newParent.leftChild != this.nil) {
             newParent.leftChild.parent = node;
         }
 
@@ -60,7 +50,7 @@ public class RedBlackTree<K extends Comparable, V> extends BinaryTreeMap<K, V> {
         newParent.parent = node.parent;
 
         // Set the new parent's parent's pointers
-        if (node.parent == this.sentinel) {
+        if (node.parent == this.nil) {
             this.root = newParent;
         } else if (node == node.parent.leftChild) {
             node.parent.leftChild = newParent;
@@ -70,6 +60,8 @@ public class RedBlackTree<K extends Comparable, V> extends BinaryTreeMap<K, V> {
 
         newParent.leftChild = node;
         node.parent = newParent;
+
+        this.updateRotatedSizes(node, newParent);
     }
 
     private void rotateRight(TreeElement node) {
@@ -82,7 +74,7 @@ public class RedBlackTree<K extends Comparable, V> extends BinaryTreeMap<K, V> {
         node.leftChild = newParent.rightChild;
 
         // Set the parent pointer for this swapped node
-        if (newParent.rightChild != this.sentinel) {
+        if (newParent.rightChild != this.nil) {
             newParent.rightChild.parent = node;
         }
 
@@ -90,7 +82,7 @@ public class RedBlackTree<K extends Comparable, V> extends BinaryTreeMap<K, V> {
         newParent.parent = node.parent;
 
         // Set the new parent's parent's pointers
-        if (node.parent == this.sentinel) {
+        if (node.parent == this.nil) {
             this.root = newParent;
         } else if (node == node.parent.leftChild) {
             node.parent.leftChild = newParent;
@@ -100,6 +92,8 @@ public class RedBlackTree<K extends Comparable, V> extends BinaryTreeMap<K, V> {
 
         newParent.rightChild = node;
         node.parent = newParent;
+
+        this.updateRotatedSizes(node, newParent);
     }
 
     private void fixInsert(TreeElement node) {
@@ -171,50 +165,20 @@ public class RedBlackTree<K extends Comparable, V> extends BinaryTreeMap<K, V> {
     @Override
     public void insert(K key, V value) {
         /*
-        Inserts a key value pair into the tree
+        Inserts a key value pair into the tree, a key that is already present gets the new value
 
         Parameters:
             key: The key to be inserted
             value: The value associated with this key
          */
-        TreeElement newElement = new TreeElement(key, value, null, this.sentinel, this.sentinel, true);
-
-        // If this is the first element, just make it the root and return
-        if (this.getSize() == 0) {
-            this.root = newElement;
-            this.root.parent = this.sentinel;
-            this.root.isRed = false;
-            this.size += 1;
-            return;
-        }
-
-        TreeElement parentNode = null;
-        TreeElement currentNode = this.root;
 
-        // Find the correct place to put this new node
-        while (currentNode != this.sentinel) {
-            parentNode = currentNode;
+        TreeElement newElement = this.insertHelper(key, value);
 
-            if (newElement.compareTo(currentNode) > 0) {
-                // Move to the right subtree
-                currentNode = currentNode.rightChild;
-            } else {
-                currentNode = currentNode.leftChild;
-            }
+        // Only a new element can violate the red black properties, new elements start out red
+        if (newElement != null) {
+            newElement.isRed = true;
+            this.fixInsert(newElement);
         }
-
-        if (newElement.compareTo(parentNode) > 0) {
-            parentNode.rightChild = newElement;
-        } else {
-            parentNode.leftChild = newElement;
-        }
-
-        newElement.parent = parentNode;
-
-        // Fix the red black properties
-        this.fixInsert(newElement);
-
-        this.size += 1;
     }
 
     @Override
@@ -230,101 +194,130 @@ public class RedBlackTree<K extends Comparable, V> extends BinaryTreeMap<K, V> {
             value: The value associated with the key if the key is in the tree
          */
 
-        return null;
-    }
+        TreeElement nodeToDelete = this.lookUpTreeElement(key);
 
-    private TreeElement lookUpTreeElement(K key) {
-        /*
-        Searches for key and outputs its Tree Node
+        if (nodeToDelete == null) {
+            return null;
+        }
 
-        Parameters:
-            key: The key to look in the binary tree for
+        // The node actually removed from its place, its color decides whether a fixup is needed
+        TreeElement removedNode = nodeToDelete;
+        boolean removedWasRed = removedNode.isRed;
 
-        Returns:
-            null: If the key is not in the binary tree
-            TreeNode: The node that has this key in the tree
-         */
+        // The node that moves into the removed node's place, possibly the sentinel
+        TreeElement replacement;
 
-        TreeElement currentNode = this.root;
-        // A dummy node for comparisons
-        TreeElement dummyElement = new TreeElement(key, null, null, null, null, true);
-
-        while (currentNode != this.sentinel) {
-            // If this is the correct element return it
-            if (dummyElement.compareTo(currentNode) == 0) {
-                // Return the value
-                return currentNode;
-            } else if (dummyElement.compareTo(currentNode) < 0) {
-                // Search the left sub-tree
-                currentNode = currentNode.leftChild;
+        if (nodeToDelete.leftChild == this.nil) {
+            replacement = nodeToDelete.rightChild;
+            this.transplant(nodeToDelete, nodeToDelete.rightChild);
+        } else if (nodeToDelete.rightChild == this.nil) {
+            replacement = nodeToDelete.leftChild;
+            this.transplant(nodeToDelete, nodeToDelete.leftChild);
+        } else {
+            // Two children: the successor takes the node's place and color
+            removedNode = this.min(nodeToDelete.rightChild);
+            removedWasRed = removedNode.isRed;
+            replacement = removedNode.rightChild;
+
+            if (removedNode.parent == nodeToDelete) {
+                // Also covers a sentinel replacement, the fixup climbs from its parent
+                replacement.parent = removedNode;
             } else {
-                currentNode = currentNode.rightChild;
+                this.transplant(removedNode, removedNode.rightChild);
+                removedNode.rightChild = nodeToDelete.rightChild;
+                removedNode.rightChild.parent = removedNode;
             }
-        }
-
-        return null;
-    }
 
-    private TreeElement min(TreeElement subTreeRoot) {
-        /*
-        Finds the minimum element of the sub-tree rooted at subTreeRoot
-         */
+            this.transplant(nodeToDelete, removedNode);
+            removedNode.leftChild = nodeToDelete.leftChild;
+            removedNode.leftChild.parent = removedNode;
+            removedNode.isRed = nodeToDelete.isRed;
+        }
 
-        TreeElement currentNode = subTreeRoot;
+        // The replacement's parent is the lowest element that lost one, the sentinel's parent included
+        this.updateSizesUpward(replacement.parent);
 
-        while (currentNode.leftChild != this.sentinel) {
-            currentNode = currentNode.leftChild;
+        // Removing a black node leaves its paths one black short
+        if (!removedWasRed) {
+            this.fixDelete(replacement);
         }
 
-        return currentNode;
-    }
+        this.size -= 1;
 
-    public V min() {
-        /*
-        Returns the node of min value in the tree
-         */
-
-        return this.min(this.root).value;
+        return nodeToDelete.value;
     }
 
-    private TreeElement max(TreeElement subTreeRoot) {
+    private void fixDelete(TreeElement node) {
         /*
-        Finds the element of maximum value in the sub-tree rooted at subTreeRoot
-         */
+        Fixes the red black violations left by deleting a black node
 
-        TreeElement currentNode = subTreeRoot;
-
-        while (currentNode.rightChild != sentinel) {
-            currentNode = currentNode.rightChild;
-        }
-
-        return currentNode;
-    }
-
-    public V max() {
-        /*
-        Returns the maximum value in the tree
+        Parameters:
+            node: The element that took the deleted node's place and carries an extra black
          */
 
-        return this.max(this.root).value;
-    }
+        while (node != this.root && !node.isRed) {
+            if (node == node.parent.leftChild) {
+                TreeElement sibling = node.parent.rightChild;
 
-    public V lookup(K key) {
-        /*
-        Searches for key and outputs its value
+                if (sibling.isRed) {
+                    // A red sibling is rotated up so that the sibling becomes black
+                    sibling.isRed = false;
+                    node.parent.isRed = true;
+                    this.rotateLeft(node.parent);
+                    sibling = node.parent.rightChild;
+                }
 
-        Parameters:
-            key: The key to look in the binary tree for
+                if (!sibling.leftChild.isRed && !sibling.rightChild.isRed) {
+                    // Take one black off both sides and move the extra black up
+                    sibling.isRed = true;
+                    node = node.parent;
+                } else {
+                    if (!sibling.rightChild.isRed) {
+                        // Make the sibling's far child the red one
+                        sibling.leftChild.isRed = false;
+                        sibling.isRed = true;
+                        this.rotateRight(sibling);
+                        sibling = node.parent.rightChild;
+                    }
 
-        Returns:
-            null: If the key is not in the binary tree
-            value: The value corresponding to the key if it exists
-         */
+                    // The rotation gives this side the extra black it lacked
+                    sibling.isRed = node.parent.isRed;
+                    node.parent.isRed = false;
+                    sibling.rightChild.isRed = false;
+                    this.rotateLeft(node.parent);
+                    node = this.root;
+                }
+            } else {
+                // The mirror image for a right child
+                TreeElement sibling = node.parent.leftChild;
+
+                if (sibling.isRed) {
+                    sibling.isRed = false;
+                    node.parent.isRed = true;
+                    this.rotateRight(node.parent);
+                    sibling = node.parent.leftChild;
+                }
 
-        return lookUpTreeElement(key).value;
-    }
+                if (!sibling.rightChild.isRed && !sibling.leftChild.isRed) {
+                    sibling.isRed = true;
+                    node = node.parent;
+                } else {
+                    if (!sibling.leftChild.isRed) {
+                        sibling.rightChild.isRed = false;
+                        sibling.isRed = true;
+                        this.rotateLeft(sibling);
+                        sibling = node.parent.leftChild;
+                    }
+
+                    sibling.isRed = node.parent.isRed;
+                    node.parent.isRed = false;
+                    sibling.leftChild.isRed = false;
+                    this.rotateRight(node.parent);
+                    node = this.root;
+                }
+            }
+        }
 
-    public int getSize() {
-        return this.size;
+        node.isRed = false;
     }
 }
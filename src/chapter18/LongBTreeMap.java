@@ -0,0 +1,530 @@
+package chapter18;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+public class LongBTreeMap<V> {
+    /*
+    A BTreeMap specialized to long keys, e.g. timestamps or ids
+
+    The keys of every node are a long[], so a binary search within a node compares adjacent primitives
+    instead of following a reference and calling compareTo for each key, and no key is ever boxed
+     */
+
+    // The default maximum number of children per node
+    public static final int DEFAULT_FANOUT = BTreeMap.DEFAULT_FANOUT;
+
+    // The keys shared by both kinds of node
+    private static class Node {
+        public final long[] keys;
+        public int numKeys;
+
+        public Node(int capacity) {
+            this.keys = new long[capacity];
+        }
+    }
+
+    // Holds the entries, keys[i] maps to values[i]
+    private static class Leaf extends Node {
+        public final Object[] values;
+        public Leaf next;
+
+        public Leaf(int capacity) {
+            super(capacity);
+            this.values = new Object[capacity];
+        }
+    }
+
+    // Routes a key to children[i], where i is the number of separator keys less than or equal to it
+    private static class Internal extends Node {
+        public final Node[] children;
+
+        public Internal(int capacity) {
+            super(capacity);
+            this.children = new Node[capacity + 1];
+        }
+    }
+
+    private final int maxKeys;
+    private final int minKeys;
+    private final Leaf firstLeaf; // Splits and merges always keep the left node, so this stays the leftmost leaf
+    private Node root;
+    private int size;
+
+    // The separator a split hands up to the parent of the split node
+    private long promotedKey;
+
+    public LongBTreeMap(int fanout) {
+        /*
+        Builds an empty B+ tree
+
+        Parameters:
+            fanout: The maximum number of children per node, typically 32 to 128
+         */
+
+        if (fanout < 4) {
+            throw new IllegalArgumentException("A B+ tree needs a fanout of at least 4 but got " + fanout);
+        }
+
+        this.maxKeys = fanout - 1;
+        this.minKeys = this.maxKeys / 2;
+        this.firstLeaf = new Leaf(this.maxKeys + 1);
+        this.root = this.firstLeaf;
+        this.size = 0;
+    }
+
+    public LongBTreeMap() {
+        this(DEFAULT_FANOUT);
+    }
+
+    private static int childIndex(Node node, long key) {
+        /*
+        Returns the number of keys of node less than or equal to key, found by binary search
+         */
+
+        int low = 0;
+        int high = node.numKeys;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (node.keys[middle] <= key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private static void insertAt(Object[] array, int length, int index, Object element) {
+        System.arraycopy(array, index, array, index + 1, length - index);
+        array[index] = element;
+    }
+
+    private static void insertAt(long[] array, int length, int index, long element) {
+        System.arraycopy(array, index, array, index + 1, length - index);
+        array[index] = element;
+    }
+
+    private static void removeAt(long[] array, int length, int index) {
+        System.arraycopy(array, index + 1, array, index, length - index - 1);
+    }
+
+    private static void removeAt(Object[] array, int length, int index) {
+        // The vacated last slot is cleared so that the node does not keep removed entries alive
+        System.arraycopy(array, index + 1, array, index, length - index - 1);
+        array[length - 1] = null;
+    }
+
+    private Leaf findLeaf(long key) {
+        Node node = this.root;
+
+        while (node instanceof Internal) {
+            node = ((Internal) node).children[childIndex(node, key)];
+        }
+
+        return (Leaf) node;
+    }
+
+    public void insert(long key, V value) {
+        /*
+        Inserts a key value pair into the tree, a key that is already present gets the new value
+
+        Parameters:
+            key: The key to insert
+            value: The value associated with this key
+         */
+
+        Node sibling = this.insert(this.root, key, value);
+
+        // The root was split, so the tree grows a level at the top
+        if (sibling != null) {
+            Internal newRoot = new Internal(this.maxKeys + 1);
+            newRoot.keys[0] = this.promotedKey;
+            newRoot.children[0] = this.root;
+            newRoot.children[1] = sibling;
+            newRoot.numKeys = 1;
+            this.root = newRoot;
+        }
+    }
+
+    private Node insert(Node node, long key, V value) {
+        /*
+        Inserts into the subtree rooted at node
+
+        Returns:
+            null: If node did not have to be split
+            The new right sibling of node otherwise, its separator is left in promotedKey
+         */
+
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            int index = Arrays.binarySearch(leaf.keys, 0, leaf.numKeys, key);
+
+            if (index >= 0) {
+                leaf.values[index] = value;
+                return null;
+            }
+
+            index = -index - 1;
+            insertAt(leaf.keys, leaf.numKeys, index, key);
+            insertAt(leaf.values, leaf.numKeys, index, value);
+            leaf.numKeys += 1;
+            this.size += 1;
+
+            return leaf.numKeys > this.maxKeys ? this.splitLeaf(leaf, index) : null;
+        }
+
+        Internal internal = (Internal) node;
+        int childIndex = childIndex(internal, key);
+        Node sibling = this.insert(internal.children[childIndex], key, value);
+
+        if (sibling == null) {
+            return null;
+        }
+
+        insertAt(internal.keys, internal.numKeys, childIndex, this.promotedKey);
+        insertAt(internal.children, internal.numKeys + 1, childIndex + 1, sibling);
+        internal.numKeys += 1;
+
+        return internal.numKeys > this.maxKeys ? this.splitInternal(internal) : null;
+    }
+
+    private Leaf splitLeaf(Leaf leaf, int insertedIndex) {
+        /*
+        Moves the upper half of an overfull leaf into a new leaf linked after it
+         */
+
+        int leftKeys = leaf.numKeys / 2;
+
+        // Appending to the last leaf, e.g. ingesting increasing timestamps, keeps the left leaf full
+        // instead of leaving every leaf half empty
+        if (leaf.next == null && insertedIndex == leaf.numKeys - 1) {
+            leftKeys = leaf.numKeys - 1;
+        }
+
+        Leaf right = new Leaf(this.maxKeys + 1);
+        right.numKeys = leaf.numKeys - leftKeys;
+        System.arraycopy(leaf.keys, leftKeys, right.keys, 0, right.numKeys);
+        System.arraycopy(leaf.values, leftKeys, right.values, 0, right.numKeys);
+        Arrays.fill(leaf.values, leftKeys, leaf.numKeys, null);
+        leaf.numKeys = leftKeys;
+
+        right.next = leaf.next;
+        leaf.next = right;
+
+        // In a B+ tree the separator is a copy of the right leaf's first key
+        this.promotedKey = right.keys[0];
+
+        return right;
+    }
+
+    private Internal splitInternal(Internal internal) {
+        /*
+        Moves the keys and children above the middle key of an overfull node into a new node, the middle
+        key itself moves up to the parent
+         */
+
+        int middle = internal.numKeys / 2;
+        Internal right = new Internal(this.maxKeys + 1);
+        right.numKeys = internal.numKeys - middle - 1;
+        System.arraycopy(internal.keys, middle + 1, right.keys, 0, right.numKeys);
+        System.arraycopy(internal.children, middle + 1, right.children, 0, right.numKeys + 1);
+
+        this.promotedKey = internal.keys[middle];
+
+        Arrays.fill(internal.children, middle + 1, internal.numKeys + 1, null);
+        internal.numKeys = middle;
+
+        return right;
+    }
+
+    public V lookup(long key) {
+        /*
+        Searches for key and outputs its value
+
+        Parameters:
+            key: The key to look in the tree for
+
+        Returns:
+            null: If the key is not in the tree
+            value: The value corresponding to the key if it exists
+         */
+
+        Leaf leaf = this.findLeaf(key);
+        int index = Arrays.binarySearch(leaf.keys, 0, leaf.numKeys, key);
+
+        return index >= 0 ? (V) leaf.values[index] : null;
+    }
+
+    public V delete(long key) {
+        /*
+        Deletes a key from the tree and returns its value
+
+        Parameters:
+            key: The key to delete
+
+        Returns:
+            The value corresponding to the passed key, or null if this key isn't in the tree
+         */
+
+        V value = this.delete(this.root, key);
+
+        // Merges emptied the root, so the tree loses a level at the top
+        if (this.root instanceof Internal && this.root.numKeys == 0) {
+            this.root = ((Internal) this.root).children[0];
+        }
+
+        return value;
+    }
+
+    private V delete(Node node, long key) {
+        /*
+        Deletes from the subtree rooted at node, leaving node itself possibly underfull for its parent
+        to fix
+         */
+
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            int index = Arrays.binarySearch(leaf.keys, 0, leaf.numKeys, key);
+
+            if (index < 0) {
+                return null;
+            }
+
+            V value = (V) leaf.values[index];
+            removeAt(leaf.keys, leaf.numKeys, index);
+            removeAt(leaf.values, leaf.numKeys, index);
+            leaf.numKeys -= 1;
+            this.size -= 1;
+
+            return value;
+        }
+
+        Internal internal = (Internal) node;
+        int childIndex = childIndex(internal, key);
+        Node child = internal.children[childIndex];
+        int oldSize = this.size;
+        V value = this.delete(child, key);
+
+        if (this.size < oldSize && child.numKeys < this.minKeys) {
+            this.rebalance(internal, childIndex);
+        }
+
+        return value;
+    }
+
+    private void rebalance(Internal parent, int index) {
+        /*
+        Refills the underfull child at index by borrowing a key from a sibling that can spare one, or
+        otherwise merges it with a sibling
+         */
+
+        Node child = parent.children[index];
+        Node left = index > 0 ? parent.children[index - 1] : null;
+        Node right = index < parent.numKeys ? parent.children[index + 1] : null;
+
+        if (left != null && left.numKeys > this.minKeys) {
+            this.borrowFromLeft(parent, index, left, child);
+        } else if (right != null && right.numKeys > this.minKeys) {
+            this.borrowFromRight(parent, index, child, right);
+        } else if (left != null) {
+            this.merge(parent, index - 1, left, child);
+        } else {
+            this.merge(parent, index, child, right);
+        }
+    }
+
+    private void borrowFromLeft(Internal parent, int index, Node left, Node child) {
+        /*
+        Moves the last entry of left to the front of child, which is its right sibling
+         */
+
+        if (child instanceof Leaf) {
+            Leaf leftLeaf = (Leaf) left;
+            Leaf childLeaf = (Leaf) child;
+            insertAt(childLeaf.keys, childLeaf.numKeys, 0, leftLeaf.keys[leftLeaf.numKeys - 1]);
+            insertAt(childLeaf.values, childLeaf.numKeys, 0, leftLeaf.values[leftLeaf.numKeys - 1]);
+            childLeaf.numKeys += 1;
+            removeAt(leftLeaf.keys, leftLeaf.numKeys, leftLeaf.numKeys - 1);
+            removeAt(leftLeaf.values, leftLeaf.numKeys, leftLeaf.numKeys - 1);
+            leftLeaf.numKeys -= 1;
+
+            parent.keys[index - 1] = childLeaf.keys[0];
+        } else {
+            // The separator comes down into child and left's last key goes up in its place
+            Internal leftInternal = (Internal) left;
+            Internal childInternal = (Internal) child;
+            insertAt(childInternal.keys, childInternal.numKeys, 0, parent.keys[index - 1]);
+            insertAt(childInternal.children, childInternal.numKeys + 1, 0,
+                    leftInternal.children[leftInternal.numKeys]);
+            childInternal.numKeys += 1;
+
+            parent.keys[index - 1] = leftInternal.keys[leftInternal.numKeys - 1];
+            leftInternal.children[leftInternal.numKeys] = null;
+            leftInternal.numKeys -= 1;
+        }
+    }
+
+    private void borrowFromRight(Internal parent, int index, Node child, Node right) {
+        /*
+        Moves the first entry of right to the end of child, which is its left sibling
+         */
+
+        if (child instanceof Leaf) {
+            Leaf childLeaf = (Leaf) child;
+            Leaf rightLeaf = (Leaf) right;
+            childLeaf.keys[childLeaf.numKeys] = rightLeaf.keys[0];
+            childLeaf.values[childLeaf.numKeys] = rightLeaf.values[0];
+            childLeaf.numKeys += 1;
+            removeAt(rightLeaf.keys, rightLeaf.numKeys, 0);
+            removeAt(rightLeaf.values, rightLeaf.numKeys, 0);
+            rightLeaf.numKeys -= 1;
+
+            parent.keys[index] = rightLeaf.keys[0];
+        } else {
+            // The separator comes down into child and right's first key goes up in its place
+            Internal childInternal = (Internal) child;
+            Internal rightInternal = (Internal) right;
+            childInternal.keys[childInternal.numKeys] = parent.keys[index];
+            childInternal.children[childInternal.numKeys + 1] = rightInternal.children[0];
+            childInternal.numKeys += 1;
+
+            parent.keys[index] = rightInternal.keys[0];
+            removeAt(rightInternal.keys, rightInternal.numKeys, 0);
+            removeAt(rightInternal.children, rightInternal.numKeys + 1, 0);
+            rightInternal.numKeys -= 1;
+        }
+    }
+
+    private void merge(Internal parent, int separatorIndex, Node left, Node right) {
+        /*
+        Appends right to left and removes right and their separator from the parent
+         */
+
+        if (left instanceof Leaf) {
+            Leaf leftLeaf = (Leaf) left;
+            Leaf rightLeaf = (Leaf) right;
+            System.arraycopy(rightLeaf.keys, 0, leftLeaf.keys, leftLeaf.numKeys, rightLeaf.numKeys);
+            System.arraycopy(rightLeaf.values, 0, leftLeaf.values, leftLeaf.numKeys, rightLeaf.numKeys);
+            leftLeaf.numKeys += rightLeaf.numKeys;
+            leftLeaf.next = rightLeaf.next;
+        } else {
+            // Unlike in a leaf, the separator is not a copy of any key below, so it comes down
+            Internal leftInternal = (Internal) left;
+            Internal rightInternal = (Internal) right;
+            leftInternal.keys[leftInternal.numKeys] = parent.keys[separatorIndex];
+            System.arraycopy(rightInternal.keys, 0, leftInternal.keys, leftInternal.numKeys + 1,
+                    rightInternal.numKeys);
+            System.arraycopy(rightInternal.children, 0, leftInternal.children, leftInternal.numKeys + 1,
+                    rightInternal.numKeys + 1);
+            leftInternal.numKeys += rightInternal.numKeys + 1;
+        }
+
+        removeAt(parent.keys, parent.numKeys, separatorIndex);
+        removeAt(parent.children, parent.numKeys + 1, separatorIndex + 1);
+        parent.numKeys -= 1;
+    }
+
+    public V min() {
+        /*
+        Returns the value of the min key in the tree, or null if the tree is empty
+         */
+
+        return this.size == 0 ? null : (V) this.firstLeaf.values[0];
+    }
+
+    public V max() {
+        /*
+        Returns the value of the max key in the tree, or null if the tree is empty
+         */
+
+        if (this.size == 0) {
+            return null;
+        }
+
+        Node node = this.root;
+
+        while (node instanceof Internal) {
+            node = ((Internal) node).children[node.numKeys];
+        }
+
+        return (V) ((Leaf) node).values[node.numKeys - 1];
+    }
+
+    public PrimitiveIterator.OfLong keys(long low, long high) {
+        /*
+        Returns an iterator over the keys in [low, high] in increasing order, without boxing them
+
+        The scan finds the leaf of low once and then follows the leaf links, so iterating over m keys
+        takes O(log n + m) time. The tree must not be modified while iterating
+
+        Parameters:
+            low: The smallest key to include
+            high: The largest key to include
+         */
+
+        Leaf leaf = this.findLeaf(low);
+        int index = Arrays.binarySearch(leaf.keys, 0, leaf.numKeys, low);
+
+        return new KeyIterator(leaf, index >= 0 ? index : -index - 1, high);
+    }
+
+    public PrimitiveIterator.OfLong keys() {
+        /*
+        Returns an iterator over every key in the tree in increasing order
+         */
+
+        return new KeyIterator(this.firstLeaf, 0, Long.MAX_VALUE);
+    }
+
+    // Walks the linked leaves from a start position up to a largest key
+    private class KeyIterator implements PrimitiveIterator.OfLong {
+        private Leaf leaf;
+        private int index;
+        private final long high;
+
+        public KeyIterator(Leaf leaf, int index, long high) {
+            this.leaf = leaf;
+            this.index = index;
+            this.high = high;
+            this.skipExhaustedLeaves();
+        }
+
+        private void skipExhaustedLeaves() {
+            while (this.leaf != null && this.index == this.leaf.numKeys) {
+                this.leaf = this.leaf.next;
+                this.index = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.leaf != null && this.leaf.keys[this.index] <= this.high;
+        }
+
+        @Override
+        public long nextLong() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException("No keys left in the range");
+            }
+
+            long key = this.leaf.keys[this.index];
+            this.index += 1;
+            this.skipExhaustedLeaves();
+
+            return key;
+        }
+    }
+
+    public int getSize() {
+        /*
+        Returns the number of entries stored in the tree
+         */
+
+        return this.size;
+    }
+}
@@ -0,0 +1,281 @@
+package chapter6;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class BlockingHeap<T extends Comparable> {
+    /*
+    A priority queue that many threads can share, e.g. producers submitting jobs and a pool of workers
+    taking the most urgent one
+
+    Every operation runs on one Heap under one lock, so elements always come out in exact priority
+    order. Consumers block while the queue is empty and, if a capacity is given, producers block
+    while it is full, which pushes back on producers that outrun the workers. See MultiQueue for a
+    relaxed queue that scales to more threads
+     */
+
+    private final Heap<T> heap;
+    private final int capacity;
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final Condition notFull;
+
+    public BlockingHeap(int capacity, boolean maxHeap, int arity) {
+        /*
+        Builds an empty queue
+
+        Parameters:
+            capacity: The most elements the queue holds before put blocks and offer fails
+            maxHeap: Whether the largest (true) or smallest (false) element has the highest priority
+            arity: The number of children per node of the underlying heap, see Heap
+         */
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive but was " + capacity);
+        }
+
+        this.heap = new Heap<T>((T[]) new Comparable[0], maxHeap, arity);
+        this.capacity = capacity;
+        this.lock = new ReentrantLock();
+        this.notEmpty = this.lock.newCondition();
+        this.notFull = this.lock.newCondition();
+    }
+
+    public BlockingHeap(int capacity, boolean maxHeap) {
+        this(capacity, maxHeap, 2);
+    }
+
+    // A constructor for an unbounded queue, put never blocks
+    public BlockingHeap(boolean maxHeap) {
+        this(Integer.MAX_VALUE, maxHeap);
+    }
+
+    public void put(T element) throws InterruptedException {
+        /*
+        Adds an element, waiting for space if the queue is full
+
+        Parameters:
+            element: The element to add, it must not be null
+         */
+
+        checkNotNull(element);
+        this.lock.lockInterruptibly();
+
+        try {
+            while (this.heap.getSize() == this.capacity) {
+                this.notFull.await();
+            }
+
+            this.add(element);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public boolean offer(T element) {
+        /*
+        Adds an element if there is space for it right now
+
+        Returns:
+            Whether the element was added
+         */
+
+        checkNotNull(element);
+        this.lock.lock();
+
+        try {
+            if (this.heap.getSize() == this.capacity) {
+                return false;
+            }
+
+            this.add(element);
+
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public boolean offer(T element, long timeout, TimeUnit unit) throws InterruptedException {
+        /*
+        Adds an element, waiting up to the given time for space if the queue is full
+
+        Returns:
+            Whether the element was added before the timeout
+         */
+
+        checkNotNull(element);
+        long nanos = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+
+        try {
+            while (this.heap.getSize() == this.capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+
+                nanos = this.notFull.awaitNanos(nanos);
+            }
+
+            this.add(element);
+
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public T take() throws InterruptedException {
+        /*
+        Removes the element with the highest priority, waiting for one if the queue is empty
+         */
+
+        this.lock.lockInterruptibly();
+
+        try {
+            while (this.heap.isEmpty()) {
+                this.notEmpty.await();
+            }
+
+            return this.remove();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public T poll() {
+        /*
+        Removes the element with the highest priority, or returns null if the queue is empty
+         */
+
+        this.lock.lock();
+
+        try {
+            return this.heap.isEmpty() ? null : this.remove();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        /*
+        Removes the element with the highest priority, waiting up to the given time for one
+
+        Returns:
+            null: If the queue stayed empty until the timeout
+            The removed element otherwise
+         */
+
+        long nanos = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+
+        try {
+            while (this.heap.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+
+                nanos = this.notEmpty.awaitNanos(nanos);
+            }
+
+            return this.remove();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public int drainTo(Collection<? super T> out, int max) {
+        /*
+        Removes up to max elements in priority order under a single lock acquisition, so a worker can
+        take a batch of jobs without contending for the lock once per job
+
+        Parameters:
+            out: The collection receiving the elements
+            max: The most elements to remove
+
+        Returns:
+            The number of elements moved to out
+         */
+
+        this.lock.lock();
+
+        try {
+            int count = 0;
+
+            while (count < max && !this.heap.isEmpty()) {
+                out.add(this.heap.deleteHighestPriority());
+                count += 1;
+            }
+
+            // Several producers may fit now
+            if (count > 0) {
+                this.notFull.signalAll();
+            }
+
+            return count;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public T peek() {
+        /*
+        Returns the element with the highest priority without removing it, or null if the queue is empty
+         */
+
+        this.lock.lock();
+
+        try {
+            return this.heap.returnHighestPriority();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public int getSize() {
+        this.lock.lock();
+
+        try {
+            return this.heap.getSize();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return this.getSize() == 0;
+    }
+
+    public int remainingCapacity() {
+        return this.capacity - this.getSize();
+    }
+
+    private static void checkNotNull(Object element) {
+        // The heap reports emptiness as null, so a null element could not be told apart from it
+        if (element == null) {
+            throw new NullPointerException("Null elements are not supported, poll reports an empty queue as null");
+        }
+    }
+
+    private void add(T element) {
+        /*
+        Adds an element and wakes one waiting consumer, the lock must be held
+         */
+
+        this.heap.addElement(element);
+        this.notEmpty.signal();
+    }
+
+    private T remove() {
+        /*
+        Removes the top element and wakes one waiting producer, the lock must be held and the heap non-empty
+         */
+
+        T top = this.heap.deleteHighestPriority();
+        this.notFull.signal();
+
+        return top;
+    }
+}
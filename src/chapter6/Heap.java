@@ -6,9 +6,39 @@ public class Heap<T extends Comparable> {
     private int heapSize;
     private boolean isMaxHeap = true;
 
+    // The number of children per node, laid out next to each other in the array
+    private final int arity;
+
     public Heap(T[] startingValues) {
+        this(startingValues, true);
+    }
+
+    public Heap(T[] startingValues, boolean maxHeap) {
+        this(startingValues, maxHeap, 2);
+    }
+
+    public Heap(T[] startingValues, boolean maxHeap, int arity) {
+        /*
+        Builds a d-ary heap from the given values
+
+        The children of node i are stored contiguously at arity * i + 1 .. arity * i + arity, so a sink
+        step reads one run of adjacent references. A wider heap is shallower (log_d n levels), trading
+        more comparisons per level for fewer cache misses, which pays off for large heaps of timers
+
+        Parameters:
+            startingValues: The values to build the heap from, they are copied
+            maxHeap: Whether the largest (true) or smallest (false) element has the highest priority
+            arity: The number of children per node, e.g. 2, 4 or 8
+         */
+
+        if (arity < 2) {
+            throw new IllegalArgumentException("A heap needs at least 2 children per node but arity was " + arity);
+        }
+
         this.heap = (T[]) new Comparable[startingValues.length * 4];
         this.heapSize = startingValues.length;
+        this.isMaxHeap = maxHeap;
+        this.arity = arity;
 
         // Add the values to the heap
         for (int i = 0; i < this.heapSize; i++) {
@@ -20,13 +50,7 @@ public class Heap<T extends Comparable> {
         this.heapify();
     }
 
-    public Heap(T[] startingValues, boolean maxHeap) {
-        this(startingValues);
-        this.isMaxHeap = maxHeap;
-        this.heapify();
-    }
-
-    private static int parent(int index) {
+    private int parent(int index) {
         /*
         Returns the array index of the parent given the index of a child
 
@@ -37,72 +61,27 @@ public class Heap<T extends Comparable> {
             The index of the parent node
          */
 
-        // Parent of root is itself
-        if (index == 0) {
-            return 0;
-        }
-
-        return Math.floorDiv(index + 1, 2) - 1  ;
-    }
-
-    private int leftChild(int index) {
-        /*
-        Returns the left child of the node with index i
-
-        Parameters:
-            index: The index of the parent node in the underlying array
-
-        Returns:
-            The index of the left child of the parent node at i
-         */
-
-        int childIndex = 2 * (index + 1) - 1;
-
-        return childIndex > this.heapSize - 1 ? index : childIndex;
+        return (index - 1) / this.arity;
     }
 
-    private int rightChild(int index) {
+    private int firstChild(int index) {
         /*
-        Returns the right child of the node with index i
-
-        Parameters:
-            index: The index of the parent node in the underlying array
-
-        Returns:
-            The index of the right child of the parent node at i
+        Returns the index of the first of the (up to arity) children of the node with index i, which may
+        lie beyond the end of the heap
          */
 
-        int childIndex = 2 * (index + 1);
-
-        return childIndex > this.heapSize - 1 ? index : childIndex;
+        return this.arity * index + 1;
     }
 
-    private int compareElements(int index1, int index2) {
+    private boolean higherPriority(T element1, T element2) {
         /*
-        Compares two elements for priority in heap as we may be working with a min or max heap
-
-        Parameters:
-            index1: The index of the first element in the compare query
-            index2: The index of the second element in the compare query
-
-        Returns:
-            -1 if index1 has lower priority than index2
-            0 if index1 and index 2 have equal priorities
-            1 if index1 has higher priority than index2
+        Returns whether element1 has strictly higher priority than element2, as we may be working with a
+        min or max heap
          */
-        if (index1 == index2) {
-            return 0;
-        }
 
-        int comparison = this.heap[index1].compareTo(this.heap[index2]);
+        int comparison = element1.compareTo(element2);
 
-        if (this.isMaxHeap) {
-            // If this is a max heap the compareTo method will work already
-            return comparison;
-        } else {
-            // If this is a min heap we must flip priorities so we multiply by -1
-            return -1 * comparison;
-        }
+        return this.isMaxHeap ? comparison > 0 : comparison < 0;
     }
 
     private void swap(int index1, int index2) {
@@ -119,22 +98,38 @@ public class Heap<T extends Comparable> {
         /*
         Sinks the node in the selected index as far as possible in the heap
 
+        Each level finds the highest priority child in a single scan over the contiguous children, and
+        the sinking element is only written once it has found its place
+
         Parameters:
             index: The index of the node we wish to sink
          */
 
-        while (compareElements(index, leftChild(index)) < 0 || compareElements(index, rightChild(index)) < 0) {
-            // While the index is less than one of its children
-            if (compareElements(leftChild(index), rightChild(index)) > 0) {
-                // Left child is bigger, swap with this element
-                swap(index, leftChild(index));
-                index = leftChild(index);
-            } else {
-                // Right child is bigger, swap with that element
-                swap(index, rightChild(index));
-                index = rightChild(index);
+        T element = this.heap[index];
+        int child = firstChild(index);
+
+        while (child < this.heapSize) {
+            // Find the best of this node's children
+            int best = child;
+            int lastChild = Math.min(child + this.arity, this.heapSize);
+
+            for (int i = child + 1; i < lastChild; i++) {
+                if (higherPriority(this.heap[i], this.heap[best])) {
+                    best = i;
+                }
+            }
+
+            if (!higherPriority(this.heap[best], element)) {
+                break;
             }
+
+            // Move the child up instead of swapping
+            this.heap[index] = this.heap[best];
+            index = best;
+            child = firstChild(index);
         }
+
+        this.heap[index] = element;
     }
 
     private void swim(int index) {
@@ -145,19 +140,27 @@ public class Heap<T extends Comparable> {
             index: The index of the node to swim
          */
 
-        while (compareElements(index, parent(index)) > 0) {
-            // Swap this element with its parent
-            swap(index, parent(index));
+        T element = this.heap[index];
+
+        while (index > 0 && higherPriority(element, this.heap[parent(index)])) {
+            // Move the parent down into the hole
+            this.heap[index] = this.heap[parent(index)];
             index = parent(index);
         }
+
+        this.heap[index] = element;
     }
 
     private void heapify() {
         /*
-        Makes the current heap into a max heap
+        Makes the current heap into a max (or min) heap, sinking every node that has children
          */
 
-        for (int i = this.heapSize; i >= 0; i--) {
+        if (this.heapSize < 2) {
+            return;
+        }
+
+        for (int i = parent(this.heapSize - 1); i >= 0; i--) {
             sink(i);
         }
     }
@@ -210,8 +213,16 @@ public class Heap<T extends Comparable> {
         this.heapSize += 1;
     }
 
+    public int getSize() {
+        return this.heapSize;
+    }
+
+    public boolean isEmpty() {
+        return this.heapSize == 0;
+    }
+
     public T returnHighestPriority() {
-        return this.heap[0];
+        return this.heapSize == 0 ? null : this.heap[0];
     }
 
     public T deleteHighestPriority() {
@@ -224,11 +235,14 @@ public class Heap<T extends Comparable> {
         // Swap the top and last element
         swap(0, this.heapSize - 1);
 
-        // Decrement heap size
+        // Decrement heap size and release the vacated slot
         this.heapSize -= 1;
+        this.heap[this.heapSize] = null;
 
         // Finally, sink the swapped top
-        sink(0);
+        if (this.heapSize > 0) {
+            sink(0);
+        }
 
         // If our new heap size is under a quarter of the array length, halve the array
         if (this.heapSize < this.heap.length / 4) {
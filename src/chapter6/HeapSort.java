@@ -3,22 +3,605 @@ package chapter6;
 public class HeapSort<T extends Comparable> {
 
     public T[] heapSort(T[] inputArr, boolean ascending) {
-        Heap<T> heap;
+        /*
+        Sorts the array in place by building a max heap inside it and repeatedly swapping the maximum
+        behind the shrinking heap, so no memory beyond the array itself is used
 
-        if (ascending) {
-            // Construct a minPQ
-            heap = new Heap<T>(inputArr, false);
-        } else {
-            heap = new Heap<T>(inputArr, true);
+        Parameters:
+            inputArr: The array to sort
+            ascending: Whether to sort from smallest to largest element
+
+        Returns:
+            The same array, sorted
+         */
+
+        if (inputArr.length > 1) {
+            heapSortRange(inputArr, 0, inputArr.length - 1);
+        }
+
+        if (!ascending) {
+            reverse(inputArr);
+        }
+
+        return inputArr;
+    }
+
+    public T[] bottomUpHeapSort(T[] inputArr, boolean ascending) {
+        /*
+        Sorts the array in place like heapSort, but sinks each element with the bottom-up method: the
+        path of larger children is followed all the way down to a leaf with one comparison per level,
+        and the element is then placed by climbing back up. Elements swapped to the root come from
+        the bottom of the heap and belong near it, so the climb is short and the sort needs about half
+        as many comparisons, which pays off when comparing is expensive
+
+        Parameters:
+            inputArr: The array to sort
+            ascending: Whether to sort from smallest to largest element
+
+        Returns:
+            The same array, sorted
+         */
+
+        int heapSize = inputArr.length;
+
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            bottomUpSink(inputArr, i, heapSize);
+        }
+
+        while (heapSize > 1) {
+            heapSize -= 1;
+
+            T temp = inputArr[0];
+            inputArr[0] = inputArr[heapSize];
+            inputArr[heapSize] = temp;
+
+            bottomUpSink(inputArr, 0, heapSize);
+        }
+
+        if (!ascending) {
+            reverse(inputArr);
+        }
+
+        return inputArr;
+    }
+
+    public static void heapSortRange(Comparable[] array, int low, int high) {
+        /*
+        Sorts array[low..high] (inclusive) in ascending order in place, by building a max heap over the
+        range with the same sink step as Heap and repeatedly swapping its top behind the heap
+
+        Parameters:
+            array: The array containing the range to sort
+            low: The lowest index to sort (inclusive)
+            high: The highest index to sort (inclusive)
+         */
+
+        int heapSize = high - low + 1;
+
+        // Heapify the range bottom up
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            sinkInRange(array, low, i, heapSize);
+        }
+
+        // Move the current maximum behind the shrinking heap
+        while (heapSize > 1) {
+            heapSize -= 1;
+
+            Comparable temp = array[low];
+            array[low] = array[low + heapSize];
+            array[low + heapSize] = temp;
+
+            sinkInRange(array, low, 0, heapSize);
+        }
+    }
+
+    private static void sinkInRange(Comparable[] array, int offset, int index, int heapSize) {
+        /*
+        Sinks the node at heap index as far as possible in the max heap stored at array[offset..]
+
+        Parameters:
+            array: The array holding the heap
+            offset: The array index of the heap's root
+            index: The heap index of the node to sink
+            heapSize: The number of elements in the heap
+         */
+
+        Comparable element = array[offset + index];
+        int child = 2 * index + 1;
+
+        while (child < heapSize) {
+            // Pick the larger child
+            if (child + 1 < heapSize && array[offset + child + 1].compareTo(array[offset + child]) > 0) {
+                child += 1;
+            }
+
+            if (array[offset + child].compareTo(element) <= 0) {
+                break;
+            }
+
+            // Move the child up instead of swapping, the sinking element is written once at the end
+            array[offset + index] = array[offset + child];
+            index = child;
+            child = 2 * index + 1;
+        }
+
+        array[offset + index] = element;
+    }
+
+    private static void bottomUpSink(Comparable[] array, int index, int heapSize) {
+        /*
+        Sinks the node at index in the max heap array[0..heapSize) with the bottom-up method, using one
+        comparison per level on the way down and usually only a few on the way back up
+         */
+
+        Comparable element = array[index];
+        int leaf = index;
+        int child = 2 * leaf + 1;
+
+        // Follow the larger child down to a leaf
+        while (child < heapSize) {
+            if (child + 1 < heapSize && array[child].compareTo(array[child + 1]) < 0) {
+                child += 1;
+            }
+
+            leaf = child;
+            child = 2 * leaf + 1;
+        }
+
+        // Climb back up to the first node that is not smaller than the element
+        while (leaf > index && array[leaf].compareTo(element) < 0) {
+            leaf = (leaf - 1) / 2;
+        }
+
+        // Put the element there and shift every node above it on the path up one level
+        Comparable displaced = element;
+
+        while (leaf > index) {
+            Comparable temp = array[leaf];
+            array[leaf] = displaced;
+            displaced = temp;
+            leaf = (leaf - 1) / 2;
+        }
+
+        array[index] = displaced;
+    }
+
+    private static void reverse(Object[] array) {
+        for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+            Object temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    public static int[] heapSort(int[] array, boolean ascending) {
+        /*
+        Sorts the array in place with heapsort, see the Comparable[] version
+         */
+
+        if (array.length > 1) {
+            heapSortRange(array, 0, array.length - 1);
+        }
+
+        if (!ascending) {
+            reverse(array);
+        }
+
+        return array;
+    }
+
+    public static int[] bottomUpHeapSort(int[] array, boolean ascending) {
+        /*
+        Sorts the array in place with bottom-up heapsort, see the Comparable[] version
+         */
+
+        int heapSize = array.length;
+
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            bottomUpSink(array, i, heapSize);
+        }
+
+        while (heapSize > 1) {
+            heapSize -= 1;
+
+            int temp = array[0];
+            array[0] = array[heapSize];
+            array[heapSize] = temp;
+
+            bottomUpSink(array, 0, heapSize);
+        }
+
+        if (!ascending) {
+            reverse(array);
+        }
+
+        return array;
+    }
+
+    public static void heapSortRange(int[] array, int low, int high) {
+        /*
+        Sorts array[low..high] (inclusive) in ascending order in place, see the Comparable[] version
+         */
+
+        int heapSize = high - low + 1;
+
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            sinkInRange(array, low, i, heapSize);
+        }
+
+        while (heapSize > 1) {
+            heapSize -= 1;
+
+            int temp = array[low];
+            array[low] = array[low + heapSize];
+            array[low + heapSize] = temp;
+
+            sinkInRange(array, low, 0, heapSize);
+        }
+    }
+
+    private static void sinkInRange(int[] array, int offset, int index, int heapSize) {
+        int element = array[offset + index];
+        int child = 2 * index + 1;
+
+        while (child < heapSize) {
+            if (child + 1 < heapSize && array[offset + child] < array[offset + child + 1]) {
+                child += 1;
+            }
+
+            if (element >= array[offset + child]) {
+                break;
+            }
+
+            array[offset + index] = array[offset + child];
+            index = child;
+            child = 2 * index + 1;
+        }
+
+        array[offset + index] = element;
+    }
+
+    private static void bottomUpSink(int[] array, int index, int heapSize) {
+        int element = array[index];
+        int leaf = index;
+        int child = 2 * leaf + 1;
+
+        // Follow the larger child down to a leaf
+        while (child < heapSize) {
+            if (child + 1 < heapSize && array[child] < array[child + 1]) {
+                child += 1;
+            }
+
+            leaf = child;
+            child = 2 * leaf + 1;
+        }
+
+        // Climb back up to the first node that is not smaller than the element
+        while (leaf > index && array[leaf] < element) {
+            leaf = (leaf - 1) / 2;
+        }
+
+        // Put the element there and shift every node above it on the path up one level
+        int displaced = element;
+
+        while (leaf > index) {
+            int temp = array[leaf];
+            array[leaf] = displaced;
+            displaced = temp;
+            leaf = (leaf - 1) / 2;
+        }
+
+        array[index] = displaced;
+    }
+
+    private static void reverse(int[] array) {
+        for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+            int temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    public static long[] heapSort(long[] array, boolean ascending) {
+        /*
+        Sorts the array in place with heapsort, see the Comparable[] version
+         */
+
+        if (array.length > 1) {
+            heapSortRange(array, 0, array.length - 1);
+        }
+
+        if (!ascending) {
+            reverse(array);
+        }
+
+        return array;
+    }
+
+    public static long[] bottomUpHeapSort(long[] array, boolean ascending) {
+        /*
+        Sorts the array in place with bottom-up heapsort, see the Comparable[] version
+         */
+
+        int heapSize = array.length;
+
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            bottomUpSink(array, i, heapSize);
+        }
+
+        while (heapSize > 1) {
+            heapSize -= 1;
+
+            long temp = array[0];
+            array[0] = array[heapSize];
+            array[heapSize] = temp;
+
+            bottomUpSink(array, 0, heapSize);
+        }
+
+        if (!ascending) {
+            reverse(array);
+        }
+
+        return array;
+    }
+
+    public static void heapSortRange(long[] array, int low, int high) {
+        /*
+        Sorts array[low..high] (inclusive) in ascending order in place, see the Comparable[] version
+         */
+
+        int heapSize = high - low + 1;
+
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            sinkInRange(array, low, i, heapSize);
+        }
+
+        while (heapSize > 1) {
+            heapSize -= 1;
+
+            long temp = array[low];
+            array[low] = array[low + heapSize];
+            array[low + heapSize] = temp;
+
+            sinkInRange(array, low, 0, heapSize);
+        }
+    }
+
+    private static void sinkInRange(long[] array, int offset, int index, int heapSize) {
+        long element = array[offset + index];
+        int child = 2 * index + 1;
+
+        while (child < heapSize) {
+            if (child + 1 < heapSize && array[offset + child] < array[offset + child + 1]) {
+                child += 1;
+            }
+
+            if (element >= array[offset + child]) {
+                break;
+            }
+
+            array[offset + index] = array[offset + child];
+            index = child;
+            child = 2 * index + 1;
+        }
+
+        array[offset + index] = element;
+    }
+
+    private static void bottomUpSink(long[] array, int index, int heapSize) {
+        long element = array[index];
+        int leaf = index;
+        int child = 2 * leaf + 1;
+
+        // Follow the larger child down to a leaf
+        while (child < heapSize) {
+            if (child + 1 < heapSize && array[child] < array[child + 1]) {
+                child += 1;
+            }
+
+            leaf = child;
+            child = 2 * leaf + 1;
+        }
+
+        // Climb back up to the first node that is not smaller than the element
+        while (leaf > index && array[leaf] < element) {
+            leaf = (leaf - 1) / 2;
         }
 
-        T[] sortedArr = (T[]) new Comparable[inputArr.length];
+        // Put the element there and shift every node above it on the path up one level
+        long displaced = element;
+
+        while (leaf > index) {
+            long temp = array[leaf];
+            array[leaf] = displaced;
+            displaced = temp;
+            leaf = (leaf - 1) / 2;
+        }
+
+        array[index] = displaced;
+    }
+
+    private static void reverse(long[] array) {
+        for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+            long temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    public static double[] heapSort(double[] array, boolean ascending) {
+        /*
+        Sorts the array in place with heapsort, see the Comparable[] version
+
+        Elements are ordered as by Double.compare, so -0.0 sorts below 0.0 and NaN above everything
+         */
+
+        if (array.length > 1) {
+            heapSortRange(array, 0, array.length - 1);
+        }
+
+        if (!ascending) {
+            reverse(array);
+        }
+
+        return array;
+    }
+
+    public static double[] bottomUpHeapSort(double[] array, boolean ascending) {
+        /*
+        Sorts the array in place with bottom-up heapsort, see the Comparable[] version
+         */
+
+        int heapSize = array.length;
+
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            bottomUpSink(array, i, heapSize);
+        }
+
+        while (heapSize > 1) {
+            heapSize -= 1;
+
+            double temp = array[0];
+            array[0] = array[heapSize];
+            array[heapSize] = temp;
+
+            bottomUpSink(array, 0, heapSize);
+        }
+
+        if (!ascending) {
+            reverse(array);
+        }
+
+        return array;
+    }
+
+    public static void heapSortRange(double[] array, int low, int high) {
+        /*
+        Sorts array[low..high] (inclusive) in ascending order in place, see the Comparable[] version
+         */
+
+        int heapSize = high - low + 1;
+
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            sinkInRange(array, low, i, heapSize);
+        }
+
+        while (heapSize > 1) {
+            heapSize -= 1;
+
+            double temp = array[low];
+            array[low] = array[low + heapSize];
+            array[low + heapSize] = temp;
+
+            sinkInRange(array, low, 0, heapSize);
+        }
+    }
+
+    private static void sinkInRange(double[] array, int offset, int index, int heapSize) {
+        double element = array[offset + index];
+        int child = 2 * index + 1;
+
+        while (child < heapSize) {
+            if (child + 1 < heapSize && Double.compare(array[offset + child], array[offset + child + 1]) < 0) {
+                child += 1;
+            }
+
+            if (Double.compare(element, array[offset + child]) >= 0) {
+                break;
+            }
+
+            array[offset + index] = array[offset + child];
+            index = child;
+            child = 2 * index + 1;
+        }
+
+        array[offset + index] = element;
+    }
+
+    private static void bottomUpSink(double[] array, int index, int heapSize) {
+        double element = array[index];
+        int leaf = index;
+        int child = 2 * leaf + 1;
+
+        // Follow the larger child down to a leaf
+        while (child < heapSize) {
+            if (child + 1 < heapSize && Double.compare(array[child], array[child + 1]) < 0) {
+                child += 1;
+            }
+
+            leaf = child;
+            child = 2 * leaf + 1;
+        }
+
+        // Climb back up to the first node that is not smaller than the element
+        while (leaf > index && Double.compare(array[leaf], element) < 0) {
+            leaf = (leaf - 1) / 2;
+        }
+
+        // Put the element there and shift every node above it on the path up one level
+        double displaced = element;
+
+        while (leaf > index) {
+            double temp = array[leaf];
+            array[leaf] = displaced;
+            displaced = temp;
+            leaf = (leaf - 1) / 2;
+        }
+
+        array[index] = displaced;
+    }
+
+    private static void reverse(double[] array) {
+        for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+            double temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    public static void heapSortRange(float[] array, int low, int high) {
+        /*
+        Sorts array[low..high] (inclusive) in ascending order in place, see the Comparable[] version
+
+        Elements are ordered as by Float.compare, so -0.0 sorts below 0.0 and NaN above everything
+         */
+
+        int heapSize = high - low + 1;
+
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            sinkInRange(array, low, i, heapSize);
+        }
+
+        while (heapSize > 1) {
+            heapSize -= 1;
+
+            float temp = array[low];
+            array[low] = array[low + heapSize];
+            array[low + heapSize] = temp;
+
+            sinkInRange(array, low, 0, heapSize);
+        }
+    }
+
+    private static void sinkInRange(float[] array, int offset, int index, int heapSize) {
+        float element = array[offset + index];
+        int child = 2 * index + 1;
+
+        while (child < heapSize) {
+            if (child + 1 < heapSize && Float.compare(array[offset + child], array[offset + child + 1]) < 0) {
+                child += 1;
+            }
+
+            if (Float.compare(element, array[offset + child]) >= 0) {
+                break;
+            }
 
-        for (int i = 0; i < sortedArr.length; i++) {
-            // Append the next element
-            sortedArr[i] = heap.deleteHighestPriority();
+            array[offset + index] = array[offset + child];
+            index = child;
+            child = 2 * index + 1;
         }
 
-        return sortedArr;
+        array[offset + index] = element;
     }
 }
@@ -0,0 +1,314 @@
+package chapter6;
+
+public class IndexedHeap<T extends Comparable> {
+    /*
+    A d-ary heap of keys attached to int handles 0..capacity-1, e.g. the vertices of a graph
+
+    A position map records where each handle sits in the heap, so a handle's key can be changed or
+    removed in O(log n) without scanning. Dijkstra style algorithms can then decrease the distance of
+    a vertex in place instead of inserting duplicates
+     */
+
+    private final T[] keys;         // The key of each handle
+    private final int[] heap;       // The handles, in heap order
+    private final int[] positions;  // The heap position of each handle, or -1 if it is absent
+    private final boolean isMaxHeap;
+    private final int arity;
+    private int heapSize;
+
+    public IndexedHeap(int capacity, boolean maxHeap, int arity) {
+        /*
+        Builds an empty indexed heap
+
+        Parameters:
+            capacity: The number of handles, handles are 0..capacity-1
+            maxHeap: Whether the largest (true) or smallest (false) key has the highest priority
+            arity: The number of children per node, see Heap
+         */
+
+        if (arity < 2) {
+            throw new IllegalArgumentException("A heap needs at least 2 children per node but arity was " + arity);
+        }
+
+        this.keys = (T[]) new Comparable[capacity];
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        this.isMaxHeap = maxHeap;
+        this.arity = arity;
+
+        for (int i = 0; i < capacity; i++) {
+            this.positions[i] = -1;
+        }
+    }
+
+    public IndexedHeap(int capacity, boolean maxHeap) {
+        this(capacity, maxHeap, 2);
+    }
+
+    // A constructor for a binary min heap, the usual choice for shortest paths
+    public IndexedHeap(int capacity) {
+        this(capacity, false);
+    }
+
+    public void insert(int handle, T key) {
+        /*
+        Adds a handle with the given key
+
+        Parameters:
+            handle: A handle in 0..capacity-1 that is not already in the heap
+            key: The key (priority) of the handle
+         */
+
+        this.checkHandle(handle);
+
+        if (this.contains(handle)) {
+            throw new IllegalArgumentException("Handle " + handle + " is already in the heap");
+        }
+
+        this.keys[handle] = key;
+        this.heap[this.heapSize] = handle;
+        this.positions[handle] = this.heapSize;
+        this.heapSize += 1;
+
+        this.swim(this.heapSize - 1);
+    }
+
+    public boolean contains(int handle) {
+        this.checkHandle(handle);
+
+        return this.positions[handle] != -1;
+    }
+
+    public T keyOf(int handle) {
+        /*
+        Returns the key of a handle, or null if the handle is not in the heap
+         */
+
+        return this.contains(handle) ? this.keys[handle] : null;
+    }
+
+    public int returnHighestPriority() {
+        /*
+        Returns the handle with the highest priority key, or -1 if the heap is empty
+         */
+
+        return this.heapSize == 0 ? -1 : this.heap[0];
+    }
+
+    public int deleteHighestPriority() {
+        /*
+        Removes the handle with the highest priority key
+
+        Returns:
+            -1: If the heap is empty
+            The removed handle otherwise, its key can no longer be looked up
+         */
+
+        if (this.heapSize == 0) {
+            return -1;
+        }
+
+        int top = this.heap[0];
+        this.remove(top);
+
+        return top;
+    }
+
+    public void changeKey(int handle, T key) {
+        /*
+        Gives a handle a new key and moves it in whichever direction restores the heap
+
+        Parameters:
+            handle: A handle that is in the heap
+            key: The new key of the handle
+         */
+
+        int position = this.positionOf(handle);
+        this.keys[handle] = key;
+
+        this.swim(position);
+        this.sink(this.positions[handle]);
+    }
+
+    public void decreaseKey(int handle, T key) {
+        /*
+        Lowers the key of a handle, the new key must not be greater than the current one
+
+        Parameters:
+            handle: A handle that is in the heap
+            key: The new, smaller or equal key
+         */
+
+        int position = this.positionOf(handle);
+
+        if (key.compareTo(this.keys[handle]) > 0) {
+            throw new IllegalArgumentException("decreaseKey was given a key greater than the current one");
+        }
+
+        this.keys[handle] = key;
+
+        // A smaller key rises in a min heap and falls in a max heap
+        if (this.isMaxHeap) {
+            this.sink(position);
+        } else {
+            this.swim(position);
+        }
+    }
+
+    public void increaseKey(int handle, T key) {
+        /*
+        Raises the key of a handle, the new key must not be smaller than the current one
+
+        Parameters:
+            handle: A handle that is in the heap
+            key: The new, greater or equal key
+         */
+
+        int position = this.positionOf(handle);
+
+        if (key.compareTo(this.keys[handle]) < 0) {
+            throw new IllegalArgumentException("increaseKey was given a key smaller than the current one");
+        }
+
+        this.keys[handle] = key;
+
+        if (this.isMaxHeap) {
+            this.swim(position);
+        } else {
+            this.sink(position);
+        }
+    }
+
+    public T remove(int handle) {
+        /*
+        Removes a handle from the heap
+
+        Parameters:
+            handle: The handle to remove
+
+        Returns:
+            null: If the handle is not in the heap
+            The key the handle had otherwise
+         */
+
+        if (!this.contains(handle)) {
+            return null;
+        }
+
+        int position = this.positions[handle];
+        T key = this.keys[handle];
+
+        // Fill the hole with the last handle, which may have to move either way
+        this.heapSize -= 1;
+
+        if (position != this.heapSize) {
+            int moved = this.heap[this.heapSize];
+            this.place(moved, position);
+
+            this.swim(position);
+            this.sink(this.positions[moved]);
+        }
+
+        this.positions[handle] = -1;
+        this.keys[handle] = null;
+
+        return key;
+    }
+
+    public int getSize() {
+        return this.heapSize;
+    }
+
+    public boolean isEmpty() {
+        return this.heapSize == 0;
+    }
+
+    private void checkHandle(int handle) {
+        if (handle < 0 || handle >= this.positions.length) {
+            throw new IllegalArgumentException("Handle " + handle + " is outside 0.." + (this.positions.length - 1));
+        }
+    }
+
+    private int positionOf(int handle) {
+        if (!this.contains(handle)) {
+            throw new IllegalArgumentException("Handle " + handle + " is not in the heap");
+        }
+
+        return this.positions[handle];
+    }
+
+    private boolean higherPriority(T key1, T key2) {
+        /*
+        Returns whether key1 has strictly higher priority than key2
+         */
+
+        int comparison = key1.compareTo(key2);
+
+        return this.isMaxHeap ? comparison > 0 : comparison < 0;
+    }
+
+    private void place(int handle, int position) {
+        /*
+        Puts a handle at a heap position and records it in the position map
+         */
+
+        this.heap[position] = handle;
+        this.positions[handle] = position;
+    }
+
+    private void swim(int position) {
+        /*
+        Swims the handle at position as far up the heap as its key allows
+         */
+
+        int handle = this.heap[position];
+        T key = this.keys[handle];
+
+        while (position > 0) {
+            int parent = (position - 1) / this.arity;
+
+            if (!this.higherPriority(key, this.keys[this.heap[parent]])) {
+                break;
+            }
+
+            // Move the parent down into the hole
+            this.place(this.heap[parent], position);
+            position = parent;
+        }
+
+        this.place(handle, position);
+    }
+
+    private void sink(int position) {
+        /*
+        Sinks the handle at position as far down the heap as its key allows, finding the best child of
+        each level in one scan
+         */
+
+        int handle = this.heap[position];
+        T key = this.keys[handle];
+        int child = this.arity * position + 1;
+
+        while (child < this.heapSize) {
+            int best = child;
+            int lastChild = Math.min(child + this.arity, this.heapSize);
+
+            for (int i = child + 1; i < lastChild; i++) {
+                if (this.higherPriority(this.keys[this.heap[i]], this.keys[this.heap[best]])) {
+                    best = i;
+                }
+            }
+
+            if (!this.higherPriority(this.keys[this.heap[best]], key)) {
+                break;
+            }
+
+            // Move the child up into the hole
+            this.place(this.heap[best], position);
+            position = best;
+            child = this.arity * position + 1;
+        }
+
+        this.place(handle, position);
+    }
+}
@@ -0,0 +1,256 @@
+package chapter6;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+public class LongIntHeap {
+    /*
+    A priority queue of long priorities with int payloads, e.g. deadlines and job ids, stored in two
+    parallel primitive arrays so that no element is ever boxed
+
+    The heap is 4-ary: a node's children are four adjacent longs, half a cache line. A max heap stores
+    every priority bitwise inverted (~p reverses the order of longs without overflow), so both modes
+    share the same min heap code and no comparison branches on the mode
+     */
+
+    // The number of children per node
+    private static final int ARITY = 4;
+
+    private long[] keys;     // The priorities, inverted for a max heap
+    private int[] payloads;
+    private int heapSize;
+    private final boolean isMaxHeap;
+
+    public LongIntHeap(int capacity, boolean maxHeap) {
+        /*
+        Builds an empty heap
+
+        Parameters:
+            capacity: The number of elements the heap holds before its arrays grow
+            maxHeap: Whether the largest (true) or smallest (false) priority is polled first
+         */
+
+        this.keys = new long[Math.max(capacity, 1)];
+        this.payloads = new int[Math.max(capacity, 1)];
+        this.isMaxHeap = maxHeap;
+    }
+
+    // A constructor for a min heap, the usual choice for deadlines
+    public LongIntHeap(int capacity) {
+        this(capacity, false);
+    }
+
+    public LongIntHeap() {
+        this(16);
+    }
+
+    private long toKey(long priority) {
+        return this.isMaxHeap ? ~priority : priority;
+    }
+
+    public void add(long priority, int payload) {
+        /*
+        Adds a payload with the given priority
+
+        Parameters:
+            priority: The priority, e.g. a deadline
+            payload: The value returned when the element is polled, e.g. a job id
+         */
+
+        this.ensureCapacity(this.heapSize + 1);
+
+        this.heapSize += 1;
+        this.swim(this.heapSize - 1, this.toKey(priority), payload);
+    }
+
+    public void addAll(long[] priorities, int[] payloads) {
+        /*
+        Adds a batch of elements, payloads[i] with priority priorities[i]
+
+        If the batch is at least as large as the heap, the elements are appended and the whole heap is
+        rebuilt with Floyd's bottom up heapify in O(n) instead of swimming each one in O(log n)
+
+        Parameters:
+            priorities: The priorities of the new elements
+            payloads: The payloads of the new elements, of the same length as priorities
+         */
+
+        if (priorities.length != payloads.length) {
+            throw new IllegalArgumentException("Got " + priorities.length + " priorities but " + payloads.length
+                    + " payloads");
+        }
+
+        this.ensureCapacity(this.heapSize + priorities.length);
+
+        if (priorities.length < this.heapSize) {
+            for (int i = 0; i < priorities.length; i++) {
+                this.add(priorities[i], payloads[i]);
+            }
+
+            return;
+        }
+
+        for (int i = 0; i < priorities.length; i++) {
+            this.keys[this.heapSize + i] = this.toKey(priorities[i]);
+            this.payloads[this.heapSize + i] = payloads[i];
+        }
+
+        this.heapSize += priorities.length;
+
+        // Sink every node that has children, deepest first
+        for (int i = (this.heapSize - 2) / ARITY; i >= 0 && this.heapSize > 1; i--) {
+            this.sink(i, this.keys[i], this.payloads[i]);
+        }
+    }
+
+    public long peekPriority() {
+        /*
+        Returns the highest priority in the heap, without removing it
+         */
+
+        this.checkNotEmpty();
+
+        // Inverting is its own inverse
+        return this.toKey(this.keys[0]);
+    }
+
+    public int peekPayload() {
+        /*
+        Returns the payload with the highest priority, without removing it
+         */
+
+        this.checkNotEmpty();
+
+        return this.payloads[0];
+    }
+
+    public int poll() {
+        /*
+        Removes the element with the highest priority
+
+        Returns:
+            Its payload, read peekPriority first if the priority is needed too
+         */
+
+        this.checkNotEmpty();
+
+        int top = this.payloads[0];
+        this.removeTop();
+
+        return top;
+    }
+
+    public int pollInto(int[] out, int max) {
+        /*
+        Removes up to max elements in priority order and writes their payloads to the front of out, e.g.
+        to drain every expired timer in one call
+
+        Parameters:
+            out: The array receiving the payloads
+            max: The most elements to remove, also limited by the length of out and the heap size
+
+        Returns:
+            The number of payloads written
+         */
+
+        int count = Math.min(Math.min(max, out.length), this.heapSize);
+
+        for (int i = 0; i < count; i++) {
+            out[i] = this.payloads[0];
+            this.removeTop();
+        }
+
+        return count;
+    }
+
+    public int getSize() {
+        return this.heapSize;
+    }
+
+    public boolean isEmpty() {
+        return this.heapSize == 0;
+    }
+
+    public void clear() {
+        this.heapSize = 0;
+    }
+
+    private void checkNotEmpty() {
+        if (this.heapSize == 0) {
+            throw new NoSuchElementException("The heap is empty");
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.keys.length) {
+            int newLength = Math.max(capacity, 2 * this.keys.length);
+            this.keys = Arrays.copyOf(this.keys, newLength);
+            this.payloads = Arrays.copyOf(this.payloads, newLength);
+        }
+    }
+
+    private void removeTop() {
+        /*
+        Replaces the top with the last element and sinks it
+         */
+
+        this.heapSize -= 1;
+
+        if (this.heapSize > 0) {
+            this.sink(0, this.keys[this.heapSize], this.payloads[this.heapSize]);
+        }
+    }
+
+    private void swim(int index, long key, int payload) {
+        /*
+        Moves parents down until the element fits at index, then writes it there
+         */
+
+        while (index > 0) {
+            int parent = (index - 1) / ARITY;
+
+            if (this.keys[parent] <= key) {
+                break;
+            }
+
+            this.keys[index] = this.keys[parent];
+            this.payloads[index] = this.payloads[parent];
+            index = parent;
+        }
+
+        this.keys[index] = key;
+        this.payloads[index] = payload;
+    }
+
+    private void sink(int index, long key, int payload) {
+        /*
+        Moves the smallest child up until the element fits at index, then writes it there
+         */
+
+        int child = ARITY * index + 1;
+
+        while (child < this.heapSize) {
+            // Find the smallest of the contiguous children in one scan
+            int best = child;
+            int lastChild = Math.min(child + ARITY, this.heapSize);
+
+            for (int i = child + 1; i < lastChild; i++) {
+                if (this.keys[i] < this.keys[best]) {
+                    best = i;
+                }
+            }
+
+            if (this.keys[best] >= key) {
+                break;
+            }
+
+            this.keys[index] = this.keys[best];
+            this.payloads[index] = this.payloads[best];
+            index = best;
+            child = ARITY * index + 1;
+        }
+
+        this.keys[index] = key;
+        this.payloads[index] = payload;
+    }
+}
@@ -0,0 +1,421 @@
+package chapter6;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class MultiQueue<T extends Comparable> {
+    /*
+    A relaxed concurrent priority queue for high throughput, e.g. feeding a large pool of workers
+    whose jobs only need to run roughly in priority order
+
+    The elements are spread over c * p Heap shards for p threads, each with its own lock. An insert
+    goes to a random shard, and a removal samples two random shards and takes the better of their tops,
+    so threads rarely meet on a lock. The price is that a removed element is usually among the best few
+    but not necessarily the best, see BlockingHeap for an exactly ordered queue
+
+    No operation writes shared state outside its shard on the fast path: the element count is a striped
+    LongAdder, and only threads that find the queue empty (or full) take the waitLock and park there.
+    Producers and consumers check the number of parked threads with a single read and signal only
+    when it is non-zero. The count is only exact once all threads are done, so a bounded queue may
+    overshoot its capacity by up to the number of threads putting at once
+     */
+
+    private static final int NUM_CPUS = Runtime.getRuntime().availableProcessors();
+
+    // Each thread gets this many shards by default, more shards mean fewer collisions but worse tops
+    public static final int DEFAULT_SHARDS_PER_THREAD = 2;
+
+    // Random locks tried before an insert waits for one
+    private static final int MAX_TRY_LOCKS = 4;
+
+    // Two choice samples tried before a removal scans every shard
+    private static final int MAX_SAMPLES = 16;
+
+    private final Heap<T>[] shards;
+    private final ReentrantLock[] locks;
+    private final AtomicReferenceArray<T> tops; // The top of each shard, read without locking
+    private final boolean isMaxHeap;
+    private final int capacity;                 // Integer.MAX_VALUE for an unbounded queue
+    private final LongAdder count;
+
+    // The slow path of the blocking operations, the counters are only written while holding waitLock
+    private final ReentrantLock waitLock;
+    private final Condition notEmpty;
+    private final Condition notFull;
+    private volatile int waitingTakers;
+    private volatile int waitingPutters;
+
+    public MultiQueue(int shardsPerThread, int threads, int capacity, boolean maxHeap) {
+        /*
+        Builds an empty queue
+
+        Parameters:
+            shardsPerThread: The number of shards per thread, c
+            threads: The number of threads expected to use the queue at once, p
+            capacity: The most elements the queue holds before put blocks and offer fails
+            maxHeap: Whether the largest (true) or smallest (false) element has the highest priority
+         */
+
+        if (shardsPerThread < 1 || threads < 1) {
+            throw new IllegalArgumentException("Need at least 1 shard per thread and 1 thread but got "
+                    + shardsPerThread + " and " + threads);
+        }
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive but was " + capacity);
+        }
+
+        int numShards = shardsPerThread * threads;
+
+        this.shards = (Heap<T>[]) new Heap[numShards];
+        this.locks = new ReentrantLock[numShards];
+        this.tops = new AtomicReferenceArray<>(numShards);
+        this.isMaxHeap = maxHeap;
+        this.capacity = capacity;
+        this.count = new LongAdder();
+        this.waitLock = new ReentrantLock();
+        this.notEmpty = this.waitLock.newCondition();
+        this.notFull = this.waitLock.newCondition();
+
+        for (int i = 0; i < numShards; i++) {
+            this.shards[i] = new Heap<T>((T[]) new Comparable[0], maxHeap);
+            this.locks[i] = new ReentrantLock();
+        }
+    }
+
+    // A constructor with DEFAULT_SHARDS_PER_THREAD shards for every available processor
+    public MultiQueue(int capacity, boolean maxHeap) {
+        this(DEFAULT_SHARDS_PER_THREAD, NUM_CPUS, capacity, maxHeap);
+    }
+
+    // A constructor for an unbounded queue, put never blocks
+    public MultiQueue(boolean maxHeap) {
+        this(Integer.MAX_VALUE, maxHeap);
+    }
+
+    public void put(T element) throws InterruptedException {
+        /*
+        Adds an element, waiting for space if the queue is full
+
+        Parameters:
+            element: The element to add, it must not be null
+         */
+
+        checkNotNull(element);
+        this.insertOrWait(element, false, 0);
+    }
+
+    public boolean offer(T element) {
+        /*
+        Adds an element if there is space for it right now
+
+        Returns:
+            Whether the element was added
+         */
+
+        checkNotNull(element);
+
+        if (this.isFull()) {
+            return false;
+        }
+
+        this.insert(element);
+
+        return true;
+    }
+
+    public boolean offer(T element, long timeout, TimeUnit unit) throws InterruptedException {
+        /*
+        Adds an element, waiting up to the given time for space if the queue is full
+
+        Returns:
+            Whether the element was added before the timeout
+         */
+
+        checkNotNull(element);
+
+        return this.insertOrWait(element, true, unit.toNanos(timeout));
+    }
+
+    public T take() throws InterruptedException {
+        /*
+        Removes an element of high priority, waiting for one if the queue is empty
+         */
+
+        return this.removeOrWait(false, 0);
+    }
+
+    public T poll() {
+        /*
+        Removes an element of high priority, or returns null if the queue is empty
+         */
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int numShards = this.shards.length;
+
+        for (int sample = 0; sample < MAX_SAMPLES; sample++) {
+            // Two choices: compare the tops of two distinct random shards and pick the better one
+            int shard = random.nextInt(numShards);
+
+            if (numShards > 1) {
+                int other = (shard + 1 + random.nextInt(numShards - 1)) % numShards;
+
+                if (this.higherPriority(this.tops.get(other), this.tops.get(shard))) {
+                    shard = other;
+                }
+            }
+
+            if (this.tops.get(shard) != null && this.locks[shard].tryLock()) {
+                T top = this.removeTop(shard);
+
+                if (top != null) {
+                    return top;
+                }
+            }
+        }
+
+        // The queue is nearly empty or heavily contended, so scan every shard, waiting for each lock
+        int start = random.nextInt(numShards);
+
+        for (int i = 0; i < numShards; i++) {
+            int shard = (start + i) % numShards;
+
+            if (this.tops.get(shard) == null) {
+                continue;
+            }
+
+            this.locks[shard].lock();
+            T top = this.removeTop(shard);
+
+            if (top != null) {
+                return top;
+            }
+        }
+
+        return null;
+    }
+
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        /*
+        Removes an element of high priority, waiting up to the given time for one
+
+        Returns:
+            null: If the queue stayed empty until the timeout
+            The removed element otherwise
+         */
+
+        return this.removeOrWait(true, unit.toNanos(timeout));
+    }
+
+    public int getSize() {
+        /*
+        Returns the number of elements in the queue, exact once all threads are done
+         */
+
+        return (int) Math.max(this.count.sum(), 0);
+    }
+
+    public boolean isEmpty() {
+        return this.getSize() == 0;
+    }
+
+    public int remainingCapacity() {
+        return this.capacity == Integer.MAX_VALUE ? Integer.MAX_VALUE : Math.max(this.capacity - this.getSize(), 0);
+    }
+
+    public int getNumShards() {
+        return this.shards.length;
+    }
+
+    private static void checkNotNull(Object element) {
+        // The shards report emptiness as null, so a null element could not be told apart from it
+        if (element == null) {
+            throw new NullPointerException("Null elements are not supported, poll reports an empty queue as null");
+        }
+    }
+
+    private boolean higherPriority(T element1, T element2) {
+        /*
+        Returns whether element1 has strictly higher priority than element2, null being the lowest
+         */
+
+        if (element1 == null || element2 == null) {
+            return element2 == null && element1 != null;
+        }
+
+        int comparison = element1.compareTo(element2);
+
+        return this.isMaxHeap ? comparison > 0 : comparison < 0;
+    }
+
+    private boolean isFull() {
+        // Unbounded queues never read the striped count
+        return this.capacity != Integer.MAX_VALUE && this.count.sum() >= this.capacity;
+    }
+
+    private boolean insertOrWait(T element, boolean timed, long nanos) throws InterruptedException {
+        /*
+        Adds an element once the queue has space, parking on notFull while it is full
+
+        Parameters:
+            element: The element to add
+            timed: Whether to give up after nanos
+            nanos: The longest time to wait if timed
+
+        Returns:
+            Whether the element was added
+         */
+
+        if (this.isFull()) {
+            this.waitLock.lockInterruptibly();
+
+            try {
+                // Registered before the check, so a removal either frees the space seen here or signals
+                this.waitingPutters += 1;
+
+                try {
+                    while (this.isFull()) {
+                        if (!timed) {
+                            this.notFull.await();
+                        } else if (nanos <= 0) {
+                            return false;
+                        } else {
+                            nanos = this.notFull.awaitNanos(nanos);
+                        }
+                    }
+                } finally {
+                    this.waitingPutters -= 1;
+                }
+            } finally {
+                this.waitLock.unlock();
+            }
+        }
+
+        this.insert(element);
+
+        return true;
+    }
+
+    private T removeOrWait(boolean timed, long nanos) throws InterruptedException {
+        /*
+        Removes an element of high priority, parking on notEmpty while the queue is empty
+
+        Parameters:
+            timed: Whether to give up after nanos
+            nanos: The longest time to wait if timed
+
+        Returns:
+            null: If timed and the queue stayed empty for nanos
+            The removed element otherwise
+         */
+
+        T element = this.poll();
+
+        while (element == null) {
+            if (timed && nanos <= 0) {
+                return null;
+            }
+
+            this.waitLock.lockInterruptibly();
+
+            try {
+                // Registered before polling again, so an insert either is found here or signals
+                this.waitingTakers += 1;
+
+                try {
+                    element = this.poll();
+
+                    if (element == null) {
+                        if (timed) {
+                            nanos = this.notEmpty.awaitNanos(nanos);
+                        } else {
+                            this.notEmpty.await();
+                        }
+                    }
+                } finally {
+                    this.waitingTakers -= 1;
+                }
+            } finally {
+                this.waitLock.unlock();
+            }
+        }
+
+        return element;
+    }
+
+    private void signal(Condition condition) {
+        this.waitLock.lock();
+
+        try {
+            condition.signal();
+        } finally {
+            this.waitLock.unlock();
+        }
+    }
+
+    private void insert(T element) {
+        /*
+        Adds an element to a random shard, space must already be available
+         */
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int shard = random.nextInt(this.shards.length);
+
+        // Move on to another shard while the chosen one is busy, and wait only as a last resort
+        for (int attempt = 1; !this.locks[shard].tryLock(); attempt++) {
+            if (attempt == MAX_TRY_LOCKS) {
+                this.locks[shard].lock();
+                break;
+            }
+
+            shard = random.nextInt(this.shards.length);
+        }
+
+        try {
+            this.shards[shard].addElement(element);
+            this.tops.set(shard, this.shards[shard].returnHighestPriority());
+        } finally {
+            this.locks[shard].unlock();
+        }
+
+        this.count.increment();
+
+        // The new top is published before this read, so a taker that registered earlier gets a signal
+        if (this.waitingTakers > 0) {
+            this.signal(this.notEmpty);
+        }
+    }
+
+    private T removeTop(int shard) {
+        /*
+        Removes the top of a shard whose lock the caller holds and releases that lock
+
+        Returns:
+            null: If the shard was emptied in the meantime
+            The removed element otherwise
+         */
+
+        T top;
+
+        try {
+            top = this.shards[shard].deleteHighestPriority();
+            this.tops.set(shard, this.shards[shard].returnHighestPriority());
+        } finally {
+            this.locks[shard].unlock();
+        }
+
+        if (top != null) {
+            this.count.decrement();
+
+            if (this.waitingPutters > 0) {
+                this.signal(this.notFull);
+            }
+        }
+
+        return top;
+    }
+}
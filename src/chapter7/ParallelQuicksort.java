@@ -0,0 +1,517 @@
+package chapter7;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+public class ParallelQuicksort {
+
+    // Ranges shorter than this are sorted sequentially by default
+    public static final int DEFAULT_GRANULARITY = 1 << 13;
+
+    // Ranges at least this long are partitioned by all workers together rather than by one thread
+    private static final int PARALLEL_PARTITION_THRESHOLD = 1 << 20;
+
+    // The number of blocks each worker handles during a parallel partition, for load balancing
+    private static final int BLOCKS_PER_WORKER = 4;
+
+    public static Comparable[] parallelQuickSort(Comparable[] unsortedArray) {
+        return parallelQuickSort(unsortedArray, true);
+    }
+
+    public static Comparable[] parallelQuickSort(Comparable[] unsortedArray, boolean increasing) {
+        return parallelQuickSort(unsortedArray, increasing, ForkJoinPool.commonPool(), DEFAULT_GRANULARITY);
+    }
+
+    public static Comparable[] parallelQuickSort(Comparable[] unsortedArray, boolean increasing, ForkJoinPool pool,
+                                                 int granularity) {
+        /*
+        Quicksorts the given input array in place on the workers of a fork/join pool
+
+        Parameters:
+            unsortedArray: The array we wish to quicksort
+            increasing: Whether to sort from smallest to largest element
+            pool: The pool whose workers do the sorting
+            granularity: Ranges shorter than this are sorted sequentially instead of being split further
+
+        Returns:
+            The input array, now sorted
+         */
+
+        QuicksortJob<Comparable[]> job = new QuicksortJob<>(unsortedArray, pool.getParallelism(), granularity);
+        pool.invoke(new ComparableSortTask(job, 0, unsortedArray.length - 1,
+                Quicksort.depthLimit(unsortedArray.length), increasing));
+
+        return unsortedArray;
+    }
+
+    public static int[] parallelQuickSort(int[] unsortedArray) {
+        return parallelQuickSort(unsortedArray, true);
+    }
+
+    public static int[] parallelQuickSort(int[] unsortedArray, boolean increasing) {
+        return parallelQuickSort(unsortedArray, increasing, ForkJoinPool.commonPool(), DEFAULT_GRANULARITY);
+    }
+
+    public static int[] parallelQuickSort(int[] unsortedArray, boolean increasing, ForkJoinPool pool, int granularity) {
+        /*
+        Sorts the given input array of ints in place on the workers of a fork/join pool, see the
+        Comparable[] overload for the parameters
+         */
+
+        QuicksortJob<int[]> job = new QuicksortJob<>(unsortedArray, pool.getParallelism(), granularity);
+        pool.invoke(new IntSortTask(job, 0, unsortedArray.length - 1, Quicksort.depthLimit(unsortedArray.length)));
+
+        if (!increasing) {
+            Quicksort.reverse(unsortedArray, 0, unsortedArray.length - 1);
+        }
+
+        return unsortedArray;
+    }
+
+    public static long[] parallelQuickSort(long[] unsortedArray) {
+        return parallelQuickSort(unsortedArray, true);
+    }
+
+    public static long[] parallelQuickSort(long[] unsortedArray, boolean increasing) {
+        return parallelQuickSort(unsortedArray, increasing, ForkJoinPool.commonPool(), DEFAULT_GRANULARITY);
+    }
+
+    public static long[] parallelQuickSort(long[] unsortedArray, boolean increasing, ForkJoinPool pool,
+                                           int granularity) {
+        /*
+        Sorts the given input array of longs in place on the workers of a fork/join pool, see the
+        Comparable[] overload for the parameters
+         */
+
+        QuicksortJob<long[]> job = new QuicksortJob<>(unsortedArray, pool.getParallelism(), granularity);
+        pool.invoke(new LongSortTask(job, 0, unsortedArray.length - 1, Quicksort.depthLimit(unsortedArray.length)));
+
+        if (!increasing) {
+            Quicksort.reverse(unsortedArray, 0, unsortedArray.length - 1);
+        }
+
+        return unsortedArray;
+    }
+
+    // Settings and buffers shared by every task of one sort
+    private static class QuicksortJob<A> {
+        public final A array;
+        public final int parallelism;
+        public final int granularity;
+        private A scratch; // Only allocated if some range is large enough for a parallel partition
+
+        public QuicksortJob(A array, int parallelism, int granularity) {
+            this.array = array;
+            this.parallelism = parallelism;
+            this.granularity = Math.max(granularity, 2);
+        }
+
+        public boolean partitionInParallel(int low, int high) {
+            return this.parallelism > 1 && high - low + 1 >= PARALLEL_PARTITION_THRESHOLD;
+        }
+
+        public synchronized A scratch(Supplier<A> allocate) {
+            // Tasks partitioning disjoint ranges share one buffer, each using only its own range
+            if (this.scratch == null) {
+                this.scratch = allocate.get();
+            }
+
+            return this.scratch;
+        }
+    }
+
+    private static void forEachBlock(int numBlocks, IntConsumer body) {
+        /*
+        Runs body once for every block index in parallel on the current pool and waits for all of them
+         */
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(numBlocks);
+
+        for (int block = 0; block < numBlocks; block++) {
+            final int blockIndex = block;
+            tasks.add(ForkJoinTask.adapt(() -> body.accept(blockIndex)));
+        }
+
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    private static int blockStart(int low, int length, int numBlocks, int block) {
+        /*
+        Returns the first index of the given block when [low, low + length) is cut into numBlocks blocks
+         */
+
+        return low + (int) ((long) length * block / numBlocks);
+    }
+
+    private static int[] prefixOffsets(int low, int[][] counts) {
+        /*
+        Turns per block counts of the (less, equal, greater) classes into the index where each block
+        writes each class, classes are laid out one after another and blocks in order within a class
+
+        Returns:
+            {start of equal class, start of greater class}
+         */
+
+        int next = low;
+
+        for (int kind = 0; kind < 3; kind++) {
+            for (int[] blockCounts : counts) {
+                int count = blockCounts[kind];
+                blockCounts[kind] = next;
+                next += count;
+            }
+        }
+
+        return new int[] {counts[0][1], counts[0][2]};
+    }
+
+    private static class ComparableSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final QuicksortJob<Comparable[]> job;
+        private final int low;
+        private final int high;
+        private final int depthLimit; // Splits left before the range is finished sequentially
+        private final boolean increasing;
+
+        public ComparableSortTask(QuicksortJob<Comparable[]> job, int low, int high, int depthLimit,
+                                  boolean increasing) {
+            this.job = job;
+            this.low = low;
+            this.high = high;
+            this.depthLimit = depthLimit;
+            this.increasing = increasing;
+        }
+
+        @Override
+        protected void compute() {
+            Comparable[] array = this.job.array;
+
+            // Small ranges, and ranges left after too many bad splits, are finished by the sequential
+            // introsort, which is three-way and depth limited itself so neither duplicates nor bad pivots hurt
+            if (this.high - this.low < this.job.granularity || this.depthLimit == 0) {
+                Quicksort.introSortHelper(array, this.low, this.high, Quicksort.depthLimit(this.high - this.low + 1),
+                        PivotSelector.MEDIAN_OF_THREE);
+
+                if (!this.increasing) {
+                    Quicksort.reverse(array, this.low, this.high);
+                }
+
+                return;
+            }
+
+            Comparable pivot = array[PivotSelector.MEDIAN_OF_THREE.selectPivot(array, this.low, this.high)];
+
+            // The elements equal to the pivot end up in [equalStart, greaterStart) and need no more work
+            int[] bounds = this.job.partitionInParallel(this.low, this.high)
+                    ? this.parallelPartition(pivot)
+                    : this.partition(pivot);
+
+            invokeAll(new ComparableSortTask(this.job, this.low, bounds[0] - 1, this.depthLimit - 1,
+                            this.increasing),
+                    new ComparableSortTask(this.job, bounds[1], this.high, this.depthLimit - 1, this.increasing));
+        }
+
+        private int[] partition(Comparable pivot) {
+            /*
+            Dutch flag partition of [low, high] into less than, equal to and greater than pivot
+             */
+
+            Comparable[] array = this.job.array;
+            int less = this.low;
+            int current = this.low;
+            int greater = this.high;
+
+            while (current <= greater) {
+                int comparison = Quicksort.compareObjects(array[current], pivot, this.increasing);
+
+                if (comparison < 0) {
+                    Comparable temp = array[less];
+                    array[less] = array[current];
+                    array[current] = temp;
+                    less += 1;
+                    current += 1;
+                } else if (comparison > 0) {
+                    Comparable temp = array[greater];
+                    array[greater] = array[current];
+                    array[current] = temp;
+                    greater -= 1;
+                } else {
+                    current += 1;
+                }
+            }
+
+            return new int[] {less, greater + 1};
+        }
+
+        private int[] parallelPartition(Comparable pivot) {
+            /*
+            Partitions [low, high] with every worker: blocks count their classes, a prefix sum gives
+            every block its output positions, blocks scatter into the scratch buffer and the buffer is
+            copied back
+             */
+
+            Comparable[] array = this.job.array;
+            Comparable[] scratch = this.job.scratch(() -> new Comparable[array.length]);
+            int length = this.high - this.low + 1;
+            int numBlocks = this.job.parallelism * BLOCKS_PER_WORKER;
+            int[][] counts = new int[numBlocks][3];
+
+            forEachBlock(numBlocks, block -> {
+                int end = blockStart(this.low, length, numBlocks, block + 1);
+
+                for (int i = blockStart(this.low, length, numBlocks, block); i < end; i++) {
+                    counts[block][classify(Quicksort.compareObjects(array[i], pivot, this.increasing))] += 1;
+                }
+            });
+
+            int[] bounds = prefixOffsets(this.low, counts);
+
+            forEachBlock(numBlocks, block -> {
+                int end = blockStart(this.low, length, numBlocks, block + 1);
+                int[] offsets = counts[block];
+
+                for (int i = blockStart(this.low, length, numBlocks, block); i < end; i++) {
+                    int kind = classify(Quicksort.compareObjects(array[i], pivot, this.increasing));
+                    scratch[offsets[kind]] = array[i];
+                    offsets[kind] += 1;
+                }
+            });
+
+            forEachBlock(numBlocks, block -> {
+                int start = blockStart(this.low, length, numBlocks, block);
+                int end = blockStart(this.low, length, numBlocks, block + 1);
+                System.arraycopy(scratch, start, array, start, end - start);
+            });
+
+            return bounds;
+        }
+    }
+
+    private static int classify(int comparison) {
+        /*
+        Maps a comparison against the pivot to 0 (less), 1 (equal) or 2 (greater)
+         */
+
+        return comparison < 0 ? 0 : (comparison == 0 ? 1 : 2);
+    }
+
+    private static class IntSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final QuicksortJob<int[]> job;
+        private final int low;
+        private final int high;
+        private final int depthLimit; // Splits left before the range is finished sequentially
+
+        public IntSortTask(QuicksortJob<int[]> job, int low, int high, int depthLimit) {
+            this.job = job;
+            this.low = low;
+            this.high = high;
+            this.depthLimit = depthLimit;
+        }
+
+        @Override
+        protected void compute() {
+            // Small ranges, and ranges left after too many bad splits, are finished by the depth limited
+            // sequential sort
+            if (this.high - this.low < this.job.granularity || this.depthLimit == 0) {
+                Quicksort.dualPivotQuickSort(this.job.array, this.low, this.high);
+                return;
+            }
+
+            int[] array = this.job.array;
+            int pivot = array[PivotSelector.MEDIAN_OF_THREE.selectPivot(array, this.low, this.high)];
+
+            int[] bounds = this.job.partitionInParallel(this.low, this.high)
+                    ? this.parallelPartition(pivot)
+                    : this.partition(pivot);
+
+            invokeAll(new IntSortTask(this.job, this.low, bounds[0] - 1, this.depthLimit - 1),
+                    new IntSortTask(this.job, bounds[1], this.high, this.depthLimit - 1));
+        }
+
+        private int[] partition(int pivot) {
+            /*
+            Dutch flag partition of [low, high] into less than, equal to and greater than pivot
+             */
+
+            int[] array = this.job.array;
+            int less = this.low;
+            int current = this.low;
+            int greater = this.high;
+
+            while (current <= greater) {
+                int element = array[current];
+
+                if (element < pivot) {
+                    array[current] = array[less];
+                    array[less] = element;
+                    less += 1;
+                    current += 1;
+                } else if (element > pivot) {
+                    array[current] = array[greater];
+                    array[greater] = element;
+                    greater -= 1;
+                } else {
+                    current += 1;
+                }
+            }
+
+            return new int[] {less, greater + 1};
+        }
+
+        private int[] parallelPartition(int pivot) {
+            /*
+            Partitions [low, high] with every worker, see ComparableSortTask.parallelPartition
+             */
+
+            int[] array = this.job.array;
+            int[] scratch = this.job.scratch(() -> new int[array.length]);
+            int length = this.high - this.low + 1;
+            int numBlocks = this.job.parallelism * BLOCKS_PER_WORKER;
+            int[][] counts = new int[numBlocks][3];
+
+            forEachBlock(numBlocks, block -> {
+                int end = blockStart(this.low, length, numBlocks, block + 1);
+
+                for (int i = blockStart(this.low, length, numBlocks, block); i < end; i++) {
+                    counts[block][classify(Integer.compare(array[i], pivot))] += 1;
+                }
+            });
+
+            int[] bounds = prefixOffsets(this.low, counts);
+
+            forEachBlock(numBlocks, block -> {
+                int end = blockStart(this.low, length, numBlocks, block + 1);
+                int[] offsets = counts[block];
+
+                for (int i = blockStart(this.low, length, numBlocks, block); i < end; i++) {
+                    int kind = classify(Integer.compare(array[i], pivot));
+                    scratch[offsets[kind]] = array[i];
+                    offsets[kind] += 1;
+                }
+            });
+
+            forEachBlock(numBlocks, block -> {
+                int start = blockStart(this.low, length, numBlocks, block);
+                int end = blockStart(this.low, length, numBlocks, block + 1);
+                System.arraycopy(scratch, start, array, start, end - start);
+            });
+
+            return bounds;
+        }
+    }
+
+    private static class LongSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final QuicksortJob<long[]> job;
+        private final int low;
+        private final int high;
+        private final int depthLimit; // Splits left before the range is finished sequentially
+
+        public LongSortTask(QuicksortJob<long[]> job, int low, int high, int depthLimit) {
+            this.job = job;
+            this.low = low;
+            this.high = high;
+            this.depthLimit = depthLimit;
+        }
+
+        @Override
+        protected void compute() {
+            // Small ranges, and ranges left after too many bad splits, are finished by the depth limited
+            // sequential sort
+            if (this.high - this.low < this.job.granularity || this.depthLimit == 0) {
+                Quicksort.dualPivotQuickSort(this.job.array, this.low, this.high);
+                return;
+            }
+
+            long[] array = this.job.array;
+            long pivot = array[PivotSelector.MEDIAN_OF_THREE.selectPivot(array, this.low, this.high)];
+
+            int[] bounds = this.job.partitionInParallel(this.low, this.high)
+                    ? this.parallelPartition(pivot)
+                    : this.partition(pivot);
+
+            invokeAll(new LongSortTask(this.job, this.low, bounds[0] - 1, this.depthLimit - 1),
+                    new LongSortTask(this.job, bounds[1], this.high, this.depthLimit - 1));
+        }
+
+        private int[] partition(long pivot) {
+            /*
+            Dutch flag partition of [low, high] into less than, equal to and greater than pivot
+             */
+
+            long[] array = this.job.array;
+            int less = this.low;
+            int current = this.low;
+            int greater = this.high;
+
+            while (current <= greater) {
+                long element = array[current];
+
+                if (element < pivot) {
+                    array[current] = array[less];
+                    array[less] = element;
+                    less += 1;
+                    current += 1;
+                } else if (element > pivot) {
+                    array[current] = array[greater];
+                    array[greater] = element;
+                    greater -= 1;
+                } else {
+                    current += 1;
+                }
+            }
+
+            return new int[] {less, greater + 1};
+        }
+
+        private int[] parallelPartition(long pivot) {
+            /*
+            Partitions [low, high] with every worker, see ComparableSortTask.parallelPartition
+             */
+
+            long[] array = this.job.array;
+            long[] scratch = this.job.scratch(() -> new long[array.length]);
+            int length = this.high - this.low + 1;
+            int numBlocks = this.job.parallelism * BLOCKS_PER_WORKER;
+            int[][] counts = new int[numBlocks][3];
+
+            forEachBlock(numBlocks, block -> {
+                int end = blockStart(this.low, length, numBlocks, block + 1);
+
+                for (int i = blockStart(this.low, length, numBlocks, block); i < end; i++) {
+                    counts[block][classify(Long.compare(array[i], pivot))] += 1;
+                }
+            });
+
+            int[] bounds = prefixOffsets(this.low, counts);
+
+            forEachBlock(numBlocks, block -> {
+                int end = blockStart(this.low, length, numBlocks, block + 1);
+                int[] offsets = counts[block];
+
+                for (int i = blockStart(this.low, length, numBlocks, block); i < end; i++) {
+                    int kind = classify(Long.compare(array[i], pivot));
+                    scratch[offsets[kind]] = array[i];
+                    offsets[kind] += 1;
+                }
+            });
+
+            forEachBlock(numBlocks, block -> {
+                int start = blockStart(this.low, length, numBlocks, block);
+                int end = blockStart(this.low, length, numBlocks, block + 1);
+                System.arraycopy(scratch, start, array, start, end - start);
+            });
+
+            return bounds;
+        }
+    }
+}
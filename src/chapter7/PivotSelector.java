@@ -0,0 +1,259 @@
+package chapter7;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public abstract class PivotSelector {
+    /*
+    Chooses the partitioning element for quicksort style algorithms
+
+    Every strategy is stateless and allocation free, so one instance can be shared by any number of
+    threads and recursion levels
+     */
+
+    // A uniformly random index from the calling thread's own generator
+    public static final PivotSelector RANDOM = new RandomSelector();
+
+    // The median of the first, middle and last elements
+    public static final PivotSelector MEDIAN_OF_THREE = new MedianOfThreeSelector();
+
+    // Tukey's ninther: the median of three medians of three, spread over the range
+    public static final PivotSelector NINTHER = new NintherSelector();
+
+    // Ranges shorter than this use a plain median of three instead of the ninther
+    private static final int NINTHER_THRESHOLD = 40;
+
+    public static PivotSelector seeded(long seed) {
+        /*
+        Returns a strategy that picks pseudo random indices determined only by seed and the range, so
+        repeated runs on the same input partition identically, e.g. for reproducible benchmarks
+
+        Parameters:
+            seed: The seed mixed into every choice
+         */
+
+        return new SeededSelector(seed);
+    }
+
+    /*
+    Each method returns the index of the chosen pivot in array[low..high] (both inclusive)
+     */
+
+    public abstract int selectPivot(Comparable[] array, int low, int high);
+
+    public abstract int selectPivot(int[] array, int low, int high);
+
+    public abstract int selectPivot(long[] array, int low, int high);
+
+    public abstract int selectPivot(double[] array, int low, int high);
+
+    // Strategies that never look at the elements
+    private abstract static class IndexSelector extends PivotSelector {
+
+        protected abstract int selectIndex(int low, int high);
+
+        @Override
+        public int selectPivot(Comparable[] array, int low, int high) {
+            return this.selectIndex(low, high);
+        }
+
+        @Override
+        public int selectPivot(int[] array, int low, int high) {
+            return this.selectIndex(low, high);
+        }
+
+        @Override
+        public int selectPivot(long[] array, int low, int high) {
+            return this.selectIndex(low, high);
+        }
+
+        @Override
+        public int selectPivot(double[] array, int low, int high) {
+            return this.selectIndex(low, high);
+        }
+    }
+
+    private static class RandomSelector extends IndexSelector {
+
+        @Override
+        protected int selectIndex(int low, int high) {
+            return ThreadLocalRandom.current().nextInt(low, high + 1);
+        }
+    }
+
+    private static class SeededSelector extends IndexSelector {
+        private final long seed;
+
+        public SeededSelector(long seed) {
+            this.seed = seed;
+        }
+
+        @Override
+        protected int selectIndex(int low, int high) {
+            // Hash the range together with the seed instead of keeping generator state
+            long hash = this.seed + low * 0x9E3779B97F4A7C15L + high * 0xC2B2AE3D27D4EB4FL;
+            hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+            hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            hash = hash ^ (hash >>> 33);
+
+            return low + (int) ((hash >>> 1) % (high - low + 1));
+        }
+    }
+
+    private static class MedianOfThreeSelector extends PivotSelector {
+
+        @Override
+        public int selectPivot(Comparable[] array, int low, int high) {
+            return medianIndex(array, low, (low + high) >>> 1, high);
+        }
+
+        @Override
+        public int selectPivot(int[] array, int low, int high) {
+            return medianIndex(array, low, (low + high) >>> 1, high);
+        }
+
+        @Override
+        public int selectPivot(long[] array, int low, int high) {
+            return medianIndex(array, low, (low + high) >>> 1, high);
+        }
+
+        @Override
+        public int selectPivot(double[] array, int low, int high) {
+            return medianIndex(array, low, (low + high) >>> 1, high);
+        }
+    }
+
+    private static class NintherSelector extends PivotSelector {
+
+        @Override
+        public int selectPivot(Comparable[] array, int low, int high) {
+            int middle = (low + high) >>> 1;
+
+            if (high - low < NINTHER_THRESHOLD) {
+                return medianIndex(array, low, middle, high);
+            }
+
+            int eighth = (high - low) / 8;
+
+            return medianIndex(array,
+                    medianIndex(array, low, low + eighth, low + 2 * eighth),
+                    medianIndex(array, middle - eighth, middle, middle + eighth),
+                    medianIndex(array, high - 2 * eighth, high - eighth, high));
+        }
+
+        @Override
+        public int selectPivot(int[] array, int low, int high) {
+            int middle = (low + high) >>> 1;
+
+            if (high - low < NINTHER_THRESHOLD) {
+                return medianIndex(array, low, middle, high);
+            }
+
+            int eighth = (high - low) / 8;
+
+            return medianIndex(array,
+                    medianIndex(array, low, low + eighth, low + 2 * eighth),
+                    medianIndex(array, middle - eighth, middle, middle + eighth),
+                    medianIndex(array, high - 2 * eighth, high - eighth, high));
+        }
+
+        @Override
+        public int selectPivot(long[] array, int low, int high) {
+            int middle = (low + high) >>> 1;
+
+            if (high - low < NINTHER_THRESHOLD) {
+                return medianIndex(array, low, middle, high);
+            }
+
+            int eighth = (high - low) / 8;
+
+            return medianIndex(array,
+                    medianIndex(array, low, low + eighth, low + 2 * eighth),
+                    medianIndex(array, middle - eighth, middle, middle + eighth),
+                    medianIndex(array, high - 2 * eighth, high - eighth, high));
+        }
+
+        @Override
+        public int selectPivot(double[] array, int low, int high) {
+            int middle = (low + high) >>> 1;
+
+            if (high - low < NINTHER_THRESHOLD) {
+                return medianIndex(array, low, middle, high);
+            }
+
+            int eighth = (high - low) / 8;
+
+            return medianIndex(array,
+                    medianIndex(array, low, low + eighth, low + 2 * eighth),
+                    medianIndex(array, middle - eighth, middle, middle + eighth),
+                    medianIndex(array, high - 2 * eighth, high - eighth, high));
+        }
+    }
+
+    private static int medianIndex(Comparable[] array, int a, int b, int c) {
+        /*
+        Returns whichever of the indices a, b and c holds the median of the three elements
+         */
+
+        if (array[a].compareTo(array[b]) < 0) {
+            if (array[b].compareTo(array[c]) < 0) {
+                return b;
+            }
+
+            return array[a].compareTo(array[c]) < 0 ? c : a;
+        }
+
+        if (array[a].compareTo(array[c]) < 0) {
+            return a;
+        }
+
+        return array[b].compareTo(array[c]) < 0 ? c : b;
+    }
+
+    private static int medianIndex(int[] array, int a, int b, int c) {
+        if (array[a] < array[b]) {
+            if (array[b] < array[c]) {
+                return b;
+            }
+
+            return array[a] < array[c] ? c : a;
+        }
+
+        if (array[a] < array[c]) {
+            return a;
+        }
+
+        return array[b] < array[c] ? c : b;
+    }
+
+    private static int medianIndex(long[] array, int a, int b, int c) {
+        if (array[a] < array[b]) {
+            if (array[b] < array[c]) {
+                return b;
+            }
+
+            return array[a] < array[c] ? c : a;
+        }
+
+        if (array[a] < array[c]) {
+            return a;
+        }
+
+        return array[b] < array[c] ? c : b;
+    }
+
+    private static int medianIndex(double[] array, int a, int b, int c) {
+        if (array[a] < array[b]) {
+            if (array[b] < array[c]) {
+                return b;
+            }
+
+            return array[a] < array[c] ? c : a;
+        }
+
+        if (array[a] < array[c]) {
+            return a;
+        }
+
+        return array[b] < array[c] ? c : b;
+    }
+}
@@ -1,19 +1,28 @@
 package chapter7;
 
-import java.util.Random;
+import chapter6.HeapSort;
 
 public class Quicksort {
 
+    // Ranges shorter than this are finished with insertion sort by introsort and the primitive overloads
+    private static final int INSERTION_SORT_THRESHOLD = 27;
+
     public static Comparable[] quickSort(Comparable[] unsortedArray) {
-        return quickSortHelper(unsortedArray, 0, unsortedArray.length - 1, true);
+        return quickSortHelper(unsortedArray, 0, unsortedArray.length - 1, true, PivotSelector.RANDOM);
     }
 
     public static Comparable[] quickSort(Comparable[] unsortedArray, boolean increasing) {
         // The same method but allows the user to specify increasing or decreasing
-        return quickSortHelper(unsortedArray, 0, unsortedArray.length - 1, increasing);
+        return quickSortHelper(unsortedArray, 0, unsortedArray.length - 1, increasing, PivotSelector.RANDOM);
+    }
+
+    public static Comparable[] quickSort(Comparable[] unsortedArray, boolean increasing, PivotSelector pivotSelector) {
+        // The same method but allows the user to choose how partition elements are picked
+        return quickSortHelper(unsortedArray, 0, unsortedArray.length - 1, increasing, pivotSelector);
     }
 
-    private static Comparable[] quickSortHelper(Comparable[] unsortedArray, int low, int high, boolean increasing) {
+    static Comparable[] quickSortHelper(Comparable[] unsortedArray, int low, int high, boolean increasing,
+                                        PivotSelector pivotSelector) {
         /*
         Quicksorts the given input array
 
@@ -21,6 +30,8 @@ public class Quicksort {
             unsortedArray: The array we wish to quicksort
             low: The lowest index to consider for sorting (inclusive)
             high: The highest index to consider for sorting (inclusive)
+            increasing: Whether to sort from smallest to largest element
+            pivotSelector: The strategy that picks each partition element
 
         Returns:
             The input array, now sorted
@@ -31,8 +42,8 @@ public class Quicksort {
             return unsortedArray;
         }
 
-        // Get a random partition element and partition around it
-        int partitionIndex = low + generateRandomIndex(high - low);
+        // Pick a partition element and partition around it
+        int partitionIndex = pivotSelector.selectPivot(unsortedArray, low, high);
 
         // First get the element out of the way by swapping it to the end of the array
         swap(unsortedArray, partitionIndex, high);
@@ -54,13 +65,13 @@ public class Quicksort {
 
         // Finally, recursively quicksort the partitions
         // First the left partition
-        unsortedArray = quickSortHelper(unsortedArray, low, currentRightPartition, increasing);
-        unsortedArray = quickSortHelper(unsortedArray, currentRightPartition + 2, high, increasing);
+        unsortedArray = quickSortHelper(unsortedArray, low, currentRightPartition, increasing, pivotSelector);
+        unsortedArray = quickSortHelper(unsortedArray, currentRightPartition + 2, high, increasing, pivotSelector);
 
         return unsortedArray;
     }
 
-    private static int compareObjects(Comparable obj1, Comparable obj2, boolean isIncreasing) {
+    static int compareObjects(Comparable obj1, Comparable obj2, boolean isIncreasing) {
         /*
         Compares two objects to determine their sorting order
 
@@ -82,6 +93,131 @@ public class Quicksort {
         }
     }
 
+    public static Comparable[] introSort(Comparable[] unsortedArray) {
+        return introSort(unsortedArray, true);
+    }
+
+    public static Comparable[] introSort(Comparable[] unsortedArray, boolean increasing) {
+        return introSort(unsortedArray, increasing, PivotSelector.MEDIAN_OF_THREE);
+    }
+
+    public static Comparable[] introSort(Comparable[] unsortedArray, boolean increasing, PivotSelector pivotSelector) {
+        /*
+        Sorts the given input array in place with introsort: quicksort with three way partitioning that
+        finishes small ranges with insertion sort and switches to heapsort once recursion gets deeper
+        than 2 log n, so the worst case is O(n log n) and the stack depth is O(log n)
+
+        Parameters:
+            unsortedArray: The array we wish to sort
+            increasing: Whether to sort from smallest to largest element
+            pivotSelector: The strategy that picks each partition element
+
+        Returns:
+            The input array, now sorted
+         */
+
+        introSortHelper(unsortedArray, 0, unsortedArray.length - 1, depthLimit(unsortedArray.length), pivotSelector);
+
+        // Descending order reverses once at the end instead of flipping every comparison
+        if (!increasing) {
+            reverse(unsortedArray, 0, unsortedArray.length - 1);
+        }
+
+        return unsortedArray;
+    }
+
+    static int depthLimit(int length) {
+        /*
+        Returns the number of partitioning levels allowed before falling back to heapsort, 2 * floor(log2 n)
+         */
+
+        return 2 * (31 - Integer.numberOfLeadingZeros(Math.max(length, 1)));
+    }
+
+    static void introSortHelper(Comparable[] array, int low, int high, int depthLimit, PivotSelector pivotSelector) {
+        /*
+        Sorts array[low..high] (inclusive) in ascending order
+
+        Parameters:
+            array: The array containing the range to sort
+            low: The lowest index to sort (inclusive)
+            high: The highest index to sort (inclusive)
+            depthLimit: The number of partitioning levels left before falling back to heapsort
+            pivotSelector: The strategy that picks each partition element
+         */
+
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            if (depthLimit == 0) {
+                HeapSort.heapSortRange(array, low, high);
+                return;
+            }
+
+            depthLimit -= 1;
+
+            // Dutch flag partition: [low, less) < pivot, (greater, high] > pivot
+            Comparable pivot = array[pivotSelector.selectPivot(array, low, high)];
+            int less = low;
+            int current = low;
+            int greater = high;
+
+            while (current <= greater) {
+                int comparison = array[current].compareTo(pivot);
+
+                if (comparison < 0) {
+                    swap(array, less, current);
+                    less += 1;
+                    current += 1;
+                } else if (comparison > 0) {
+                    swap(array, current, greater);
+                    greater -= 1;
+                } else {
+                    current += 1;
+                }
+            }
+
+            // Recurse into the smaller side and loop on the larger one so the stack stays O(log n)
+            if (less - low < high - greater) {
+                introSortHelper(array, low, less - 1, depthLimit, pivotSelector);
+                low = greater + 1;
+            } else {
+                introSortHelper(array, greater + 1, high, depthLimit, pivotSelector);
+                high = less - 1;
+            }
+        }
+
+        insertionSort(array, low, high);
+    }
+
+    private static void insertionSort(Comparable[] array, int low, int high) {
+        /*
+        Sorts the small range array[low..high] (inclusive) in ascending order
+         */
+
+        for (int i = low + 1; i <= high; i++) {
+            Comparable element = array[i];
+            int j = i - 1;
+
+            while (j >= low && array[j].compareTo(element) > 0) {
+                array[j + 1] = array[j];
+                j -= 1;
+            }
+
+            array[j + 1] = element;
+        }
+    }
+
+    static void reverse(Object[] array, int low, int high) {
+        /*
+        Reverses array[low..high] (inclusive) in place
+         */
+
+        while (low < high) {
+            swap(array, low, high);
+            low += 1;
+            high -= 1;
+        }
+    }
+
     private static Object[] swap(Object[] array, int index1, int index2) {
         /*
         Swaps the elements in respective indices
@@ -102,9 +238,881 @@ public class Quicksort {
         return array;
     }
 
-    private static int generateRandomIndex(int arrayLength) {
-        Random rand = new Random();
+    public static int[] quickSort(int[] unsortedArray) {
+        return quickSort(unsortedArray, true);
+    }
+
+    public static int[] quickSort(int[] unsortedArray, boolean increasing) {
+        /*
+        Sorts the given input array of ints in place with dual-pivot quicksort
+
+        Parameters:
+            unsortedArray: The array we wish to sort
+            increasing: Whether to sort from smallest to largest element
+
+        Returns:
+            The input array, now sorted
+         */
+
+        dualPivotQuickSort(unsortedArray, 0, unsortedArray.length - 1);
+
+        // Descending order reverses once at the end instead of flipping every comparison
+        if (!increasing) {
+            reverse(unsortedArray, 0, unsortedArray.length - 1);
+        }
+
+        return unsortedArray;
+    }
+
+    static void dualPivotQuickSort(int[] array, int low, int high) {
+        /*
+        Sorts array[low..high] (inclusive) in ascending order by partitioning around two pivots into
+        the elements below the first, between the two, and above the second
+         */
+
+        dualPivotQuickSort(array, low, high, depthLimit(high - low + 1));
+    }
+
+    private static void dualPivotQuickSort(int[] array, int low, int high, int depthLimit) {
+        /*
+        Sorts array[low..high] (inclusive) in ascending order, switching to heapsort once depthLimit
+        partitioning levels are used up so that inputs defeating the tertile pivots stay O(n log n)
+         */
+
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            if (depthLimit == 0) {
+                HeapSort.heapSortRange(array, low, high);
+                return;
+            }
+
+            depthLimit -= 1;
+
+            // Take the pivots from the tertiles so that sorted and reversed inputs split evenly
+            int third = (high - low) / 3;
+            int leftPivotIndex = low + third;
+            int rightPivotIndex = high - third;
+
+            if (array[leftPivotIndex] > array[rightPivotIndex]) {
+                swap(array, leftPivotIndex, rightPivotIndex);
+            }
+
+            swap(array, leftPivotIndex, low);
+            swap(array, rightPivotIndex, high);
+
+            int leftPivot = array[low];
+            int rightPivot = array[high];
+
+            // Invariant: array[low+1..less) < leftPivot, array(great..high) > rightPivot
+            int less = low + 1;
+            int great = high - 1;
+
+            for (int k = less; k <= great; k++) {
+                int element = array[k];
+
+                if (element < leftPivot) {
+                    array[k] = array[less];
+                    array[less] = element;
+                    less += 1;
+                } else if (element > rightPivot) {
+                    while (array[great] > rightPivot && k < great) {
+                        great -= 1;
+                    }
+
+                    array[k] = array[great];
+                    array[great] = element;
+                    great -= 1;
+
+                    element = array[k];
+
+                    if (element < leftPivot) {
+                        array[k] = array[less];
+                        array[less] = element;
+                        less += 1;
+                    }
+                }
+            }
+
+            // Move the pivots to their final positions
+            array[low] = array[less - 1];
+            array[less - 1] = leftPivot;
+            array[high] = array[great + 1];
+            array[great + 1] = rightPivot;
+
+            int leftHigh = less - 2;
+            int rightLow = great + 2;
+
+            if (leftPivot == rightPivot) {
+                // With equal pivots the middle part holds nothing but copies of the pivot
+                great = less - 1;
+            } else if (great - less > 2 * (high - low) / 3) {
+                // If the middle part is most of the range, squeeze out copies of the pivots first so that
+                // duplicate heavy inputs keep shrinking
+                for (int k = less; k <= great; k++) {
+                    int element = array[k];
+
+                    if (element == leftPivot) {
+                        array[k] = array[less];
+                        array[less] = element;
+                        less += 1;
+                    } else if (element == rightPivot) {
+                        while (array[great] == rightPivot && k < great) {
+                            great -= 1;
+                        }
+
+                        array[k] = array[great];
+                        array[great] = element;
+                        great -= 1;
+
+                        element = array[k];
+
+                        if (element == leftPivot) {
+                            array[k] = array[less];
+                            array[less] = element;
+                            less += 1;
+                        }
+                    }
+                }
+            }
+
+            // Recurse into the two smaller parts and loop on the largest so the stack stays O(log n)
+            int leftLength = leftHigh - low;
+            int middleLength = great - less;
+            int rightLength = high - rightLow;
+
+            if (leftLength >= middleLength && leftLength >= rightLength) {
+                dualPivotQuickSort(array, less, great, depthLimit);
+                dualPivotQuickSort(array, rightLow, high, depthLimit);
+                high = leftHigh;
+            } else if (rightLength >= middleLength) {
+                dualPivotQuickSort(array, low, leftHigh, depthLimit);
+                dualPivotQuickSort(array, less, great, depthLimit);
+                low = rightLow;
+            } else {
+                dualPivotQuickSort(array, low, leftHigh, depthLimit);
+                dualPivotQuickSort(array, rightLow, high, depthLimit);
+                low = less;
+                high = great;
+            }
+        }
+
+        insertionSort(array, low, high);
+    }
+
+    private static void insertionSort(int[] array, int low, int high) {
+        /*
+        Sorts the small range array[low..high] (inclusive) in ascending order
+         */
+
+        for (int i = low + 1; i <= high; i++) {
+            int element = array[i];
+            int j = i - 1;
+
+            while (j >= low && array[j] > element) {
+                array[j + 1] = array[j];
+                j -= 1;
+            }
+
+            array[j + 1] = element;
+        }
+    }
+
+    private static void swap(int[] array, int index1, int index2) {
+        int temp = array[index1];
+        array[index1] = array[index2];
+        array[index2] = temp;
+    }
+
+    static void reverse(int[] array, int low, int high) {
+        /*
+        Reverses array[low..high] (inclusive) in place
+         */
+
+        while (low < high) {
+            swap(array, low, high);
+            low += 1;
+            high -= 1;
+        }
+    }
+
+    public static long[] quickSort(long[] unsortedArray) {
+        return quickSort(unsortedArray, true);
+    }
+
+    public static long[] quickSort(long[] unsortedArray, boolean increasing) {
+        /*
+        Sorts the given input array of longs in place with dual-pivot quicksort
+
+        Parameters:
+            unsortedArray: The array we wish to sort
+            increasing: Whether to sort from smallest to largest element
+
+        Returns:
+            The input array, now sorted
+         */
+
+        dualPivotQuickSort(unsortedArray, 0, unsortedArray.length - 1);
+
+        // Descending order reverses once at the end instead of flipping every comparison
+        if (!increasing) {
+            reverse(unsortedArray, 0, unsortedArray.length - 1);
+        }
+
+        return unsortedArray;
+    }
+
+    static void dualPivotQuickSort(long[] array, int low, int high) {
+        /*
+        Sorts array[low..high] (inclusive) in ascending order by partitioning around two pivots into
+        the elements below the first, between the two, and above the second
+         */
+
+        dualPivotQuickSort(array, low, high, depthLimit(high - low + 1));
+    }
+
+    private static void dualPivotQuickSort(long[] array, int low, int high, int depthLimit) {
+        /*
+        Sorts array[low..high] (inclusive) in ascending order, switching to heapsort once depthLimit
+        partitioning levels are used up so that inputs defeating the tertile pivots stay O(n log n)
+         */
+
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            if (depthLimit == 0) {
+                HeapSort.heapSortRange(array, low, high);
+                return;
+            }
+
+            depthLimit -= 1;
+
+            // Take the pivots from the tertiles so that sorted and reversed inputs split evenly
+            int third = (high - low) / 3;
+            int leftPivotIndex = low + third;
+            int rightPivotIndex = high - third;
+
+            if (array[leftPivotIndex] > array[rightPivotIndex]) {
+                swap(array, leftPivotIndex, rightPivotIndex);
+            }
+
+            swap(array, leftPivotIndex, low);
+            swap(array, rightPivotIndex, high);
+
+            long leftPivot = array[low];
+            long rightPivot = array[high];
+
+            // Invariant: array[low+1..less) < leftPivot, array(great..high) > rightPivot
+            int less = low + 1;
+            int great = high - 1;
+
+            for (int k = less; k <= great; k++) {
+                long element = array[k];
+
+                if (element < leftPivot) {
+                    array[k] = array[less];
+                    array[less] = element;
+                    less += 1;
+                } else if (element > rightPivot) {
+                    while (array[great] > rightPivot && k < great) {
+                        great -= 1;
+                    }
+
+                    array[k] = array[great];
+                    array[great] = element;
+                    great -= 1;
+
+                    element = array[k];
+
+                    if (element < leftPivot) {
+                        array[k] = array[less];
+                        array[less] = element;
+                        less += 1;
+                    }
+                }
+            }
+
+            // Move the pivots to their final positions
+            array[low] = array[less - 1];
+            array[less - 1] = leftPivot;
+            array[high] = array[great + 1];
+            array[great + 1] = rightPivot;
+
+            int leftHigh = less - 2;
+            int rightLow = great + 2;
+
+            if (leftPivot == rightPivot) {
+                // With equal pivots the middle part holds nothing but copies of the pivot
+                great = less - 1;
+            } else if (great - less > 2 * (high - low) / 3) {
+                // If the middle part is most of the range, squeeze out copies of the pivots first so that
+                // duplicate heavy inputs keep shrinking
+                for (int k = less; k <= great; k++) {
+                    long element = array[k];
+
+                    if (element == leftPivot) {
+                        array[k] = array[less];
+                        array[less] = element;
+                        less += 1;
+                    } else if (element == rightPivot) {
+                        while (array[great] == rightPivot && k < great) {
+                            great -= 1;
+                        }
+
+                        array[k] = array[great];
+                        array[great] = element;
+                        great -= 1;
+
+                        element = array[k];
+
+                        if (element == leftPivot) {
+                            array[k] = array[less];
+                            array[less] = element;
+                            less += 1;
+                        }
+                    }
+                }
+            }
+
+            // Recurse into the two smaller parts and loop on the largest so the stack stays O(log n)
+            int leftLength = leftHigh - low;
+            int middleLength = great - less;
+            int rightLength = high - rightLow;
+
+            if (leftLength >= middleLength && leftLength >= rightLength) {
+                dualPivotQuickSort(array, less, great, depthLimit);
+                dualPivotQuickSort(array, rightLow, high, depthLimit);
+                high = leftHigh;
+            } else if (rightLength >= middleLength) {
+                dualPivotQuickSort(array, low, leftHigh, depthLimit);
+                dualPivotQuickSort(array, less, great, depthLimit);
+                low = rightLow;
+            } else {
+                dualPivotQuickSort(array, low, leftHigh, depthLimit);
+                dualPivotQuickSort(array, rightLow, high, depthLimit);
+                low = less;
+                high = great;
+            }
+        }
+
+        insertionSort(array, low, high);
+    }
+
+    private static void insertionSort(long[] array, int low, int high) {
+        /*
+        Sorts the small range array[low..high] (inclusive) in ascending order
+         */
+
+        for (int i = low + 1; i <= high; i++) {
+            long element = array[i];
+            int j = i - 1;
+
+            while (j >= low && array[j] > element) {
+                array[j + 1] = array[j];
+                j -= 1;
+            }
+
+            array[j + 1] = element;
+        }
+    }
+
+    private static void swap(long[] array, int index1, int index2) {
+        long temp = array[index1];
+        array[index1] = array[index2];
+        array[index2] = temp;
+    }
+
+    static void reverse(long[] array, int low, int high) {
+        /*
+        Reverses array[low..high] (inclusive) in place
+         */
+
+        while (low < high) {
+            swap(array, low, high);
+            low += 1;
+            high -= 1;
+        }
+    }
+
+    public static float[] quickSort(float[] unsortedArray) {
+        return quickSort(unsortedArray, true);
+    }
+
+    public static float[] quickSort(float[] unsortedArray, boolean increasing) {
+        /*
+        Sorts the given input array of floats in place with dual-pivot quicksort
+
+        NaNs are placed after every other value and -0.0 before 0.0, matching Float.compare
+
+        Parameters:
+            unsortedArray: The array we wish to sort
+            increasing: Whether to sort from smallest to largest element
+
+        Returns:
+            The input array, now sorted
+         */
+
+        // NaN fails every comparison, so park NaNs at the end where Float.compare puts them and sort the
+        // rest. Negative zeros compare equal to positive zeros, so count them and restore them afterwards
+        int high = unsortedArray.length - 1;
+        int negativeZeros = 0;
+
+        for (int k = high; k >= 0; k--) {
+            float element = unsortedArray[k];
+
+            if (element != element) {
+                unsortedArray[k] = unsortedArray[high];
+                unsortedArray[high] = element;
+                high -= 1;
+            } else if (element == 0 && Float.floatToRawIntBits(element) < 0) {
+                unsortedArray[k] = 0;
+                negativeZeros += 1;
+            }
+        }
+
+        dualPivotQuickSort(unsortedArray, 0, high);
+
+        // All zeros are now adjacent, the first negativeZeros of them become -0.0 again
+        if (negativeZeros > 0) {
+            int zeroIndex = firstZero(unsortedArray, 0, high);
+
+            for (int k = zeroIndex; k < zeroIndex + negativeZeros; k++) {
+                unsortedArray[k] = -0.0f;
+            }
+        }
+
+        // Descending order reverses once at the end instead of flipping every comparison
+        if (!increasing) {
+            reverse(unsortedArray, 0, unsortedArray.length - 1);
+        }
+
+        return unsortedArray;
+    }
+
+    static void dualPivotQuickSort(float[] array, int low, int high) {
+        /*
+        Sorts array[low..high] (inclusive) in ascending order by partitioning around two pivots into
+        the elements below the first, between the two, and above the second
+         */
+
+        dualPivotQuickSort(array, low, high, depthLimit(high - low + 1));
+    }
+
+    private static void dualPivotQuickSort(float[] array, int low, int high, int depthLimit) {
+        /*
+        Sorts array[low..high] (inclusive) in ascending order, switching to heapsort once depthLimit
+        partitioning levels are used up so that inputs defeating the tertile pivots stay O(n log n)
+         */
+
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            if (depthLimit == 0) {
+                HeapSort.heapSortRange(array, low, high);
+                return;
+            }
+
+            depthLimit -= 1;
+
+            // Take the pivots from the tertiles so that sorted and reversed inputs split evenly
+            int third = (high - low) / 3;
+            int leftPivotIndex = low + third;
+            int rightPivotIndex = high - third;
+
+            if (array[leftPivotIndex] > array[rightPivotIndex]) {
+                swap(array, leftPivotIndex, rightPivotIndex);
+            }
+
+            swap(array, leftPivotIndex, low);
+            swap(array, rightPivotIndex, high);
+
+            float leftPivot = array[low];
+            float rightPivot = array[high];
+
+            // Invariant: array[low+1..less) < leftPivot, array(great..high) > rightPivot
+            int less = low + 1;
+            int great = high - 1;
+
+            for (int k = less; k <= great; k++) {
+                float element = array[k];
+
+                if (element < leftPivot) {
+                    array[k] = array[less];
+                    array[less] = element;
+                    less += 1;
+                } else if (element > rightPivot) {
+                    while (array[great] > rightPivot && k < great) {
+                        great -= 1;
+                    }
+
+                    array[k] = array[great];
+                    array[great] = element;
+                    great -= 1;
+
+                    element = array[k];
+
+                    if (element < leftPivot) {
+                        array[k] = array[less];
+                        array[less] = element;
+                        less += 1;
+                    }
+                }
+            }
+
+            // Move the pivots to their final positions
+            array[low] = array[less - 1];
+            array[less - 1] = leftPivot;
+            array[high] = array[great + 1];
+            array[great + 1] = rightPivot;
+
+            int leftHigh = less - 2;
+            int rightLow = great + 2;
+
+            if (leftPivot == rightPivot) {
+                // With equal pivots the middle part holds nothing but copies of the pivot
+                great = less - 1;
+            } else if (great - less > 2 * (high - low) / 3) {
+                // If the middle part is most of the range, squeeze out copies of the pivots first so that
+                // duplicate heavy inputs keep shrinking
+                for (int k = less; k <= great; k++) {
+                    float element = array[k];
+
+                    if (element == leftPivot) {
+                        array[k] = array[less];
+                        array[less] = element;
+                        less += 1;
+                    } else if (element == rightPivot) {
+                        while (array[great] == rightPivot && k < great) {
+                            great -= 1;
+                        }
+
+                        array[k] = array[great];
+                        array[great] = element;
+                        great -= 1;
+
+                        element = array[k];
+
+                        if (element == leftPivot) {
+                            array[k] = array[less];
+                            array[less] = element;
+                            less += 1;
+                        }
+                    }
+                }
+            }
+
+            // Recurse into the two smaller parts and loop on the largest so the stack stays O(log n)
+            int leftLength = leftHigh - low;
+            int middleLength = great - less;
+            int rightLength = high - rightLow;
+
+            if (leftLength >= middleLength && leftLength >= rightLength) {
+                dualPivotQuickSort(array, less, great, depthLimit);
+                dualPivotQuickSort(array, rightLow, high, depthLimit);
+                high = leftHigh;
+            } else if (rightLength >= middleLength) {
+                dualPivotQuickSort(array, low, leftHigh, depthLimit);
+                dualPivotQuickSort(array, less, great, depthLimit);
+                low = rightLow;
+            } else {
+                dualPivotQuickSort(array, low, leftHigh, depthLimit);
+                dualPivotQuickSort(array, rightLow, high, depthLimit);
+                low = less;
+                high = great;
+            }
+        }
+
+        insertionSort(array, low, high);
+    }
+
+    private static void insertionSort(float[] array, int low, int high) {
+        /*
+        Sorts the small range array[low..high] (inclusive) in ascending order
+         */
+
+        for (int i = low + 1; i <= high; i++) {
+            float element = array[i];
+            int j = i - 1;
+
+            while (j >= low && array[j] > element) {
+                array[j + 1] = array[j];
+                j -= 1;
+            }
+
+            array[j + 1] = element;
+        }
+    }
+
+    private static void swap(float[] array, int index1, int index2) {
+        float temp = array[index1];
+        array[index1] = array[index2];
+        array[index2] = temp;
+    }
+
+    static void reverse(float[] array, int low, int high) {
+        /*
+        Reverses array[low..high] (inclusive) in place
+         */
+
+        while (low < high) {
+            swap(array, low, high);
+            low += 1;
+            high -= 1;
+        }
+    }
+
+    private static int firstZero(float[] array, int low, int high) {
+        /*
+        Binary searches the ascending range array[low..high] (inclusive) for its first zero
+         */
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (array[middle] < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    public static double[] quickSort(double[] unsortedArray) {
+        return quickSort(unsortedArray, true);
+    }
+
+    public static double[] quickSort(double[] unsortedArray, boolean increasing) {
+        /*
+        Sorts the given input array of doubles in place with dual-pivot quicksort
+
+        NaNs are placed after every other value and -0.0 before 0.0, matching Double.compare
+
+        Parameters:
+            unsortedArray: The array we wish to sort
+            increasing: Whether to sort from smallest to largest element
+
+        Returns:
+            The input array, now sorted
+         */
+
+        // NaN fails every comparison, so park NaNs at the end where Double.compare puts them and sort the
+        // rest. Negative zeros compare equal to positive zeros, so count them and restore them afterwards
+        int high = unsortedArray.length - 1;
+        int negativeZeros = 0;
+
+        for (int k = high; k >= 0; k--) {
+            double element = unsortedArray[k];
+
+            if (element != element) {
+                unsortedArray[k] = unsortedArray[high];
+                unsortedArray[high] = element;
+                high -= 1;
+            } else if (element == 0 && Double.doubleToRawLongBits(element) < 0) {
+                unsortedArray[k] = 0;
+                negativeZeros += 1;
+            }
+        }
+
+        dualPivotQuickSort(unsortedArray, 0, high);
+
+        // All zeros are now adjacent, the first negativeZeros of them become -0.0 again
+        if (negativeZeros > 0) {
+            int zeroIndex = firstZero(unsortedArray, 0, high);
+
+            for (int k = zeroIndex; k < zeroIndex + negativeZeros; k++) {
+                unsortedArray[k] = -0.0;
+            }
+        }
+
+        // Descending order reverses once at the end instead of flipping every comparison
+        if (!increasing) {
+            reverse(unsortedArray, 0, unsortedArray.length - 1);
+        }
+
+        return unsortedArray;
+    }
+
+    static void dualPivotQuickSort(double[] array, int low, int high) {
+        /*
+        Sorts array[low..high] (inclusive) in ascending order by partitioning around two pivots into
+        the elements below the first, between the two, and above the second
+         */
+
+        dualPivotQuickSort(array, low, high, depthLimit(high - low + 1));
+    }
+
+    private static void dualPivotQuickSort(double[] array, int low, int high, int depthLimit) {
+        /*
+        Sorts array[low..high] (inclusive) in ascending order, switching to heapsort once depthLimit
+        partitioning levels are used up so that inputs defeating the tertile pivots stay O(n log n)
+         */
+
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            if (depthLimit == 0) {
+                HeapSort.heapSortRange(array, low, high);
+                return;
+            }
+
+            depthLimit -= 1;
+
+            // Take the pivots from the tertiles so that sorted and reversed inputs split evenly
+            int third = (high - low) / 3;
+            int leftPivotIndex = low + third;
+            int rightPivotIndex = high - third;
+
+            if (array[leftPivotIndex] > array[rightPivotIndex]) {
+                swap(array, leftPivotIndex, rightPivotIndex);
+            }
+
+            swap(array, leftPivotIndex, low);
+            swap(array, rightPivotIndex, high);
+
+            double leftPivot = array[low];
+            double rightPivot = array[high];
+
+            // Invariant: array[low+1..less) < leftPivot, array(great..high) > rightPivot
+            int less = low + 1;
+            int great = high - 1;
+
+            for (int k = less; k <= great; k++) {
+                double element = array[k];
+
+                if (element < leftPivot) {
+                    array[k] = array[less];
+                    array[less] = element;
+                    less += 1;
+                } else if (element > rightPivot) {
+                    while (array[great] > rightPivot && k < great) {
+                        great -= 1;
+                    }
+
+                    array[k] = array[great];
+                    array[great] = element;
+                    great -= 1;
+
+                    element = array[k];
+
+                    if (element < leftPivot) {
+                        array[k] = array[less];
+                        array[less] = element;
+                        less += 1;
+                    }
+                }
+            }
+
+            // Move the pivots to their final positions
+            array[low] = array[less - 1];
+            array[less - 1] = leftPivot;
+            array[high] = array[great + 1];
+            array[great + 1] = rightPivot;
+
+            int leftHigh = less - 2;
+            int rightLow = great + 2;
+
+            if (leftPivot == rightPivot) {
+                // With equal pivots the middle part holds nothing but copies of the pivot
+                great = less - 1;
+            } else if (great - less > 2 * (high - low) / 3) {
+                // If the middle part is most of the range, squeeze out copies of the pivots first so that
+                // duplicate heavy inputs keep shrinking
+                for (int k = less; k <= great; k++) {
+                    double element = array[k];
+
+                    if (element == leftPivot) {
+                        array[k] = array[less];
+                        array[less] = element;
+                        less += 1;
+                    } else if (element == rightPivot) {
+                        while (array[great] == rightPivot && k < great) {
+                            great -= 1;
+                        }
+
+                        array[k] = array[great];
+                        array[great] = element;
+                        great -= 1;
+
+                        element = array[k];
+
+                        if (element == leftPivot) {
+                            array[k] = array[less];
+                            array[less] = element;
+                            less += 1;
+                        }
+                    }
+                }
+            }
+
+            // Recurse into the two smaller parts and loop on the largest so the stack stays O(log n)
+            int leftLength = leftHigh - low;
+            int middleLength = great - less;
+            int rightLength = high - rightLow;
+
+            if (leftLength >= middleLength && leftLength >= rightLength) {
+                dualPivotQuickSort(array, less, great, depthLimit);
+                dualPivotQuickSort(array, rightLow, high, depthLimit);
+                high = leftHigh;
+            } else if (rightLength >= middleLength) {
+                dualPivotQuickSort(array, low, leftHigh, depthLimit);
+                dualPivotQuickSort(array, less, great, depthLimit);
+                low = rightLow;
+            } else {
+                dualPivotQuickSort(array, low, leftHigh, depthLimit);
+                dualPivotQuickSort(array, rightLow, high, depthLimit);
+                low = less;
+                high = great;
+            }
+        }
+
+        insertionSort(array, low, high);
+    }
+
+    private static void insertionSort(double[] array, int low, int high) {
+        /*
+        Sorts the small range array[low..high] (inclusive) in ascending order
+         */
+
+        for (int i = low + 1; i <= high; i++) {
+            double element = array[i];
+            int j = i - 1;
+
+            while (j >= low && array[j] > element) {
+                array[j + 1] = array[j];
+                j -= 1;
+            }
+
+            array[j + 1] = element;
+        }
+    }
+
+    private static void swap(double[] array, int index1, int index2) {
+        double temp = array[index1];
+        array[index1] = array[index2];
+        array[index2] = temp;
+    }
+
+    static void reverse(double[] array, int low, int high) {
+        /*
+        Reverses array[low..high] (inclusive) in place
+         */
+
+        while (low < high) {
+            swap(array, low, high);
+            low += 1;
+            high -= 1;
+        }
+    }
+
+    private static int firstZero(double[] array, int low, int high) {
+        /*
+        Binary searches the ascending range array[low..high] (inclusive) for its first zero
+         */
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (array[middle] < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
 
-        return rand.nextInt(arrayLength);
+        return low;
     }
 }
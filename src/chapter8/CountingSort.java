@@ -1,7 +1,22 @@
 package chapter8;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToIntFunction;
+
+import static chapter8.ParallelMSDRadixSort.blockStart;
+import static chapter8.ParallelMSDRadixSort.forEachBlock;
 
 public class CountingSort<T> {
+
+    // Ranges of values wider than this multiple of the input length are radix sorted instead by default
+    public static final int DEFAULT_MAX_RANGE_FACTOR = 4;
+
+    // Inputs at least this long have their histogram counted by all workers of the common pool
+    private static final int PARALLEL_THRESHOLD = 1 << 20;
+
+    // The largest count array the JVM reliably allocates
+    private static final long MAX_COUNTS = Integer.MAX_VALUE - 8;
+
     public static int[] countingSort(int[] unsortedArray) {
         /*
         Sorts the array using counting sort
@@ -13,60 +28,208 @@ public class CountingSort<T> {
             The sorted array
          */
 
-        return countingSortHelper(unsortedArray, true);
+        return countingSortHelper(unsortedArray, true, DEFAULT_MAX_RANGE_FACTOR);
     }
 
     public static int[] countingSort(int[] unsortedArray, boolean increasing) {
-        return countingSortHelper(unsortedArray, increasing);
+        return countingSortHelper(unsortedArray, increasing, DEFAULT_MAX_RANGE_FACTOR);
     }
 
-    private static int[] countingSortHelper(int[] unsortedArray, boolean increasing) {
-        // Determine the max of the array
-        int max = Integer.MIN_VALUE;
+    public static int[] countingSort(int[] unsortedArray, boolean increasing, int maxRangeFactor) {
+        /*
+        Sorts the array using counting sort if its values are dense enough, and radix sort otherwise
 
-        for (int element : unsortedArray) {
-            // Check against max
-            if (element > max) {
-                max = element;
-            }
+        Parameters:
+            unsortedArray: The unsorted array to sort
+            increasing: Whether to sort from smallest to largest element
+            maxRangeFactor: The widest range of values, as a multiple of the array length, that is
+                            still counted. One outlier would otherwise allocate a huge count array
+
+        Returns:
+            The sorted array
+         */
+
+        return countingSortHelper(unsortedArray, increasing, maxRangeFactor);
+    }
+
+    private static int[] countingSortHelper(int[] unsortedArray, boolean increasing, int maxRangeFactor) {
+        if (unsortedArray.length < 2) {
+            return unsortedArray;
         }
 
-        // Determine the min of the array for shifting
-        int min = Integer.MAX_VALUE;
+        // Determine the min and max of the array in a single pass
+        int min = unsortedArray[0];
+        int max = unsortedArray[0];
 
         for (int element : unsortedArray) {
-            // Check against min
             if (element < min) {
                 min = element;
+            } else if (element > max) {
+                max = element;
             }
         }
 
-        // Build a counts array
-        int[] countArray = new int[max - min + 1];
+        // Computed in longs since max - min overflows for ranges wider than Integer.MAX_VALUE
+        long range = (long) max - min + 1;
 
-        // Loop over unsorted array and count occurrences
-        for (int element : unsortedArray) {
-            countArray[element - min] += 1;
+        if (range > (long) maxRangeFactor * unsortedArray.length || range > MAX_COUNTS) {
+            return LSDRadixSort.radixSort(unsortedArray, increasing);
+        }
+
+        int length = unsortedArray.length;
+        int numValues = (int) range;
+        int offset = min;
+
+        // Per block count arrays are only worth it while they stay small next to the input
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        int numBlocks = 1;
+
+        if (parallelism > 1 && length >= PARALLEL_THRESHOLD) {
+            numBlocks = (int) Math.max(1, Math.min(parallelism, length / range));
+        }
+
+        // Build a counts array per block
+        int[][] counts = new int[numBlocks][numValues];
+        int countBlocks = numBlocks;
+
+        forEachBlock(countBlocks, block -> {
+            int[] blockCounts = counts[block];
+            int end = blockStart(0, length, countBlocks, block + 1);
+
+            for (int i = blockStart(0, length, countBlocks, block); i < end; i++) {
+                blockCounts[unsortedArray[i] - offset] += 1;
+            }
+        });
+
+        int[] totals = counts[0];
+
+        // Merge the block counts, each worker summing its own slice of the values
+        if (numBlocks > 1) {
+            forEachBlock(countBlocks, block -> {
+                int end = blockStart(0, numValues, countBlocks, block + 1);
+
+                for (int value = blockStart(0, numValues, countBlocks, block); value < end; value++) {
+                    for (int other = 1; other < countBlocks; other++) {
+                        totals[value] += counts[other][value];
+                    }
+                }
+            });
+        }
+
+        // Turn the counts into the index each value starts at
+        int[] starts = new int[numValues + 1];
+
+        for (int value = 0; value < numValues; value++) {
+            starts[value + 1] = starts[value] + totals[value];
         }
 
-        // Loop over elements and copy them into array
-        int currentPlacementIndex = 0; // Where to place the next element when we encounter it
-        int count;
+        // Write every value over its slice of the array, in parallel over slices of the values
+        forEachBlock(numBlocks, block -> {
+            int end = blockStart(0, numValues, countBlocks, block + 1);
 
-        for (int i = 0; i < countArray.length; i++) {
-            for (int j = 0; j < countArray[i]; j++) {
+            for (int value = blockStart(0, numValues, countBlocks, block); value < end; value++) {
                 if (increasing) {
-                    // Add to the leftmost point
-                    unsortedArray[currentPlacementIndex] = i + min;
-                    currentPlacementIndex += 1;
+                    fill(unsortedArray, starts[value], starts[value + 1], value + offset);
                 } else {
-                    // Add to the rightmost point
-                    unsortedArray[unsortedArray.length - currentPlacementIndex - 1] = i + min;
-                    currentPlacementIndex += 1;
+                    fill(unsortedArray, length - starts[value + 1], length - starts[value], value + offset);
                 }
             }
-        }
+        });
 
         return unsortedArray;
     }
+
+    private static void fill(int[] array, int from, int to, int value) {
+        for (int i = from; i < to; i++) {
+            array[i] = value;
+        }
+    }
+
+    public static <T> T[] countingSort(T[] records, ToIntFunction<? super T> keyExtractor) {
+        return countingSort(records, keyExtractor, true);
+    }
+
+    public static <T> T[] countingSort(T[] records, ToIntFunction<? super T> keyExtractor, boolean increasing) {
+        /*
+        Stably sorts records in place by a small integer key, e.g. a partition id or a priority level
+
+        Records with equal keys keep their original order in both directions. If the keys span more than
+        DEFAULT_MAX_RANGE_FACTOR times the number of records, the records are radix sorted by key instead
+
+        Parameters:
+            records: The records to sort
+            keyExtractor: Returns the key of a record, it is called exactly once per record
+            increasing: Whether to sort from smallest to largest key
+
+        Returns:
+            The same array, sorted
+         */
+
+        int length = records.length;
+
+        if (length < 2) {
+            return records;
+        }
+
+        int[] keys = new int[length];
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+
+        for (int i = 0; i < length; i++) {
+            keys[i] = keyExtractor.applyAsInt(records[i]);
+            min = Math.min(min, keys[i]);
+            max = Math.max(max, keys[i]);
+        }
+
+        T[] original = records.clone();
+        long range = (long) max - min + 1;
+
+        if (range > (long) DEFAULT_MAX_RANGE_FACTOR * length) {
+            // Inverting every key reverses the order while keeping the sort stable
+            if (!increasing) {
+                for (int i = 0; i < length; i++) {
+                    keys[i] = ~keys[i];
+                }
+            }
+
+            int[] permutation = new int[length];
+
+            for (int i = 0; i < length; i++) {
+                permutation[i] = i;
+            }
+
+            KeyRadixSort.sort(keys, permutation);
+
+            for (int i = 0; i < length; i++) {
+                records[i] = original[permutation[i]];
+            }
+
+            return records;
+        }
+
+        // Count the keys, then turn the counts into the index each key starts at
+        int numValues = (int) range;
+        int[] starts = new int[numValues];
+
+        for (int key : keys) {
+            starts[key - min] += 1;
+        }
+
+        int next = 0;
+
+        for (int i = 0; i < numValues; i++) {
+            int value = increasing ? i : numValues - 1 - i;
+            int count = starts[value];
+            starts[value] = next;
+            next += count;
+        }
+
+        // Scanning the records in order places equal keys in their original order
+        for (int i = 0; i < length; i++) {
+            records[starts[keys[i] - min]] = original[i];
+            starts[keys[i] - min] += 1;
+        }
+
+        return records;
+    }
 }
@@ -0,0 +1,259 @@
+package chapter8;
+
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import static chapter8.LSDRadixSort.DIGIT_MASK;
+import static chapter8.LSDRadixSort.RADIX;
+import static chapter8.LSDRadixSort.RADIX_BITS;
+import static chapter8.LSDRadixSort.toOffsets;
+
+public class KeyRadixSort {
+    /*
+    Stable least significant digit radix sorts of records by an int or long key, without ever comparing
+    the records themselves
+
+    Each key is extracted once and sorted together with the index of its record, one byte per pass. The
+    records are then moved by the resulting permutation, so sorting costs O(n) key extractions and
+    O(n) work per key byte regardless of how expensive the records are to compare
+     */
+
+    public static int[] sortedPermutation(int[] keys) {
+        /*
+        Returns the stable sorting permutation of the keys, the keys themselves are left untouched
+
+        Parameters:
+            keys: The keys to sort by
+
+        Returns:
+            An array p such that keys[p[0]] <= keys[p[1]] <= ..., where equal keys keep their original order
+         */
+
+        int[] sortedKeys = keys.clone();
+        int[] permutation = identity(keys.length);
+
+        sort(sortedKeys, permutation);
+
+        return permutation;
+    }
+
+    public static int[] sortedPermutation(long[] keys) {
+        long[] sortedKeys = keys.clone();
+        int[] permutation = identity(keys.length);
+
+        sort(sortedKeys, permutation);
+
+        return permutation;
+    }
+
+    public static <T> int[] sortedPermutationByInt(T[] records, ToIntFunction<? super T> keyExtractor) {
+        /*
+        Returns the stable sorting permutation of the records by the given key, see sortedPermutation
+
+        Parameters:
+            records: The records to sort, they are not moved
+            keyExtractor: Returns the key of a record, it is called exactly once per record
+         */
+
+        int[] keys = new int[records.length];
+
+        for (int i = 0; i < records.length; i++) {
+            keys[i] = keyExtractor.applyAsInt(records[i]);
+        }
+
+        int[] permutation = identity(records.length);
+        sort(keys, permutation);
+
+        return permutation;
+    }
+
+    public static <T> int[] sortedPermutationByLong(T[] records, ToLongFunction<? super T> keyExtractor) {
+        long[] keys = new long[records.length];
+
+        for (int i = 0; i < records.length; i++) {
+            keys[i] = keyExtractor.applyAsLong(records[i]);
+        }
+
+        int[] permutation = identity(records.length);
+        sort(keys, permutation);
+
+        return permutation;
+    }
+
+    public static <T> T[] sortByInt(T[] records, ToIntFunction<? super T> keyExtractor) {
+        /*
+        Stably sorts the records in place by the given key, e.g. events by partition id
+
+        Parameters:
+            records: The records to sort
+            keyExtractor: Returns the key of a record, it is called exactly once per record
+
+        Returns:
+            The same array, sorted
+         */
+
+        return permute(records, sortedPermutationByInt(records, keyExtractor));
+    }
+
+    public static <T> T[] sortByLong(T[] records, ToLongFunction<? super T> keyExtractor) {
+        /*
+        Stably sorts the records in place by the given key, e.g. events by timestamp
+         */
+
+        return permute(records, sortedPermutationByLong(records, keyExtractor));
+    }
+
+    public static void sort(int[] keys, int[] payload) {
+        /*
+        Stably sorts the keys in ascending order, moving payload[i] along with keys[i]
+
+        Parameters:
+            keys: The keys to sort
+            payload: The values carried along, e.g. record indices, of the same length as keys
+         */
+
+        if (payload.length != keys.length) {
+            throw new IllegalArgumentException("Payload length " + payload.length + " does not match "
+                    + keys.length + " keys");
+        }
+
+        int numPasses = Integer.SIZE / RADIX_BITS;
+        int[][] counts = new int[numPasses][RADIX];
+
+        // Build the histogram of every byte in a single pass over the keys
+        for (int key : keys) {
+            for (int pass = 0; pass < numPasses; pass++) {
+                counts[pass][((key ^ Integer.MIN_VALUE) >>> (pass * RADIX_BITS)) & DIGIT_MASK] += 1;
+            }
+        }
+
+        int[] sourceKeys = keys;
+        int[] sourcePayload = payload;
+        int[] destinationKeys = null;
+        int[] destinationPayload = null;
+
+        for (int pass = 0; pass < numPasses && keys.length > 0; pass++) {
+            int shift = pass * RADIX_BITS;
+            int firstDigit = ((sourceKeys[0] ^ Integer.MIN_VALUE) >>> shift) & DIGIT_MASK;
+
+            // Every key shares this byte, so the pass would not move anything
+            if (counts[pass][firstDigit] == keys.length) {
+                continue;
+            }
+
+            if (destinationKeys == null) {
+                destinationKeys = new int[keys.length];
+                destinationPayload = new int[keys.length];
+            }
+
+            int[] offsets = toOffsets(counts[pass]);
+
+            // Scanning from the front keeps equal digits in order, which makes the sort stable
+            for (int i = 0; i < keys.length; i++) {
+                int digit = ((sourceKeys[i] ^ Integer.MIN_VALUE) >>> shift) & DIGIT_MASK;
+                destinationKeys[offsets[digit]] = sourceKeys[i];
+                destinationPayload[offsets[digit]] = sourcePayload[i];
+                offsets[digit] += 1;
+            }
+
+            int[] temp = sourceKeys;
+            sourceKeys = destinationKeys;
+            destinationKeys = temp;
+
+            temp = sourcePayload;
+            sourcePayload = destinationPayload;
+            destinationPayload = temp;
+        }
+
+        if (sourceKeys != keys) {
+            System.arraycopy(sourceKeys, 0, keys, 0, keys.length);
+            System.arraycopy(sourcePayload, 0, payload, 0, payload.length);
+        }
+    }
+
+    public static void sort(long[] keys, int[] payload) {
+        /*
+        Stably sorts the keys in ascending order, moving payload[i] along with keys[i]
+         */
+
+        if (payload.length != keys.length) {
+            throw new IllegalArgumentException("Payload length " + payload.length + " does not match "
+                    + keys.length + " keys");
+        }
+
+        int numPasses = Long.SIZE / RADIX_BITS;
+        int[][] counts = new int[numPasses][RADIX];
+
+        for (long key : keys) {
+            for (int pass = 0; pass < numPasses; pass++) {
+                counts[pass][(int) ((key ^ Long.MIN_VALUE) >>> (pass * RADIX_BITS)) & DIGIT_MASK] += 1;
+            }
+        }
+
+        long[] sourceKeys = keys;
+        int[] sourcePayload = payload;
+        long[] destinationKeys = null;
+        int[] destinationPayload = null;
+
+        for (int pass = 0; pass < numPasses && keys.length > 0; pass++) {
+            int shift = pass * RADIX_BITS;
+            int firstDigit = (int) ((sourceKeys[0] ^ Long.MIN_VALUE) >>> shift) & DIGIT_MASK;
+
+            // Timestamps typically share their high bytes, which skips most passes
+            if (counts[pass][firstDigit] == keys.length) {
+                continue;
+            }
+
+            if (destinationKeys == null) {
+                destinationKeys = new long[keys.length];
+                destinationPayload = new int[keys.length];
+            }
+
+            int[] offsets = toOffsets(counts[pass]);
+
+            for (int i = 0; i < keys.length; i++) {
+                int digit = (int) ((sourceKeys[i] ^ Long.MIN_VALUE) >>> shift) & DIGIT_MASK;
+                destinationKeys[offsets[digit]] = sourceKeys[i];
+                destinationPayload[offsets[digit]] = sourcePayload[i];
+                offsets[digit] += 1;
+            }
+
+            long[] tempKeys = sourceKeys;
+            sourceKeys = destinationKeys;
+            destinationKeys = tempKeys;
+
+            int[] tempPayload = sourcePayload;
+            sourcePayload = destinationPayload;
+            destinationPayload = tempPayload;
+        }
+
+        if (sourceKeys != keys) {
+            System.arraycopy(sourceKeys, 0, keys, 0, keys.length);
+            System.arraycopy(sourcePayload, 0, payload, 0, payload.length);
+        }
+    }
+
+    private static int[] identity(int length) {
+        int[] permutation = new int[length];
+
+        for (int i = 0; i < length; i++) {
+            permutation[i] = i;
+        }
+
+        return permutation;
+    }
+
+    private static <T> T[] permute(T[] records, int[] permutation) {
+        /*
+        Rearranges the records in place so that records[i] becomes the old records[permutation[i]]
+         */
+
+        T[] original = records.clone();
+
+        for (int i = 0; i < records.length; i++) {
+            records[i] = original[permutation[i]];
+        }
+
+        return records;
+    }
+}
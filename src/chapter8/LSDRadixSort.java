@@ -1,106 +1,291 @@
 package chapter8;
-import java.util.ArrayDeque;
 
 public class LSDRadixSort {
+
+    // Keys are split into bytes, one counting pass per byte
+    static final int RADIX_BITS = 8;
+    static final int RADIX = 1 << RADIX_BITS;
+    static final int DIGIT_MASK = RADIX - 1;
+
     public static int[] radixSort(int[] unsortedArray) {
-        return radixSortHelper(unsortedArray, true);
+        return radixSort(unsortedArray, true);
     }
 
     public static int[] radixSort(int[] unsortedArray, boolean ascending) {
-        return radixSortHelper(unsortedArray, ascending);
+        /*
+        Sorts the array by the least significant digit radix method, one byte at a time
+
+        Negative numbers are handled by flipping the sign bit of every key, which orders the keys as
+        unsigned numbers the same way as the signed originals
+
+        Parameters:
+            unsortedArray: The unsorted array we wish to radix sort
+            ascending: Whether or not we should sort from smallest to largest element
+
+        Returns:
+            The same array, sorted
+         */
+
+        radixSortHelper(unsortedArray);
+
+        if (!ascending) {
+            reverse(unsortedArray);
+        }
+
+        return unsortedArray;
+    }
+
+    public static long[] radixSort(long[] unsortedArray) {
+        return radixSort(unsortedArray, true);
+    }
+
+    public static long[] radixSort(long[] unsortedArray, boolean ascending) {
+        radixSortHelper(unsortedArray);
+
+        if (!ascending) {
+            reverse(unsortedArray);
+        }
+
+        return unsortedArray;
+    }
+
+    public static float[] radixSort(float[] unsortedArray) {
+        return radixSort(unsortedArray, true);
     }
 
-    private static int[] radixSortHelper(int[] unsortedArray, boolean ascending) {
+    public static float[] radixSort(float[] unsortedArray, boolean ascending) {
         /*
-        Sorts the array with by the least significant digit radix method
+        Sorts the array by the bits of each float, in the order of Float.compare: -0.0 comes before 0.0
+        and NaN comes last. Every NaN is returned as the canonical NaN
 
         Parameters:
             unsortedArray: The unsorted array we wish to radix sort
             ascending: Whether or not we should sort from smallest to largest element
+
+        Returns:
+            The same array, sorted
          */
 
-        // Get radix length
-        int maxWidth = getNumDigits(maxElement(unsortedArray));
+        int[] keys = new int[unsortedArray.length];
+
+        for (int i = 0; i < unsortedArray.length; i++) {
+            keys[i] = floatToKey(unsortedArray[i]);
+        }
 
-        // This array stores the elements of each digit
-        ArrayDeque<Integer>[] deques = new ArrayDeque[10];
+        radixSortHelper(keys);
 
-        // Populate the array deques list
-        for (int i = 0; i < deques.length; i++) {
-            deques[i] = new ArrayDeque<>();
+        for (int i = 0; i < keys.length; i++) {
+            // The mapping is its own inverse
+            unsortedArray[i] = Float.intBitsToFloat(floatToKeyBits(keys[i]));
         }
 
-        // Loop over the element width and sort
-        int currentDigit, arrayElement, currentPlacementIndex;
+        if (!ascending) {
+            reverse(unsortedArray);
+        }
 
-        // Loop over digit index
-        for (int digitIndex = 1; digitIndex <= maxWidth; digitIndex++) {
-            // Loop over array
-            for (int elementIndex = 0; elementIndex < unsortedArray.length; elementIndex++) {
-                // Get the current array element that we are enqueuing
-                arrayElement = unsortedArray[elementIndex];
+        return unsortedArray;
+    }
 
-                // Add this element to the correct queue
-                currentDigit = getNthDigit(arrayElement, digitIndex);
-                deques[currentDigit].add(arrayElement);
-            }
+    public static double[] radixSort(double[] unsortedArray) {
+        return radixSort(unsortedArray, true);
+    }
 
-            // Loop over deques and empty them back into the array
-            currentPlacementIndex = 0;
-
-            for (int dequeIndex = 0; dequeIndex < 10; dequeIndex++) {
-                // Dequeue all elements in the jth deque
-                while (deques[dequeIndex].size() > 0) {
-                    if (ascending) {
-                        unsortedArray[currentPlacementIndex] = deques[dequeIndex].pop();
-                        currentPlacementIndex += 1;
-                    } else {
-                        unsortedArray[unsortedArray.length - currentPlacementIndex - 1] = deques[dequeIndex].removeLast();
-                        currentPlacementIndex += 1;
-                    }
-                }
-            }
+    public static double[] radixSort(double[] unsortedArray, boolean ascending) {
+        /*
+        Sorts the array by the bits of each double, in the order of Double.compare, see the float[] overload
+         */
+
+        long[] keys = new long[unsortedArray.length];
+
+        for (int i = 0; i < unsortedArray.length; i++) {
+            keys[i] = doubleToKey(unsortedArray[i]);
+        }
+
+        radixSortHelper(keys);
+
+        for (int i = 0; i < keys.length; i++) {
+            unsortedArray[i] = Double.longBitsToDouble(doubleToKeyBits(keys[i]));
+        }
+
+        if (!ascending) {
+            reverse(unsortedArray);
         }
 
         return unsortedArray;
     }
 
-    private static int maxElement(int[] array) {
+    private static int floatToKey(float value) {
+        /*
+        Maps a float to an int whose signed order is the order of Float.compare, by flipping every bit
+        but the sign of negative floats
+         */
+
+        return floatToKeyBits(Float.floatToIntBits(value));
+    }
+
+    private static int floatToKeyBits(int bits) {
+        return bits ^ ((bits >> 31) & Integer.MAX_VALUE);
+    }
+
+    private static long doubleToKey(double value) {
         /*
-        Returns the maximum element of an array
+        Maps a double to a long whose signed order is the order of Double.compare
          */
 
-        int max = Integer.MIN_VALUE;
+        return doubleToKeyBits(Double.doubleToLongBits(value));
+    }
+
+    private static long doubleToKeyBits(long bits) {
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    private static void radixSortHelper(int[] array) {
+        /*
+        Sorts the array in ascending order with four byte wide counting passes
+         */
+
+        int numPasses = Integer.SIZE / RADIX_BITS;
+
+        // Build the histogram of every byte in a single pass over the input
+        int[][] counts = new int[numPasses][RADIX];
 
         for (int element : array) {
-            if (element > max) {
-                max = element;
+            int key = element ^ Integer.MIN_VALUE;
+
+            for (int pass = 0; pass < numPasses; pass++) {
+                counts[pass][(key >>> (pass * RADIX_BITS)) & DIGIT_MASK] += 1;
             }
         }
 
-        return max;
+        int[] source = array;
+        int[] destination = null;
+
+        for (int pass = 0; pass < numPasses && array.length > 0; pass++) {
+            int shift = pass * RADIX_BITS;
+            int firstDigit = ((source[0] ^ Integer.MIN_VALUE) >>> shift) & DIGIT_MASK;
+
+            // Every key shares this byte, so the pass would not move anything
+            if (counts[pass][firstDigit] == array.length) {
+                continue;
+            }
+
+            if (destination == null) {
+                destination = new int[array.length];
+            }
+
+            int[] offsets = toOffsets(counts[pass]);
+
+            for (int element : source) {
+                int digit = ((element ^ Integer.MIN_VALUE) >>> shift) & DIGIT_MASK;
+                destination[offsets[digit]] = element;
+                offsets[digit] += 1;
+            }
+
+            // Ping-pong between the input and the scratch buffer
+            int[] temp = source;
+            source = destination;
+            destination = temp;
+        }
+
+        if (source != array) {
+            System.arraycopy(source, 0, array, 0, array.length);
+        }
     }
 
-    private static int getNumDigits(int number) {
+    private static void radixSortHelper(long[] array) {
         /*
-        Returns the number of digits in a number
+        Sorts the array in ascending order with eight byte wide counting passes
          */
 
-        int counter = 0;
+        int numPasses = Long.SIZE / RADIX_BITS;
+        int[][] counts = new int[numPasses][RADIX];
+
+        for (long element : array) {
+            long key = element ^ Long.MIN_VALUE;
+
+            for (int pass = 0; pass < numPasses; pass++) {
+                counts[pass][(int) (key >>> (pass * RADIX_BITS)) & DIGIT_MASK] += 1;
+            }
+        }
+
+        long[] source = array;
+        long[] destination = null;
+
+        for (int pass = 0; pass < numPasses && array.length > 0; pass++) {
+            int shift = pass * RADIX_BITS;
+            int firstDigit = (int) ((source[0] ^ Long.MIN_VALUE) >>> shift) & DIGIT_MASK;
+
+            if (counts[pass][firstDigit] == array.length) {
+                continue;
+            }
+
+            if (destination == null) {
+                destination = new long[array.length];
+            }
+
+            int[] offsets = toOffsets(counts[pass]);
 
-        while (number > 0) {
-            counter += 1;
-            number = Math.floorDiv(number, 10);
+            for (long element : source) {
+                int digit = (int) ((element ^ Long.MIN_VALUE) >>> shift) & DIGIT_MASK;
+                destination[offsets[digit]] = element;
+                offsets[digit] += 1;
+            }
+
+            long[] temp = source;
+            source = destination;
+            destination = temp;
         }
 
-        return counter;
+        if (source != array) {
+            System.arraycopy(source, 0, array, 0, array.length);
+        }
     }
 
-    private static int getNthDigit(int number, int n) {
+    static int[] toOffsets(int[] counts) {
         /*
-        Gets the nth least significant digit of number where n is 1 indexed
+        Turns the counts of each digit into the index its first element is written to
          */
 
-        return Math.floorDiv(number, (int) Math.pow(10, n - 1)) % 10;
+        int[] offsets = new int[counts.length];
+        int total = 0;
+
+        for (int digit = 0; digit < counts.length; digit++) {
+            offsets[digit] = total;
+            total += counts[digit];
+        }
+
+        return offsets;
+    }
+
+    private static void reverse(int[] array) {
+        for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+            int temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    private static void reverse(long[] array) {
+        for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+            long temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    private static void reverse(float[] array) {
+        for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+            float temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    private static void reverse(double[] array) {
+        for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+            double temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
     }
 }
@@ -0,0 +1,661 @@
+package chapter8;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+import static chapter8.LSDRadixSort.DIGIT_MASK;
+import static chapter8.LSDRadixSort.RADIX;
+import static chapter8.LSDRadixSort.RADIX_BITS;
+
+public class ParallelMSDRadixSort {
+    /*
+    Most significant digit radix sorts that run on the workers of a fork/join pool
+
+    Every range is split into blocks whose byte histograms are counted in parallel. Each block then
+    scatters its elements to its own slice of every bucket, so no two workers ever write the same index,
+    and each bucket is sorted by its own task on the next byte. Elements move between the input and a
+    single scratch array, so every level of the recursion is one read and one write of the data
+     */
+
+    // Buckets shorter than this are sorted sequentially by default
+    public static final int DEFAULT_GRANULARITY = 1 << 13;
+
+    // Ranges at least this long are counted and scattered by all workers together
+    private static final int PARALLEL_SCATTER_THRESHOLD = 1 << 18;
+
+    // The number of blocks each worker handles during a parallel scatter, for load balancing
+    private static final int BLOCKS_PER_WORKER = 4;
+
+    // Ranges shorter than this are finished with insertion sort
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    public static int[] parallelRadixSort(int[] unsortedArray) {
+        return parallelRadixSort(unsortedArray, true);
+    }
+
+    public static int[] parallelRadixSort(int[] unsortedArray, boolean ascending) {
+        return parallelRadixSort(unsortedArray, ascending, ForkJoinPool.commonPool(), DEFAULT_GRANULARITY);
+    }
+
+    public static int[] parallelRadixSort(int[] unsortedArray, boolean ascending, ForkJoinPool pool,
+                                          int granularity) {
+        /*
+        Radix sorts the given array in place on the workers of a fork/join pool, most significant byte first
+
+        Parameters:
+            unsortedArray: The array we wish to sort
+            ascending: Whether to sort from smallest to largest element
+            pool: The pool whose workers do the sorting
+            granularity: Buckets shorter than this are sorted by the task that found them instead of a new one
+
+        Returns:
+            The input array, now sorted
+         */
+
+        if (unsortedArray.length > 1) {
+            RadixSortJob<int[]> job = new RadixSortJob<>(unsortedArray, new int[unsortedArray.length],
+                    pool.getParallelism(), granularity);
+            pool.invoke(new IntSortTask(job, unsortedArray, 0, unsortedArray.length, 0));
+        }
+
+        if (!ascending) {
+            for (int i = 0, j = unsortedArray.length - 1; i < j; i++, j--) {
+                int temp = unsortedArray[i];
+                unsortedArray[i] = unsortedArray[j];
+                unsortedArray[j] = temp;
+            }
+        }
+
+        return unsortedArray;
+    }
+
+    public static long[] parallelRadixSort(long[] unsortedArray) {
+        return parallelRadixSort(unsortedArray, true);
+    }
+
+    public static long[] parallelRadixSort(long[] unsortedArray, boolean ascending) {
+        return parallelRadixSort(unsortedArray, ascending, ForkJoinPool.commonPool(), DEFAULT_GRANULARITY);
+    }
+
+    public static long[] parallelRadixSort(long[] unsortedArray, boolean ascending, ForkJoinPool pool,
+                                           int granularity) {
+        /*
+        Radix sorts the given array of longs in place, see the int[] overload for the parameters
+         */
+
+        if (unsortedArray.length > 1) {
+            RadixSortJob<long[]> job = new RadixSortJob<>(unsortedArray, new long[unsortedArray.length],
+                    pool.getParallelism(), granularity);
+            pool.invoke(new LongSortTask(job, unsortedArray, 0, unsortedArray.length, 0));
+        }
+
+        if (!ascending) {
+            for (int i = 0, j = unsortedArray.length - 1; i < j; i++, j--) {
+                long temp = unsortedArray[i];
+                unsortedArray[i] = unsortedArray[j];
+                unsortedArray[j] = temp;
+            }
+        }
+
+        return unsortedArray;
+    }
+
+    public static byte[][] parallelRadixSort(byte[][] unsortedArray) {
+        return parallelRadixSort(unsortedArray, true);
+    }
+
+    public static byte[][] parallelRadixSort(byte[][] unsortedArray, boolean ascending) {
+        return parallelRadixSort(unsortedArray, ascending, ForkJoinPool.commonPool(), DEFAULT_GRANULARITY);
+    }
+
+    public static byte[][] parallelRadixSort(byte[][] unsortedArray, boolean ascending, ForkJoinPool pool,
+                                             int granularity) {
+        /*
+        Sorts byte string keys in place in lexicographic order, comparing bytes as unsigned and placing a
+        key before every longer key it is a prefix of. Only the references are moved, the keys themselves
+        are never modified. See the int[] overload for the parameters
+         */
+
+        if (unsortedArray.length > 1) {
+            RadixSortJob<byte[][]> job = new RadixSortJob<>(unsortedArray, new byte[unsortedArray.length][],
+                    pool.getParallelism(), granularity);
+            pool.invoke(new BytesSortTask(job, unsortedArray, 0, unsortedArray.length, 0));
+        }
+
+        if (!ascending) {
+            for (int i = 0, j = unsortedArray.length - 1; i < j; i++, j--) {
+                byte[] temp = unsortedArray[i];
+                unsortedArray[i] = unsortedArray[j];
+                unsortedArray[j] = temp;
+            }
+        }
+
+        return unsortedArray;
+    }
+
+    // Settings and buffers shared by every task of one sort
+    private static class RadixSortJob<A> {
+        public final A array;
+        public final A scratch;
+        public final int parallelism;
+        public final int granularity;
+
+        public RadixSortJob(A array, A scratch, int parallelism, int granularity) {
+            this.array = array;
+            this.scratch = scratch;
+            this.parallelism = parallelism;
+            this.granularity = Math.max(granularity, INSERTION_SORT_THRESHOLD);
+        }
+
+        public int numBlocks(int length) {
+            /*
+            Returns the number of blocks a range is counted and scattered in, one for small ranges
+             */
+
+            if (this.parallelism > 1 && length >= PARALLEL_SCATTER_THRESHOLD) {
+                return this.parallelism * BLOCKS_PER_WORKER;
+            }
+
+            return 1;
+        }
+
+        public A other(A source) {
+            /*
+            Returns the buffer a range living in source is scattered into
+             */
+
+            return source == this.array ? this.scratch : this.array;
+        }
+    }
+
+    static void forEachBlock(int numBlocks, IntConsumer body) {
+        /*
+        Runs body once for every block index, in parallel on the current pool if there is more than one
+         */
+
+        if (numBlocks == 1) {
+            body.accept(0);
+            return;
+        }
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(numBlocks);
+
+        for (int block = 0; block < numBlocks; block++) {
+            final int blockIndex = block;
+            tasks.add(ForkJoinTask.adapt(() -> body.accept(blockIndex)));
+        }
+
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    static int blockStart(int low, int length, int numBlocks, int block) {
+        /*
+        Returns the first index of a block when [low, low + length) is cut into numBlocks equal blocks
+         */
+
+        return low + (int) ((long) length * block / numBlocks);
+    }
+
+    private static int[] bucketStarts(int low, int[][] counts, int[][] offsets) {
+        /*
+        Turns the per block counts into the index each block writes its first element of each digit to
+
+        Within a bucket the blocks write one after another in block order, so the scatter is stable
+
+        Returns:
+            The first index of every bucket, followed by the end of the range
+         */
+
+        int radix = counts[0].length;
+        int[] starts = new int[radix + 1];
+        int next = low;
+
+        for (int digit = 0; digit < radix; digit++) {
+            starts[digit] = next;
+
+            for (int block = 0; block < counts.length; block++) {
+                offsets[block][digit] = next;
+                next += counts[block][digit];
+            }
+        }
+
+        starts[radix] = next;
+
+        return starts;
+    }
+
+    private static boolean singleBucket(int[] starts, int length) {
+        /*
+        Returns whether every element of the range fell into the same bucket
+         */
+
+        for (int digit = 0; digit < starts.length - 1; digit++) {
+            if (starts[digit + 1] - starts[digit] == length) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static class IntSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RadixSortJob<int[]> job;
+        private final int[] source; // The buffer the range currently lives in
+        private final int low;
+        private final int high; // Exclusive
+        private final int digit; // 0 is the most significant byte
+
+        public IntSortTask(RadixSortJob<int[]> job, int[] source, int low, int high, int digit) {
+            this.job = job;
+            this.source = source;
+            this.low = low;
+            this.high = high;
+            this.digit = digit;
+        }
+
+        @Override
+        protected void compute() {
+            int[] source = this.source;
+            int length = this.high - this.low;
+
+            if (length < INSERTION_SORT_THRESHOLD) {
+                insertionSort(source, this.low, this.high);
+                moveTo(this.job.array, source, this.low, this.high);
+                return;
+            }
+
+            int digit = this.digit;
+            int numBlocks = this.job.numBlocks(length);
+            int[][] counts = new int[numBlocks][RADIX];
+            int[][] offsets = new int[numBlocks][RADIX];
+            int[] starts;
+            int shift;
+
+            // Skip the bytes that every element shares
+            while (true) {
+                shift = Integer.SIZE - RADIX_BITS * (digit + 1);
+                final int byteShift = shift;
+
+                forEachBlock(numBlocks, block -> {
+                    int[] blockCounts = counts[block];
+                    int end = blockStart(this.low, length, numBlocks, block + 1);
+
+                    for (int i = blockStart(this.low, length, numBlocks, block); i < end; i++) {
+                        blockCounts[digitOf(source[i], byteShift)] += 1;
+                    }
+                });
+
+                starts = bucketStarts(this.low, counts, offsets);
+
+                if (!singleBucket(starts, length)) {
+                    break;
+                }
+
+                if (shift == 0) {
+                    moveTo(this.job.array, source, this.low, this.high);
+                    return;
+                }
+
+                digit += 1;
+
+                for (int[] blockCounts : counts) {
+                    Arrays.fill(blockCounts, 0);
+                }
+            }
+
+            int[] destination = this.job.other(source);
+            final int byteShift = shift;
+
+            forEachBlock(numBlocks, block -> {
+                int[] next = offsets[block];
+                int end = blockStart(this.low, length, numBlocks, block + 1);
+
+                for (int i = blockStart(this.low, length, numBlocks, block); i < end; i++) {
+                    int element = source[i];
+                    int elementDigit = digitOf(element, byteShift);
+                    destination[next[elementDigit]] = element;
+                    next[elementDigit] += 1;
+                }
+            });
+
+            List<IntSortTask> tasks = new ArrayList<>();
+
+            for (int bucket = 0; bucket < RADIX; bucket++) {
+                int start = starts[bucket];
+                int end = starts[bucket + 1];
+
+                // A bucket is finished once the last byte is placed or it holds a single element
+                if (shift == 0 || end - start <= 1) {
+                    moveTo(this.job.array, destination, start, end);
+                    continue;
+                }
+
+                IntSortTask task = new IntSortTask(this.job, destination, start, end, digit + 1);
+
+                if (end - start >= this.job.granularity) {
+                    tasks.add(task);
+                } else {
+                    task.compute();
+                }
+            }
+
+            invokeAll(tasks);
+        }
+
+        private static int digitOf(int element, int shift) {
+            // Flipping the sign bit orders negative numbers first
+            return ((element ^ Integer.MIN_VALUE) >>> shift) & DIGIT_MASK;
+        }
+
+        private static void insertionSort(int[] array, int low, int high) {
+            for (int i = low + 1; i < high; i++) {
+                int element = array[i];
+                int j = i - 1;
+
+                while (j >= low && array[j] > element) {
+                    array[j + 1] = array[j];
+                    j -= 1;
+                }
+
+                array[j + 1] = element;
+            }
+        }
+
+        private static void moveTo(int[] array, int[] source, int low, int high) {
+            /*
+            Copies a finished range back into the output array if it ended up in the scratch buffer
+             */
+
+            if (source != array) {
+                System.arraycopy(source, low, array, low, high - low);
+            }
+        }
+    }
+
+    private static class LongSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RadixSortJob<long[]> job;
+        private final long[] source;
+        private final int low;
+        private final int high;
+        private final int digit;
+
+        public LongSortTask(RadixSortJob<long[]> job, long[] source, int low, int high, int digit) {
+            this.job = job;
+            this.source = source;
+            this.low = low;
+            this.high = high;
+            this.digit = digit;
+        }
+
+        @Override
+        protected void compute() {
+            long[] source = this.source;
+            int length = this.high - this.low;
+
+            if (length < INSERTION_SORT_THRESHOLD) {
+                insertionSort(source, this.low, this.high);
+                moveTo(this.job.array, source, this.low, this.high);
+                return;
+            }
+
+            int digit = this.digit;
+            int numBlocks = this.job.numBlocks(length);
+            int[][] counts = new int[numBlocks][RADIX];
+            int[][] offsets = new int[numBlocks][RADIX];
+            int[] starts;
+            int shift;
+
+            while (true) {
+                shift = Long.SIZE - RADIX_BITS * (digit + 1);
+                final int byteShift = shift;
+
+                forEachBlock(numBlocks, block -> {
+                    int[] blockCounts = counts[block];
+                    int end = blockStart(this.low, length, numBlocks, block + 1);
+
+                    for (int i = blockStart(this.low, length, numBlocks, block); i < end; i++) {
+                        blockCounts[digitOf(source[i], byteShift)] += 1;
+                    }
+                });
+
+                starts = bucketStarts(this.low, counts, offsets);
+
+                if (!singleBucket(starts, length)) {
+                    break;
+                }
+
+                if (shift == 0) {
+                    moveTo(this.job.array, source, this.low, this.high);
+                    return;
+                }
+
+                digit += 1;
+
+                for (int[] blockCounts : counts) {
+                    Arrays.fill(blockCounts, 0);
+                }
+            }
+
+            long[] destination = this.job.other(source);
+            final int byteShift = shift;
+
+            forEachBlock(numBlocks, block -> {
+                int[] next = offsets[block];
+                int end = blockStart(this.low, length, numBlocks, block + 1);
+
+                for (int i = blockStart(this.low, length, numBlocks, block); i < end; i++) {
+                    long element = source[i];
+                    int elementDigit = digitOf(element, byteShift);
+                    destination[next[elementDigit]] = element;
+                    next[elementDigit] += 1;
+                }
+            });
+
+            List<LongSortTask> tasks = new ArrayList<>();
+
+            for (int bucket = 0; bucket < RADIX; bucket++) {
+                int start = starts[bucket];
+                int end = starts[bucket + 1];
+
+                if (shift == 0 || end - start <= 1) {
+                    moveTo(this.job.array, destination, start, end);
+                    continue;
+                }
+
+                LongSortTask task = new LongSortTask(this.job, destination, start, end, digit + 1);
+
+                if (end - start >= this.job.granularity) {
+                    tasks.add(task);
+                } else {
+                    task.compute();
+                }
+            }
+
+            invokeAll(tasks);
+        }
+
+        private static int digitOf(long element, int shift) {
+            return (int) ((element ^ Long.MIN_VALUE) >>> shift) & DIGIT_MASK;
+        }
+
+        private static void insertionSort(long[] array, int low, int high) {
+            for (int i = low + 1; i < high; i++) {
+                long element = array[i];
+                int j = i - 1;
+
+                while (j >= low && array[j] > element) {
+                    array[j + 1] = array[j];
+                    j -= 1;
+                }
+
+                array[j + 1] = element;
+            }
+        }
+
+        private static void moveTo(long[] array, long[] source, int low, int high) {
+            if (source != array) {
+                System.arraycopy(source, low, array, low, high - low);
+            }
+        }
+    }
+
+    private static class BytesSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // Bucket 0 holds the keys that end before the current byte, byte b goes to bucket b + 1
+        private static final int NUM_BUCKETS = RADIX + 1;
+
+        private final RadixSortJob<byte[][]> job;
+        private final byte[][] source;
+        private final int low;
+        private final int high;
+        private final int digit; // The byte position being sorted on
+
+        public BytesSortTask(RadixSortJob<byte[][]> job, byte[][] source, int low, int high, int digit) {
+            this.job = job;
+            this.source = source;
+            this.low = low;
+            this.high = high;
+            this.digit = digit;
+        }
+
+        @Override
+        protected void compute() {
+            byte[][] source = this.source;
+            int length = this.high - this.low;
+
+            if (length < INSERTION_SORT_THRESHOLD) {
+                insertionSort(source, this.low, this.high, this.digit);
+                moveTo(this.job.array, source, this.low, this.high);
+                return;
+            }
+
+            int digit = this.digit;
+            int numBlocks = this.job.numBlocks(length);
+            int[][] counts = new int[numBlocks][NUM_BUCKETS];
+            int[][] offsets = new int[numBlocks][NUM_BUCKETS];
+            int[] starts;
+
+            // Skip the positions where every key has the same byte, e.g. a shared prefix
+            while (true) {
+                final int position = digit;
+
+                forEachBlock(numBlocks, block -> {
+                    int[] blockCounts = counts[block];
+                    int end = blockStart(this.low, length, numBlocks, block + 1);
+
+                    for (int i = blockStart(this.low, length, numBlocks, block); i < end; i++) {
+                        blockCounts[digitOf(source[i], position)] += 1;
+                    }
+                });
+
+                starts = bucketStarts(this.low, counts, offsets);
+
+                if (!singleBucket(starts, length)) {
+                    break;
+                }
+
+                // Every key ended at the same position, so they are all equal
+                if (starts[1] - starts[0] == length) {
+                    moveTo(this.job.array, source, this.low, this.high);
+                    return;
+                }
+
+                digit += 1;
+
+                for (int[] blockCounts : counts) {
+                    Arrays.fill(blockCounts, 0);
+                }
+            }
+
+            byte[][] destination = this.job.other(source);
+            final int position = digit;
+
+            forEachBlock(numBlocks, block -> {
+                int[] next = offsets[block];
+                int end = blockStart(this.low, length, numBlocks, block + 1);
+
+                for (int i = blockStart(this.low, length, numBlocks, block); i < end; i++) {
+                    byte[] element = source[i];
+                    int elementDigit = digitOf(element, position);
+                    destination[next[elementDigit]] = element;
+                    next[elementDigit] += 1;
+                }
+            });
+
+            List<BytesSortTask> tasks = new ArrayList<>();
+
+            for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+                int start = starts[bucket];
+                int end = starts[bucket + 1];
+
+                // Keys that have ended are equal to each other and already in place
+                if (bucket == 0 || end - start <= 1) {
+                    moveTo(this.job.array, destination, start, end);
+                    continue;
+                }
+
+                BytesSortTask task = new BytesSortTask(this.job, destination, start, end, digit + 1);
+
+                if (end - start >= this.job.granularity) {
+                    tasks.add(task);
+                } else {
+                    task.compute();
+                }
+            }
+
+            invokeAll(tasks);
+        }
+
+        private static int digitOf(byte[] key, int position) {
+            return position < key.length ? (key[position] & DIGIT_MASK) + 1 : 0;
+        }
+
+        private static int compare(byte[] key1, byte[] key2, int from) {
+            /*
+            Compares two keys that are known to be equal before position from
+             */
+
+            int length = Math.min(key1.length, key2.length);
+
+            for (int i = from; i < length; i++) {
+                int difference = (key1[i] & DIGIT_MASK) - (key2[i] & DIGIT_MASK);
+
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+
+            return key1.length - key2.length;
+        }
+
+        private static void insertionSort(byte[][] array, int low, int high, int from) {
+            for (int i = low + 1; i < high; i++) {
+                byte[] element = array[i];
+                int j = i - 1;
+
+                while (j >= low && compare(array[j], element, from) > 0) {
+                    array[j + 1] = array[j];
+                    j -= 1;
+                }
+
+                array[j + 1] = element;
+            }
+        }
+
+        private static void moveTo(byte[][] array, byte[][] source, int low, int high) {
+            if (source != array) {
+                System.arraycopy(source, low, array, low, high - low);
+            }
+        }
+    }
+}
@@ -0,0 +1,615 @@
+package chapter8;
+
+import chapter7.ParallelQuicksort;
+import chapter7.Quicksort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Sorter {
+    /*
+    A single entry point for sorting that looks at a small sample of the input and hands it to whichever
+    of the sorts in chapters 7 and 8 should be fastest for it
+
+    The sample measures the key range, whether the input already looks sorted or reversed, and how many
+    duplicates it holds. Every call is timed and recorded per engine, so the thresholds can be tuned
+    from real traces. One sorter can be shared by any number of threads
+     */
+
+    // The algorithms a call can be dispatched to
+    public enum Engine {
+        PRESORTED,           // Already in order, or in reverse order and flipped in one pass
+        QUICKSORT,           // Quicksort, dual pivot for primitives
+        INTROSORT,           // Three way introsort for Comparable[]
+        PARALLEL_QUICKSORT,  // ParallelQuicksort
+        COUNTING_SORT,       // CountingSort, for dense int keys
+        RADIX_SORT,          // LSDRadixSort
+        PARALLEL_RADIX_SORT  // ParallelMSDRadixSort
+    }
+
+    // The outcome of one call
+    public static class CallRecord {
+        public final Engine engine;
+        public final int size;
+        public final long nanos;
+
+        public CallRecord(Engine engine, int size, long nanos) {
+            this.engine = engine;
+            this.size = size;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public String toString() {
+            return this.engine + " sorted " + this.size + " elements in " + this.nanos + " ns";
+        }
+    }
+
+    // What the sample says about an input
+    private static class Profile {
+        public boolean ascending = true;   // Every sampled pair was in ascending order
+        public boolean descending = true;  // Every sampled pair was in descending order
+        public long min = Long.MAX_VALUE;
+        public long max = Long.MIN_VALUE;
+        public double duplicateRatio;      // The fraction of sampled values equal to an earlier one
+    }
+
+    public static final int DEFAULT_RADIX_THRESHOLD = 1 << 12;
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 20;
+    public static final int DEFAULT_COUNTING_RANGE_FACTOR = 2;
+
+    // The number of evenly spaced positions sampled from every input
+    private static final int SAMPLE_SIZE = 64;
+
+    // Inputs with at least this fraction of duplicates in the sample count as having few distinct keys
+    private static final double FEW_DISTINCT_RATIO = 0.5;
+
+    private static final int NUM_RECENT_CALLS = 1024;
+
+    private final int radixThreshold;
+    private final int parallelThreshold;
+    private final int countingRangeFactor;
+    private final ForkJoinPool pool;
+
+    private final LongAdder[] calls;
+    private final LongAdder[] elements;
+    private final LongAdder[] nanos;
+    private final CallRecord[] recentCalls; // A ring buffer of the latest calls
+    private long numCalls;
+
+    public Sorter(int radixThreshold, int parallelThreshold, int countingRangeFactor, ForkJoinPool pool) {
+        /*
+        Builds a sorter with the given dispatch thresholds
+
+        Parameters:
+            radixThreshold: Inputs at least this long are radix sorted rather than quicksorted
+            parallelThreshold: Inputs at least this long are sorted on the workers of pool
+            countingRangeFactor: Int inputs whose sampled range is at most this multiple of their length
+                                 are counting sorted
+            pool: The pool parallel sorts run on, a pool with parallelism 1 disables them
+         */
+
+        this.radixThreshold = radixThreshold;
+        this.parallelThreshold = parallelThreshold;
+        this.countingRangeFactor = countingRangeFactor;
+        this.pool = pool;
+
+        int numEngines = Engine.values().length;
+        this.calls = new LongAdder[numEngines];
+        this.elements = new LongAdder[numEngines];
+        this.nanos = new LongAdder[numEngines];
+        this.recentCalls = new CallRecord[NUM_RECENT_CALLS];
+
+        for (int i = 0; i < numEngines; i++) {
+            this.calls[i] = new LongAdder();
+            this.elements[i] = new LongAdder();
+            this.nanos[i] = new LongAdder();
+        }
+    }
+
+    // A constructor with the default thresholds, running parallel sorts on the common pool
+    public Sorter() {
+        this(DEFAULT_RADIX_THRESHOLD, DEFAULT_PARALLEL_THRESHOLD, DEFAULT_COUNTING_RANGE_FACTOR,
+                ForkJoinPool.commonPool());
+    }
+
+    public int[] sort(int[] array) {
+        return this.sort(array, true);
+    }
+
+    public int[] sort(int[] array, boolean increasing) {
+        /*
+        Sorts the array in place with the engine chosen by selectEngine
+
+        Parameters:
+            array: The array to sort
+            increasing: Whether to sort from smallest to largest element
+
+        Returns:
+            The same array, sorted
+         */
+
+        long start = System.nanoTime();
+        Engine engine = this.selectEngine(array);
+
+        switch (engine) {
+            case PRESORTED:
+                if (increasing != isAscending(array)) {
+                    reverse(array);
+                }
+                break;
+            case COUNTING_SORT:
+                CountingSort.countingSort(array, increasing, this.countingRangeFactor);
+                break;
+            case PARALLEL_RADIX_SORT:
+                ParallelMSDRadixSort.parallelRadixSort(array, increasing, this.pool,
+                        ParallelMSDRadixSort.DEFAULT_GRANULARITY);
+                break;
+            case RADIX_SORT:
+                LSDRadixSort.radixSort(array, increasing);
+                break;
+            default:
+                Quicksort.quickSort(array, increasing);
+        }
+
+        this.record(engine, array.length, System.nanoTime() - start);
+
+        return array;
+    }
+
+    public Engine selectEngine(int[] array) {
+        /*
+        Returns the engine sort would use for the array, without sorting it
+         */
+
+        int length = array.length;
+        Profile profile = new Profile();
+
+        for (int s = 0; s < numSamples(length); s++) {
+            int i = samplePosition(length, s);
+            int comparison = Integer.compare(array[i], array[i + 1]);
+
+            profile.ascending &= comparison <= 0;
+            profile.descending &= comparison >= 0;
+            profile.min = Math.min(profile.min, array[i]);
+            profile.max = Math.max(profile.max, array[i]);
+        }
+
+        if (length < 2 || this.isPresorted(profile, array)) {
+            return Engine.PRESORTED;
+        }
+
+        // CountingSort checks the true range itself, so a missed outlier only costs a scan
+        if (profile.max - profile.min + 1 <= (long) this.countingRangeFactor * length) {
+            return Engine.COUNTING_SORT;
+        }
+
+        if (this.inParallel(length)) {
+            return Engine.PARALLEL_RADIX_SORT;
+        }
+
+        // Dual pivot quicksort gets faster with duplicates, radix sort makes the same passes regardless
+        int[] sample = new int[numSamples(length)];
+
+        for (int s = 0; s < sample.length; s++) {
+            sample[s] = array[samplePosition(length, s)];
+        }
+
+        profile.duplicateRatio = duplicateRatio(Quicksort.quickSort(sample));
+
+        if (length >= this.radixThreshold && profile.duplicateRatio < FEW_DISTINCT_RATIO) {
+            return Engine.RADIX_SORT;
+        }
+
+        return Engine.QUICKSORT;
+    }
+
+    public long[] sort(long[] array) {
+        return this.sort(array, true);
+    }
+
+    public long[] sort(long[] array, boolean increasing) {
+        long start = System.nanoTime();
+        Engine engine = this.selectEngine(array);
+
+        switch (engine) {
+            case PRESORTED:
+                if (increasing != isAscending(array)) {
+                    reverse(array);
+                }
+                break;
+            case PARALLEL_RADIX_SORT:
+                ParallelMSDRadixSort.parallelRadixSort(array, increasing, this.pool,
+                        ParallelMSDRadixSort.DEFAULT_GRANULARITY);
+                break;
+            case RADIX_SORT:
+                LSDRadixSort.radixSort(array, increasing);
+                break;
+            default:
+                Quicksort.quickSort(array, increasing);
+        }
+
+        this.record(engine, array.length, System.nanoTime() - start);
+
+        return array;
+    }
+
+    public Engine selectEngine(long[] array) {
+        /*
+        Returns the engine sort would use for the array, the same choice as for ints without counting sort
+         */
+
+        int length = array.length;
+        Profile profile = new Profile();
+
+        for (int s = 0; s < numSamples(length); s++) {
+            int i = samplePosition(length, s);
+            int comparison = Long.compare(array[i], array[i + 1]);
+
+            profile.ascending &= comparison <= 0;
+            profile.descending &= comparison >= 0;
+        }
+
+        if (length < 2 || this.isPresorted(profile, array)) {
+            return Engine.PRESORTED;
+        }
+
+        if (this.inParallel(length)) {
+            return Engine.PARALLEL_RADIX_SORT;
+        }
+
+        long[] sample = new long[numSamples(length)];
+
+        for (int s = 0; s < sample.length; s++) {
+            sample[s] = array[samplePosition(length, s)];
+        }
+
+        profile.duplicateRatio = duplicateRatio(Quicksort.quickSort(sample));
+
+        if (length >= this.radixThreshold && profile.duplicateRatio < FEW_DISTINCT_RATIO) {
+            return Engine.RADIX_SORT;
+        }
+
+        return Engine.QUICKSORT;
+    }
+
+    public double[] sort(double[] array) {
+        return this.sort(array, true);
+    }
+
+    public double[] sort(double[] array, boolean increasing) {
+        /*
+        Sorts the array in place, in the order of Double.compare
+         */
+
+        long start = System.nanoTime();
+        Engine engine = this.selectEngine(array);
+
+        switch (engine) {
+            case PRESORTED:
+                if (increasing != isAscending(array)) {
+                    reverse(array);
+                }
+                break;
+            case RADIX_SORT:
+                LSDRadixSort.radixSort(array, increasing);
+                break;
+            default:
+                Quicksort.quickSort(array, increasing);
+        }
+
+        this.record(engine, array.length, System.nanoTime() - start);
+
+        return array;
+    }
+
+    public Engine selectEngine(double[] array) {
+        int length = array.length;
+        Profile profile = new Profile();
+
+        for (int s = 0; s < numSamples(length); s++) {
+            int i = samplePosition(length, s);
+            int comparison = Double.compare(array[i], array[i + 1]);
+
+            profile.ascending &= comparison <= 0;
+            profile.descending &= comparison >= 0;
+        }
+
+        if (length < 2 || this.isPresorted(profile, array)) {
+            return Engine.PRESORTED;
+        }
+
+        return length >= this.radixThreshold ? Engine.RADIX_SORT : Engine.QUICKSORT;
+    }
+
+    public Comparable[] sort(Comparable[] array) {
+        return this.sort(array, true);
+    }
+
+    public Comparable[] sort(Comparable[] array, boolean increasing) {
+        /*
+        Sorts the array in place with a comparison sort, which is not stable
+         */
+
+        long start = System.nanoTime();
+        Engine engine = this.selectEngine(array);
+
+        switch (engine) {
+            case PRESORTED:
+                if (increasing != isAscending(array)) {
+                    reverse(array);
+                }
+                break;
+            case PARALLEL_QUICKSORT:
+                ParallelQuicksort.parallelQuickSort(array, increasing, this.pool,
+                        ParallelQuicksort.DEFAULT_GRANULARITY);
+                break;
+            default:
+                Quicksort.introSort(array, increasing);
+        }
+
+        this.record(engine, array.length, System.nanoTime() - start);
+
+        return array;
+    }
+
+    public Engine selectEngine(Comparable[] array) {
+        /*
+        Returns the engine sort would use for the array. Radix and counting sorts need integer keys, so
+        objects always get a comparison sort
+         */
+
+        int length = array.length;
+        Profile profile = new Profile();
+
+        for (int s = 0; s < numSamples(length); s++) {
+            int i = samplePosition(length, s);
+            int comparison = array[i].compareTo(array[i + 1]);
+
+            profile.ascending &= comparison <= 0;
+            profile.descending &= comparison >= 0;
+        }
+
+        if (length < 2 || this.isPresorted(profile, array)) {
+            return Engine.PRESORTED;
+        }
+
+        // Introsort partitions three ways, so duplicates never degrade it
+        return this.inParallel(length) ? Engine.PARALLEL_QUICKSORT : Engine.INTROSORT;
+    }
+
+    private static int numSamples(int length) {
+        return Math.min(SAMPLE_SIZE, length - 1);
+    }
+
+    private static int samplePosition(int length, int sample) {
+        /*
+        Returns the first index of the sampled pair number sample, spread evenly over the array
+         */
+
+        return (int) ((long) (length - 1) * sample / Math.min(SAMPLE_SIZE, length - 1));
+    }
+
+    private boolean inParallel(int length) {
+        return length >= this.parallelThreshold && this.pool.getParallelism() > 1;
+    }
+
+    private static double duplicateRatio(int[] sortedSample) {
+        int duplicates = 0;
+
+        for (int i = 1; i < sortedSample.length; i++) {
+            if (sortedSample[i] == sortedSample[i - 1]) {
+                duplicates += 1;
+            }
+        }
+
+        return sortedSample.length == 0 ? 0.0 : (double) duplicates / sortedSample.length;
+    }
+
+    private static double duplicateRatio(long[] sortedSample) {
+        int duplicates = 0;
+
+        for (int i = 1; i < sortedSample.length; i++) {
+            if (sortedSample[i] == sortedSample[i - 1]) {
+                duplicates += 1;
+            }
+        }
+
+        return sortedSample.length == 0 ? 0.0 : (double) duplicates / sortedSample.length;
+    }
+
+    /*
+    A sample that is entirely in order is confirmed with a full scan, which stops at the first pair out of
+    order. On random data the sample almost never passes, so the scan is rarely paid for
+     */
+
+    private boolean isPresorted(Profile profile, int[] array) {
+        return (profile.ascending && isAscending(array)) || (profile.descending && isDescending(array));
+    }
+
+    private boolean isPresorted(Profile profile, long[] array) {
+        return (profile.ascending && isAscending(array)) || (profile.descending && isDescending(array));
+    }
+
+    private boolean isPresorted(Profile profile, double[] array) {
+        return (profile.ascending && isAscending(array)) || (profile.descending && isDescending(array));
+    }
+
+    private boolean isPresorted(Profile profile, Comparable[] array) {
+        return (profile.ascending && isAscending(array)) || (profile.descending && isDescending(array));
+    }
+
+    private static boolean isAscending(int[] array) {
+        for (int i = 1; i < array.length; i++) {
+            if (array[i - 1] > array[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isDescending(int[] array) {
+        for (int i = 1; i < array.length; i++) {
+            if (array[i - 1] < array[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isAscending(long[] array) {
+        for (int i = 1; i < array.length; i++) {
+            if (array[i - 1] > array[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isDescending(long[] array) {
+        for (int i = 1; i < array.length; i++) {
+            if (array[i - 1] < array[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isAscending(double[] array) {
+        for (int i = 1; i < array.length; i++) {
+            if (Double.compare(array[i - 1], array[i]) > 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isDescending(double[] array) {
+        for (int i = 1; i < array.length; i++) {
+            if (Double.compare(array[i - 1], array[i]) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isAscending(Comparable[] array) {
+        for (int i = 1; i < array.length; i++) {
+            if (array[i - 1].compareTo(array[i]) > 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isDescending(Comparable[] array) {
+        for (int i = 1; i < array.length; i++) {
+            if (array[i - 1].compareTo(array[i]) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static void reverse(int[] array) {
+        for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+            int temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    private static void reverse(long[] array) {
+        for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+            long temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    private static void reverse(double[] array) {
+        for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+            double temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    private static void reverse(Object[] array) {
+        for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+            Object temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+    private void record(Engine engine, int size, long elapsedNanos) {
+        /*
+        Adds a call to the per engine totals and the ring buffer of recent calls
+         */
+
+        this.calls[engine.ordinal()].increment();
+        this.elements[engine.ordinal()].add(size);
+        this.nanos[engine.ordinal()].add(elapsedNanos);
+
+        synchronized (this.recentCalls) {
+            this.recentCalls[(int) (this.numCalls % NUM_RECENT_CALLS)] = new CallRecord(engine, size, elapsedNanos);
+            this.numCalls += 1;
+        }
+    }
+
+    public long getCalls(Engine engine) {
+        return this.calls[engine.ordinal()].sum();
+    }
+
+    public long getElementsSorted(Engine engine) {
+        return this.elements[engine.ordinal()].sum();
+    }
+
+    public long getNanos(Engine engine) {
+        /*
+        Returns the total time spent in calls dispatched to engine, including sampling
+         */
+
+        return this.nanos[engine.ordinal()].sum();
+    }
+
+    public List<CallRecord> getRecentCalls() {
+        /*
+        Returns up to the last 1024 calls, oldest first
+         */
+
+        synchronized (this.recentCalls) {
+            int numRecent = (int) Math.min(this.numCalls, NUM_RECENT_CALLS);
+            List<CallRecord> recent = new ArrayList<>(numRecent);
+
+            for (long call = this.numCalls - numRecent; call < this.numCalls; call++) {
+                recent.add(this.recentCalls[(int) (call % NUM_RECENT_CALLS)]);
+            }
+
+            return recent;
+        }
+    }
+
+    public void resetStats() {
+        for (int i = 0; i < this.calls.length; i++) {
+            this.calls[i].reset();
+            this.elements[i].reset();
+            this.nanos[i].reset();
+        }
+
+        synchronized (this.recentCalls) {
+            this.numCalls = 0;
+        }
+    }
+}
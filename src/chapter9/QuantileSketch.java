@@ -0,0 +1,565 @@
+package chapter9;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class QuantileSketch {
+    /*
+    A streaming KLL sketch that answers approximate rank and quantile queries over doubles in bounded memory
+
+    Values enter level 0 of a stack of compactors. Whenever the sketch holds more values than it has room
+    for, the lowest full level is sorted and every other value (starting from a random one of the first
+    two) is promoted to the next level, where it stands for twice as many inputs. Level h therefore
+    holds values of weight 2^h and the total weight always equals the number of values seen. Capacities
+    shrink geometrically by 2/3 below the top level, so the sketch retains O(k) values and the rank
+    error is roughly 1/k regardless of the stream length
+
+    Until the first compaction every value is still held, and queries are answered exactly with
+    RandomizedSelect. Sketches built on different threads or machines can be merged, and serialized
+    with toByteArray. A single sketch is not safe to update from several threads at once
+     */
+
+    // The default compactor size, giving a rank error of about 1.3%
+    public static final int DEFAULT_K = 200;
+
+    // No level is ever allowed fewer slots than this
+    private static final int MIN_LEVEL_CAPACITY = 8;
+
+    // Each level below the top gets this fraction of the capacity of the level above it
+    private static final double CAPACITY_RATIO = 2.0 / 3.0;
+
+    private final int k;
+    private final int exactCapacity; // Values held exactly before compaction begins
+    private double[][] levels;
+    private int[] levelSizes;
+    private int[] levelCapacities;
+    private int numLevels;
+    private int totalCapacity;
+    private int numRetained;
+    private long n;
+    private double min;
+    private double max;
+    private boolean estimationMode;
+
+    // A merged view of every level sorted by value, rebuilt lazily after updates
+    private double[] sortedValues;
+    private long[] cumulativeWeights;
+
+    public QuantileSketch(int k, int exactCapacity) {
+        /*
+        Builds an empty sketch
+
+        Parameters:
+            k: The size of the top compactor, a larger k lowers the error and raises the memory used
+            exactCapacity: The number of values kept exactly before the sketch starts compacting, at least k
+         */
+
+        if (k < MIN_LEVEL_CAPACITY) {
+            throw new IllegalArgumentException("k must be at least " + MIN_LEVEL_CAPACITY + " but was " + k);
+        }
+
+        this.k = k;
+        this.exactCapacity = Math.max(exactCapacity, k);
+        this.levels = new double[][]{new double[k]};
+        this.levelSizes = new int[1];
+        this.levelCapacities = new int[1];
+        this.numLevels = 1;
+        this.min = Double.NaN;
+        this.max = Double.NaN;
+        this.updateCapacities();
+    }
+
+    public QuantileSketch(int k) {
+        this(k, k);
+    }
+
+    // A constructor with the default k of 200
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    public static double getNormalizedRankError(int k) {
+        /*
+        Returns the empirical rank error bound (99% confidence) of a sketch with the given k, e.g. about
+        0.013 for the default k of 200
+         */
+
+        return 2.296 / Math.pow(k, 0.9723);
+    }
+
+    public void update(double value) {
+        /*
+        Adds a value to the sketch, NaN values are ignored
+
+        Parameters:
+            value: The value to add
+         */
+
+        if (Double.isNaN(value)) {
+            return;
+        }
+
+        if (this.n == 0) {
+            this.min = value;
+            this.max = value;
+        } else {
+            this.min = Math.min(this.min, value);
+            this.max = Math.max(this.max, value);
+        }
+
+        this.append(0, value);
+        this.n += 1;
+        this.sortedValues = null;
+
+        // Check whether a level has to be compacted
+        if (this.numRetained > this.capacity()) {
+            this.compress();
+        }
+    }
+
+    public void merge(QuantileSketch other) {
+        /*
+        Adds every value summarized by other to this sketch, other is left unchanged
+
+        Parameters:
+            other: A sketch built with the same k
+         */
+
+        if (other.k != this.k) {
+            throw new IllegalArgumentException("Cannot merge a sketch with k = " + other.k
+                    + " into one with k = " + this.k);
+        }
+
+        if (other.n == 0) {
+            return;
+        }
+
+        if (this.n == 0) {
+            this.min = other.min;
+            this.max = other.max;
+        } else {
+            this.min = Math.min(this.min, other.min);
+            this.max = Math.max(this.max, other.max);
+        }
+
+        while (this.numLevels < other.numLevels) {
+            this.addLevel();
+        }
+
+        // Values of the same level carry the same weight, so levels are simply concatenated
+        for (int level = 0; level < other.numLevels; level++) {
+            int size = other.levelSizes[level];
+
+            for (int i = 0; i < size; i++) {
+                this.append(level, other.levels[level][i]);
+            }
+        }
+
+        this.n += other.n;
+        this.estimationMode |= other.estimationMode;
+        this.sortedValues = null;
+
+        if (this.numRetained > this.capacity()) {
+            this.compress();
+        }
+    }
+
+    public double getQuantile(double fraction) {
+        /*
+        Returns the value at the given normalized rank, i.e. the element of rank fraction * (n - 1)
+
+        Parameters:
+            fraction: The normalized rank, between 0 and 1 (e.g. 0.99 for p99)
+
+        Returns:
+            NaN: If the sketch is empty
+            The value whose rank is closest to fraction * (n - 1), exact until the sketch starts compacting
+         */
+
+        checkFraction(fraction);
+
+        if (this.n == 0) {
+            return Double.NaN;
+        }
+
+        long rank = (long) (fraction * (this.n - 1));
+
+        // Every value is still held, so select the answer exactly
+        if (!this.estimationMode) {
+            return RandomizedSelect.select(this.levels[0], 0, this.levelSizes[0], (int) rank);
+        }
+
+        return this.estimateQuantile(fraction, rank);
+    }
+
+    public double[] getQuantiles(double[] fractions) {
+        /*
+        Returns the value at each of the given normalized ranks, see getQuantile
+
+        Parameters:
+            fractions: The normalized ranks, each between 0 and 1
+
+        Returns:
+            The value at normalized rank fractions[i] at position i
+         */
+
+        for (double fraction : fractions) {
+            checkFraction(fraction);
+        }
+
+        double[] quantiles = new double[fractions.length];
+
+        if (this.n == 0) {
+            Arrays.fill(quantiles, Double.NaN);
+            return quantiles;
+        }
+
+        if (!this.estimationMode) {
+            // One batch of partitioning serves every rank
+            int[] ranks = new int[fractions.length];
+
+            for (int i = 0; i < fractions.length; i++) {
+                ranks[i] = (int) (fractions[i] * (this.n - 1));
+            }
+
+            return RandomizedSelect.selectMany(this.levels[0], 0, this.levelSizes[0], ranks);
+        }
+
+        for (int i = 0; i < fractions.length; i++) {
+            quantiles[i] = this.estimateQuantile(fractions[i], (long) (fractions[i] * (this.n - 1)));
+        }
+
+        return quantiles;
+    }
+
+    public double getRank(double value) {
+        /*
+        Returns the fraction of the values seen that are less than or equal to value
+
+        Parameters:
+            value: The value to rank
+
+        Returns:
+            NaN: If the sketch is empty
+            The normalized rank of value, between 0 and 1
+         */
+
+        if (this.n == 0) {
+            return Double.NaN;
+        }
+
+        if (!this.estimationMode) {
+            long count = 0;
+
+            for (int i = 0; i < this.levelSizes[0]; i++) {
+                if (this.levels[0][i] <= value) {
+                    count += 1;
+                }
+            }
+
+            return (double) count / this.n;
+        }
+
+        this.buildSortedView();
+
+        // Find the first retained value greater than value
+        int low = 0;
+        int high = this.sortedValues.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (this.sortedValues[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low == 0 ? 0.0 : (double) this.cumulativeWeights[low - 1] / this.n;
+    }
+
+    private double estimateQuantile(double fraction, long rank) {
+        /*
+        Answers a quantile query from the weighted values, the extremes are always known exactly
+         */
+
+        if (fraction == 0.0) {
+            return this.min;
+        }
+
+        if (fraction == 1.0) {
+            return this.max;
+        }
+
+        this.buildSortedView();
+
+        // Find the first value whose cumulative weight passes the rank
+        int low = 0;
+        int high = this.sortedValues.length - 1;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (this.cumulativeWeights[middle] > rank) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+
+        return this.sortedValues[low];
+    }
+
+    private static void checkFraction(double fraction) {
+        if (!(fraction >= 0.0 && fraction <= 1.0)) {
+            throw new IllegalArgumentException("Fraction " + fraction + " is outside [0, 1]");
+        }
+    }
+
+    private int capacity() {
+        /*
+        Returns the number of values the sketch may hold before it must compact
+         */
+
+        return this.estimationMode ? this.totalCapacity : Math.max(this.totalCapacity, this.exactCapacity);
+    }
+
+    private void compress() {
+        /*
+        Compacts the lowest full level until the sketch fits its capacity again
+         */
+
+        this.estimationMode = true;
+
+        while (this.numRetained > this.capacity()) {
+            int level = 0;
+
+            while (this.levelSizes[level] < this.levelCapacities[level]) {
+                level += 1;
+            }
+
+            this.compactLevel(level);
+        }
+    }
+
+    private void compactLevel(int level) {
+        /*
+        Sorts a level and promotes every other value to the level above, halving its size. With an odd
+        number of values the largest one stays behind
+         */
+
+        if (level == this.numLevels - 1) {
+            this.addLevel();
+        }
+
+        double[] values = this.levels[level];
+        int size = this.levelSizes[level];
+        int pairs = size / 2;
+
+        Arrays.sort(values, 0, size);
+
+        // Keeping the odd or even positions at random makes the rank error unbiased
+        int offset = ThreadLocalRandom.current().nextBoolean() ? 1 : 0;
+
+        for (int i = offset; i < 2 * pairs; i += 2) {
+            this.append(level + 1, values[i]);
+        }
+
+        if (size % 2 == 1) {
+            values[0] = values[size - 1];
+        }
+
+        this.levelSizes[level] = size % 2;
+
+        // Each promoted value replaces two, so the sketch shrinks by the number of pairs
+        this.numRetained -= 2 * pairs;
+    }
+
+    private void append(int level, double value) {
+        /*
+        Appends a value to a level, growing its array if necessary
+         */
+
+        if (this.levelSizes[level] == this.levels[level].length) {
+            this.levels[level] = Arrays.copyOf(this.levels[level], 2 * this.levels[level].length);
+        }
+
+        this.levels[level][this.levelSizes[level]] = value;
+        this.levelSizes[level] += 1;
+        this.numRetained += 1;
+    }
+
+    private void addLevel() {
+        /*
+        Adds an empty level on top, which lowers the capacity of every level below it
+         */
+
+        this.levels = Arrays.copyOf(this.levels, this.numLevels + 1);
+        this.levelSizes = Arrays.copyOf(this.levelSizes, this.numLevels + 1);
+        this.levelCapacities = new int[this.numLevels + 1];
+        this.levels[this.numLevels] = new double[MIN_LEVEL_CAPACITY];
+        this.numLevels += 1;
+        this.updateCapacities();
+    }
+
+    private void updateCapacities() {
+        this.totalCapacity = 0;
+
+        for (int level = 0; level < this.numLevels; level++) {
+            int depth = this.numLevels - 1 - level;
+            int capacity = (int) Math.ceil(this.k * Math.pow(CAPACITY_RATIO, depth));
+
+            this.levelCapacities[level] = Math.max(capacity, MIN_LEVEL_CAPACITY);
+            this.totalCapacity += this.levelCapacities[level];
+        }
+    }
+
+    private void buildSortedView() {
+        /*
+        Merges the sorted levels into one array of values with their cumulative weights
+         */
+
+        if (this.sortedValues != null) {
+            return;
+        }
+
+        double[] values = new double[0];
+        long[] weights = new long[0];
+
+        for (int level = 0; level < this.numLevels; level++) {
+            int size = this.levelSizes[level];
+            double[] levelValues = Arrays.copyOf(this.levels[level], size);
+            Arrays.sort(levelValues);
+
+            // Merge the level into the values gathered so far
+            double[] mergedValues = new double[values.length + size];
+            long[] mergedWeights = new long[values.length + size];
+            int i = 0;
+            int j = 0;
+
+            for (int m = 0; m < mergedValues.length; m++) {
+                if (j == size || (i < values.length && values[i] <= levelValues[j])) {
+                    mergedValues[m] = values[i];
+                    mergedWeights[m] = weights[i];
+                    i += 1;
+                } else {
+                    mergedValues[m] = levelValues[j];
+                    mergedWeights[m] = 1L << level;
+                    j += 1;
+                }
+            }
+
+            values = mergedValues;
+            weights = mergedWeights;
+        }
+
+        for (int i = 1; i < weights.length; i++) {
+            weights[i] += weights[i - 1];
+        }
+
+        this.sortedValues = values;
+        this.cumulativeWeights = weights;
+    }
+
+    public byte[] toByteArray() {
+        /*
+        Serializes the sketch so that it can be sent to another node and merged there
+
+        Returns:
+            A byte array that fromByteArray turns back into an equal sketch
+         */
+
+        ByteBuffer buffer = ByteBuffer.allocate(41 + 4 * this.numLevels + 8 * this.numRetained);
+
+        buffer.putInt(this.k);
+        buffer.putInt(this.exactCapacity);
+        buffer.putLong(this.n);
+        buffer.putDouble(this.min);
+        buffer.putDouble(this.max);
+        buffer.put((byte) (this.estimationMode ? 1 : 0));
+        buffer.putInt(this.numLevels);
+        buffer.putInt(this.numRetained);
+
+        for (int level = 0; level < this.numLevels; level++) {
+            buffer.putInt(this.levelSizes[level]);
+
+            for (int i = 0; i < this.levelSizes[level]; i++) {
+                buffer.putDouble(this.levels[level][i]);
+            }
+        }
+
+        return buffer.array();
+    }
+
+    public static QuantileSketch fromByteArray(byte[] bytes) {
+        /*
+        Rebuilds a sketch serialized by toByteArray
+
+        Parameters:
+            bytes: The serialized sketch
+
+        Returns:
+            The deserialized sketch
+         */
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            QuantileSketch sketch = new QuantileSketch(buffer.getInt(), buffer.getInt());
+
+            sketch.n = buffer.getLong();
+            sketch.min = buffer.getDouble();
+            sketch.max = buffer.getDouble();
+            sketch.estimationMode = buffer.get() == 1;
+
+            int numLevels = buffer.getInt();
+            int numRetained = buffer.getInt();
+
+            while (sketch.numLevels < numLevels) {
+                sketch.addLevel();
+            }
+
+            for (int level = 0; level < numLevels; level++) {
+                int size = buffer.getInt();
+
+                for (int i = 0; i < size; i++) {
+                    sketch.append(level, buffer.getDouble());
+                }
+            }
+
+            if (sketch.numRetained != numRetained || buffer.hasRemaining()) {
+                throw new IllegalArgumentException("Corrupt sketch: size does not match its contents");
+            }
+
+            return sketch;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Corrupt sketch: truncated input", e);
+        }
+    }
+
+    public long getN() {
+        return this.n;
+    }
+
+    public double getMin() {
+        return this.min;
+    }
+
+    public double getMax() {
+        return this.max;
+    }
+
+    public int getNumRetained() {
+        return this.numRetained;
+    }
+
+    public boolean isEstimationMode() {
+        /*
+        Returns whether the sketch has started compacting, before that every query is exact
+         */
+
+        return this.estimationMode;
+    }
+}
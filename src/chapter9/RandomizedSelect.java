@@ -1,100 +1,320 @@
 package chapter9;
 
-import java.util.ArrayList;
-import java.util.Random;
+import chapter7.PivotSelector;
+import chapter7.Quicksort;
 
 public class RandomizedSelect {
 
-    // This data structure will hold partition information during the algorithm run
-    private static class ArrayPartition {
-        public Comparable[] leftArray;
-        public Comparable[] middleArray;
-        public Comparable[] rightArray;
+    // Ranges shorter than this are finished with insertion sort
+    private static final int INSERTION_SORT_THRESHOLD = 16;
 
-        public ArrayPartition(Comparable[] leftArray, Comparable[] middleArray, Comparable[] rightArray) {
-            this.leftArray = leftArray;
-            this.middleArray = middleArray;
-            this.rightArray = rightArray;
-        }
-    }
+    // The group size used by the median of medians fallback
+    private static final int GROUP_SIZE = 5;
 
     public static Comparable select(Comparable[] array, int index) {
+        return select(array, index, PivotSelector.RANDOM);
+    }
+
+    public static Comparable select(Comparable[] array, int index, PivotSelector pivotSelector) {
         /*
-        Selects and returns the ith largest (0 indexed) element in the array
+        Selects and returns the order statistic of the given (0 indexed) rank, i.e. the element that would
+        be at position index if the array were sorted. The array itself is left untouched
 
         Parameters:
             array: The array to select the order statistic from
-            index: The index (1 indexed) of the order statistic to return
-            low: The low index on the array to consider
-            high: The high index on the array to consider
+            index: The (0 indexed) rank of the order statistic to return
+            pivotSelector: The strategy that picks each partition element
+
+        Returns:
+            The element of rank index in the array
+         */
+
+        // Work on a single copy so that the caller's array keeps its order
+        Comparable[] copy = array.clone();
+
+        return select(copy, 0, copy.length, index, pivotSelector);
+    }
+
+    public static Comparable select(Comparable[] array, int from, int to, int k) {
+        return select(array, from, to, k, PivotSelector.RANDOM);
+    }
+
+    public static Comparable select(Comparable[] array, int from, int to, int k, PivotSelector pivotSelector) {
+        /*
+        Selects the order statistic of rank k within array[from..to) in place, without allocating
+
+        The range is partially reordered: afterwards array[from + k] holds the selected element, everything
+        before it in the range is no greater and everything after it is no smaller. Once more than 2 log n
+        partitioning steps have been taken, pivots come from the median of medians so the worst case
+        stays linear
+
+        Parameters:
+            array: The array containing the range to select from
+            from: The first index of the range (inclusive)
+            to: The end of the range (exclusive)
+            k: The (0 indexed) rank within the range of the element to select
+            pivotSelector: The strategy that picks each partition element
 
         Returns:
-            The element that is the ith largest in the array
+            The element of rank k in the range
          */
 
-        // Partition the array
-        ArrayPartition partition = partitionRandomly(array);
+        checkRank(k, to - from);
+
+        int target = from + k;
+        selectHelper(array, from, to - 1, target, depthLimit(to - from), pivotSelector);
+
+        return array[target];
+    }
 
-        // Get the data from our partition
-        Comparable[] leftArray = partition.leftArray;
-        Comparable[] middleArray = partition.middleArray;
-        Comparable[] rightArray = partition.rightArray;
+    public static Comparable[] selectMany(Comparable[] array, int[] ranks) {
+        /*
+        Selects the order statistics of several (0 indexed) ranks at once, leaving the array untouched
+
+        Parameters:
+            array: The array to select the order statistics from
+            ranks: The ranks to select, in any order and possibly repeated
+
+        Returns:
+            The element of rank ranks[i] at position i
+         */
 
-        // Determine the partition to recurse on
-        if (index >= leftArray.length && index < leftArray.length + middleArray.length) {
-            // The parition element contains the order statistic, return the partition element
-            return middleArray[0];
+        Comparable[] copy = array.clone();
 
-        } else if (leftArray.length - 1 >= index) {
-            // Element must be in the left array so recurse on this array
-            return select(leftArray, index);
-        } else {
-            // The correct order statistic must be in the right hand array
-            return select(rightArray, index - leftArray.length - middleArray.length);
+        return selectMany(copy, 0, copy.length, ranks, PivotSelector.RANDOM);
+    }
+
+    public static Comparable[] selectMany(Comparable[] array, int from, int to, int[] ranks) {
+        return selectMany(array, from, to, ranks, PivotSelector.RANDOM);
+    }
+
+    public static Comparable[] selectMany(Comparable[] array, int from, int to, int[] ranks,
+                                          PivotSelector pivotSelector) {
+        /*
+        Selects the order statistics of several ranks within array[from..to) in place
+
+        Each partitioning step sends every pending rank to the side that contains it, so requesting
+        e.g. p50, p90, p99 and p99.9 costs little more than a single selection. Afterwards every
+        array[from + ranks[i]] holds its order statistic, as if each had been selected on its own
+
+        Parameters:
+            array: The array containing the range to select from
+            from: The first index of the range (inclusive)
+            to: The end of the range (exclusive)
+            ranks: The (0 indexed) ranks within the range to select, in any order and possibly repeated
+            pivotSelector: The strategy that picks each partition element
+
+        Returns:
+            The element of rank ranks[i] at position i
+         */
+
+        int[] targets = sortedTargets(from, to, ranks);
+        multiSelectHelper(array, from, to - 1, targets, 0, targets.length - 1, depthLimit(to - from),
+                pivotSelector);
+
+        Comparable[] statistics = new Comparable[ranks.length];
+
+        for (int i = 0; i < ranks.length; i++) {
+            statistics[i] = array[from + ranks[i]];
         }
 
+        return statistics;
+    }
+
+    private static void checkRank(int rank, int length) {
+        if (rank < 0 || rank >= length) {
+            throw new IllegalArgumentException("Rank " + rank + " is outside a range of " + length + " elements");
+        }
     }
 
-    private static ArrayPartition partitionRandomly(Comparable[] array) {
+    private static int[] sortedTargets(int from, int to, int[] ranks) {
         /*
-        Randomly partitions the array and returns it as an ArrayPartition object
+        Validates the ranks and returns the array indices they refer to in ascending order
          */
 
-        // First, randomly select an element to partition around
-        Random rand = new Random();
-        int partitionIndex = rand.nextInt(array.length);
+        int[] targets = new int[ranks.length];
+
+        for (int i = 0; i < ranks.length; i++) {
+            checkRank(ranks[i], to - from);
+            targets[i] = from + ranks[i];
+        }
 
-        // Array lists to hold the three partitions
-        ArrayList<Comparable> leftList = new ArrayList<>();
-        ArrayList<Comparable> middleList = new ArrayList<>();
-        ArrayList<Comparable> rightList = new ArrayList<>();
+        return Quicksort.quickSort(targets);
+    }
 
-        int comparison; // Will hold the value of comparisons for Comparable objects
+    private static int depthLimit(int length) {
+        /*
+        Returns the number of partitioning steps allowed before falling back to the median of medians
+         */
 
-        for (int i = 0; i < array.length; i++) {
-            comparison = array[i].compareTo(array[partitionIndex]);
+        return 2 * (31 - Integer.numberOfLeadingZeros(Math.max(length, 1)));
+    }
 
-            if (comparison < 0) {
-                // Element is less than partition element, add to left list
-                leftList.add(array[i]);
-            } else if (comparison == 0) {
-                // Element is equal to the partition element, add to middle list
-                middleList.add(array[i]);
+    private static int lessEnd(long bounds) {
+        /*
+        Unpacks the end of the less than part from the result of a partition
+         */
+
+        return (int) (bounds >>> 32);
+    }
+
+    private static int greaterStart(long bounds) {
+        /*
+        Unpacks the start of the greater than part from the result of a partition
+         */
+
+        return (int) bounds;
+    }
+
+    private static void selectHelper(Comparable[] array, int low, int high, int target, int depthLimit,
+                                     PivotSelector pivotSelector) {
+        /*
+        Moves the element of rank target - low within array[low..high] (inclusive) to index target
+         */
+
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            int pivotIndex = depthLimit > 0
+                    ? pivotSelector.selectPivot(array, low, high)
+                    : medianOfMedians(array, low, high, pivotSelector);
+            depthLimit -= 1;
+
+            long bounds = partition(array, low, high, pivotIndex);
+
+            // Only the side holding the target needs more work
+            if (target < lessEnd(bounds)) {
+                high = lessEnd(bounds) - 1;
+            } else if (target >= greaterStart(bounds)) {
+                low = greaterStart(bounds);
             } else {
-                // Element is greater than the partition element, add to right list
-                rightList.add(array[i]);
+                return;
             }
         }
 
-        Comparable[] leftArr = new Comparable[leftList.size()];
-        Comparable[] middleArr = new Comparable[middleList.size()];
-        Comparable[] rightArr = new Comparable[rightList.size()];
+        insertionSort(array, low, high);
+    }
+
+    private static void multiSelectHelper(Comparable[] array, int low, int high, int[] targets, int firstTarget,
+                                          int lastTarget, int depthLimit, PivotSelector pivotSelector) {
+        /*
+        Moves every element whose index is in targets[firstTarget..lastTarget] (sorted, inclusive) to
+        its sorted position within array[low..high] (inclusive)
+         */
+
+        if (firstTarget > lastTarget) {
+            return;
+        }
+
+        if (high - low < INSERTION_SORT_THRESHOLD) {
+            insertionSort(array, low, high);
+            return;
+        }
+
+        // A single rank is an ordinary selection
+        if (firstTarget == lastTarget) {
+            selectHelper(array, low, high, targets[firstTarget], depthLimit, pivotSelector);
+            return;
+        }
+
+        int pivotIndex = depthLimit > 0
+                ? pivotSelector.selectPivot(array, low, high)
+                : medianOfMedians(array, low, high, pivotSelector);
+
+        long bounds = partition(array, low, high, pivotIndex);
+
+        // Split the sorted targets into those left of, inside and right of the pivot block
+        int leftLast = firstTarget - 1;
+
+        while (leftLast < lastTarget && targets[leftLast + 1] < lessEnd(bounds)) {
+            leftLast += 1;
+        }
+
+        int rightFirst = leftLast + 1;
 
+        while (rightFirst <= lastTarget && targets[rightFirst] < greaterStart(bounds)) {
+            rightFirst += 1;
+        }
 
-        return new ArrayPartition(leftList.toArray(leftArr), middleList.toArray(middleArr), rightList.toArray(rightArr));
+        multiSelectHelper(array, low, lessEnd(bounds) - 1, targets, firstTarget, leftLast, depthLimit - 1,
+                pivotSelector);
+        multiSelectHelper(array, greaterStart(bounds), high, targets, rightFirst, lastTarget, depthLimit - 1,
+                pivotSelector);
     }
 
-    private static Comparable[] swap(Comparable[] array, int index1, int index2) {
+    private static long partition(Comparable[] array, int low, int high, int pivotIndex) {
+        /*
+        Dutch flag partition of array[low..high] (inclusive) around array[pivotIndex]
+
+        Returns:
+            The end of the less than part in the high 32 bits and the start of the greater than part
+            in the low 32 bits, packed so that partitioning never allocates
+         */
+
+        Comparable pivot = array[pivotIndex];
+        int less = low;
+        int current = low;
+        int greater = high;
+
+        while (current <= greater) {
+            Comparable element = array[current];
+
+            if (element.compareTo(pivot) < 0) {
+                array[current] = array[less];
+                array[less] = element;
+                less += 1;
+                current += 1;
+            } else if (pivot.compareTo(element) < 0) {
+                array[current] = array[greater];
+                array[greater] = element;
+                greater -= 1;
+            } else {
+                current += 1;
+            }
+        }
+
+        return ((long) less << 32) | (greater + 1);
+    }
+
+    private static int medianOfMedians(Comparable[] array, int low, int high, PivotSelector pivotSelector) {
+        /*
+        Sorts groups of five, gathers their medians at the front of the range and selects the median of
+        those, returning its index. Pivoting on it discards at least 3/10 of the range
+         */
+
+        int numGroups = 0;
+
+        for (int groupStart = low; groupStart <= high; groupStart += GROUP_SIZE) {
+            int groupEnd = Math.min(groupStart + GROUP_SIZE - 1, high);
+            insertionSort(array, groupStart, groupEnd);
+
+            swap(array, low + numGroups, (groupStart + groupEnd) >>> 1);
+            numGroups += 1;
+        }
+
+        int middle = low + numGroups / 2;
+        selectHelper(array, low, low + numGroups - 1, middle, depthLimit(numGroups), pivotSelector);
+
+        return middle;
+    }
+
+    private static void insertionSort(Comparable[] array, int low, int high) {
+        /*
+        Sorts the small range array[low..high] (inclusive) in ascending order
+         */
+
+        for (int i = low + 1; i <= high; i++) {
+            Comparable element = array[i];
+            int j = i - 1;
+
+            while (j >= low && element.compareTo(array[j]) < 0) {
+                array[j + 1] = array[j];
+                j -= 1;
+            }
+
+            array[j + 1] = element;
+        }
+    }
+
+    private static void swap(Comparable[] array, int index1, int index2) {
         /*
         Swaps the elements of the given array at the given indices
          */
@@ -102,7 +322,637 @@ public class RandomizedSelect {
         Comparable temp = array[index1];
         array[index1] = array[index2];
         array[index2] = temp;
+    }
+
+    public static int select(int[] array, int from, int to, int k) {
+        return select(array, from, to, k, PivotSelector.RANDOM);
+    }
+
+    public static int select(int[] array, int from, int to, int k, PivotSelector pivotSelector) {
+        /*
+        Selects the order statistic of rank k within array[from..to) in place, see the Comparable[]
+        overload for the parameters and guarantees
+         */
+
+        checkRank(k, to - from);
+
+        int target = from + k;
+        selectHelper(array, from, to - 1, target, depthLimit(to - from), pivotSelector);
+
+        return array[target];
+    }
+
+    public static int[] selectMany(int[] array, int[] ranks) {
+        /*
+        Selects the order statistics of several ranks at once, leaving the array untouched, see the
+        Comparable[] overload
+         */
+
+        int[] copy = array.clone();
+
+        return selectMany(copy, 0, copy.length, ranks, PivotSelector.RANDOM);
+    }
+
+    public static int[] selectMany(int[] array, int from, int to, int[] ranks) {
+        return selectMany(array, from, to, ranks, PivotSelector.RANDOM);
+    }
+
+    public static int[] selectMany(int[] array, int from, int to, int[] ranks, PivotSelector pivotSelector) {
+        /*
+        Selects the order statistics of several ranks within array[from..to) in place, see the
+        Comparable[] overload for the parameters and guarantees
+         */
+
+        int[] targets = sortedTargets(from, to, ranks);
+        multiSelectHelper(array, from, to - 1, targets, 0, targets.length - 1, depthLimit(to - from),
+                pivotSelector);
+
+        int[] statistics = new int[ranks.length];
+
+        for (int i = 0; i < ranks.length; i++) {
+            statistics[i] = array[from + ranks[i]];
+        }
+
+        return statistics;
+    }
+
+    private static void selectHelper(int[] array, int low, int high, int target, int depthLimit,
+                                     PivotSelector pivotSelector) {
+        /*
+        Moves the element of rank target - low within array[low..high] (inclusive) to index target
+         */
+
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            int pivotIndex = depthLimit > 0
+                    ? pivotSelector.selectPivot(array, low, high)
+                    : medianOfMedians(array, low, high, pivotSelector);
+            depthLimit -= 1;
+
+            long bounds = partition(array, low, high, pivotIndex);
+
+            // Only the side holding the target needs more work
+            if (target < lessEnd(bounds)) {
+                high = lessEnd(bounds) - 1;
+            } else if (target >= greaterStart(bounds)) {
+                low = greaterStart(bounds);
+            } else {
+                return;
+            }
+        }
+
+        insertionSort(array, low, high);
+    }
 
-        return array;
+    private static void multiSelectHelper(int[] array, int low, int high, int[] targets, int firstTarget,
+                                          int lastTarget, int depthLimit, PivotSelector pivotSelector) {
+        /*
+        Moves every element whose index is in targets[firstTarget..lastTarget] (sorted, inclusive) to
+        its sorted position within array[low..high] (inclusive)
+         */
+
+        if (firstTarget > lastTarget) {
+            return;
+        }
+
+        if (high - low < INSERTION_SORT_THRESHOLD) {
+            insertionSort(array, low, high);
+            return;
+        }
+
+        // A single rank is an ordinary selection
+        if (firstTarget == lastTarget) {
+            selectHelper(array, low, high, targets[firstTarget], depthLimit, pivotSelector);
+            return;
+        }
+
+        int pivotIndex = depthLimit > 0
+                ? pivotSelector.selectPivot(array, low, high)
+                : medianOfMedians(array, low, high, pivotSelector);
+
+        long bounds = partition(array, low, high, pivotIndex);
+
+        // Split the sorted targets into those left of, inside and right of the pivot block
+        int leftLast = firstTarget - 1;
+
+        while (leftLast < lastTarget && targets[leftLast + 1] < lessEnd(bounds)) {
+            leftLast += 1;
+        }
+
+        int rightFirst = leftLast + 1;
+
+        while (rightFirst <= lastTarget && targets[rightFirst] < greaterStart(bounds)) {
+            rightFirst += 1;
+        }
+
+        multiSelectHelper(array, low, lessEnd(bounds) - 1, targets, firstTarget, leftLast, depthLimit - 1,
+                pivotSelector);
+        multiSelectHelper(array, greaterStart(bounds), high, targets, rightFirst, lastTarget, depthLimit - 1,
+                pivotSelector);
+    }
+
+    private static long partition(int[] array, int low, int high, int pivotIndex) {
+        /*
+        Dutch flag partition of array[low..high] (inclusive) around array[pivotIndex]
+
+        Returns:
+            The end of the less than part in the high 32 bits and the start of the greater than part
+            in the low 32 bits, packed so that partitioning never allocates
+         */
+
+        int pivot = array[pivotIndex];
+        int less = low;
+        int current = low;
+        int greater = high;
+
+        while (current <= greater) {
+            int element = array[current];
+
+            if (element < pivot) {
+                array[current] = array[less];
+                array[less] = element;
+                less += 1;
+                current += 1;
+            } else if (pivot < element) {
+                array[current] = array[greater];
+                array[greater] = element;
+                greater -= 1;
+            } else {
+                current += 1;
+            }
+        }
+
+        return ((long) less << 32) | (greater + 1);
+    }
+
+    private static int medianOfMedians(int[] array, int low, int high, PivotSelector pivotSelector) {
+        /*
+        Sorts groups of five, gathers their medians at the front of the range and selects the median of
+        those, returning its index. Pivoting on it discards at least 3/10 of the range
+         */
+
+        int numGroups = 0;
+
+        for (int groupStart = low; groupStart <= high; groupStart += GROUP_SIZE) {
+            int groupEnd = Math.min(groupStart + GROUP_SIZE - 1, high);
+            insertionSort(array, groupStart, groupEnd);
+
+            swap(array, low + numGroups, (groupStart + groupEnd) >>> 1);
+            numGroups += 1;
+        }
+
+        int middle = low + numGroups / 2;
+        selectHelper(array, low, low + numGroups - 1, middle, depthLimit(numGroups), pivotSelector);
+
+        return middle;
+    }
+
+    private static void insertionSort(int[] array, int low, int high) {
+        /*
+        Sorts the small range array[low..high] (inclusive) in ascending order
+         */
+
+        for (int i = low + 1; i <= high; i++) {
+            int element = array[i];
+            int j = i - 1;
+
+            while (j >= low && element < array[j]) {
+                array[j + 1] = array[j];
+                j -= 1;
+            }
+
+            array[j + 1] = element;
+        }
+    }
+
+    private static void swap(int[] array, int index1, int index2) {
+        /*
+        Swaps the elements of the given array at the given indices
+         */
+
+        int temp = array[index1];
+        array[index1] = array[index2];
+        array[index2] = temp;
+    }
+
+    public static long select(long[] array, int from, int to, int k) {
+        return select(array, from, to, k, PivotSelector.RANDOM);
+    }
+
+    public static long select(long[] array, int from, int to, int k, PivotSelector pivotSelector) {
+        /*
+        Selects the order statistic of rank k within array[from..to) in place, see the Comparable[]
+        overload for the parameters and guarantees
+         */
+
+        checkRank(k, to - from);
+
+        int target = from + k;
+        selectHelper(array, from, to - 1, target, depthLimit(to - from), pivotSelector);
+
+        return array[target];
+    }
+
+    public static long[] selectMany(long[] array, int[] ranks) {
+        /*
+        Selects the order statistics of several ranks at once, leaving the array untouched, see the
+        Comparable[] overload
+         */
+
+        long[] copy = array.clone();
+
+        return selectMany(copy, 0, copy.length, ranks, PivotSelector.RANDOM);
+    }
+
+    public static long[] selectMany(long[] array, int from, int to, int[] ranks) {
+        return selectMany(array, from, to, ranks, PivotSelector.RANDOM);
+    }
+
+    public static long[] selectMany(long[] array, int from, int to, int[] ranks, PivotSelector pivotSelector) {
+        /*
+        Selects the order statistics of several ranks within array[from..to) in place, see the
+        Comparable[] overload for the parameters and guarantees
+         */
+
+        int[] targets = sortedTargets(from, to, ranks);
+        multiSelectHelper(array, from, to - 1, targets, 0, targets.length - 1, depthLimit(to - from),
+                pivotSelector);
+
+        long[] statistics = new long[ranks.length];
+
+        for (int i = 0; i < ranks.length; i++) {
+            statistics[i] = array[from + ranks[i]];
+        }
+
+        return statistics;
+    }
+
+    private static void selectHelper(long[] array, int low, int high, int target, int depthLimit,
+                                     PivotSelector pivotSelector) {
+        /*
+        Moves the element of rank target - low within array[low..high] (inclusive) to index target
+         */
+
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            int pivotIndex = depthLimit > 0
+                    ? pivotSelector.selectPivot(array, low, high)
+                    : medianOfMedians(array, low, high, pivotSelector);
+            depthLimit -= 1;
+
+            long bounds = partition(array, low, high, pivotIndex);
+
+            // Only the side holding the target needs more work
+            if (target < lessEnd(bounds)) {
+                high = lessEnd(bounds) - 1;
+            } else if (target >= greaterStart(bounds)) {
+                low = greaterStart(bounds);
+            } else {
+                return;
+            }
+        }
+
+        insertionSort(array, low, high);
+    }
+
+    private static void multiSelectHelper(long[] array, int low, int high, int[] targets, int firstTarget,
+                                          int lastTarget, int depthLimit, PivotSelector pivotSelector) {
+        /*
+        Moves every element whose index is in targets[firstTarget..lastTarget] (sorted, inclusive) to
+        its sorted position within array[low..high] (inclusive)
+         */
+
+        if (firstTarget > lastTarget) {
+            return;
+        }
+
+        if (high - low < INSERTION_SORT_THRESHOLD) {
+            insertionSort(array, low, high);
+            return;
+        }
+
+        // A single rank is an ordinary selection
+        if (firstTarget == lastTarget) {
+            selectHelper(array, low, high, targets[firstTarget], depthLimit, pivotSelector);
+            return;
+        }
+
+        int pivotIndex = depthLimit > 0
+                ? pivotSelector.selectPivot(array, low, high)
+                : medianOfMedians(array, low, high, pivotSelector);
+
+        long bounds = partition(array, low, high, pivotIndex);
+
+        // Split the sorted targets into those left of, inside and right of the pivot block
+        int leftLast = firstTarget - 1;
+
+        while (leftLast < lastTarget && targets[leftLast + 1] < lessEnd(bounds)) {
+            leftLast += 1;
+        }
+
+        int rightFirst = leftLast + 1;
+
+        while (rightFirst <= lastTarget && targets[rightFirst] < greaterStart(bounds)) {
+            rightFirst += 1;
+        }
+
+        multiSelectHelper(array, low, lessEnd(bounds) - 1, targets, firstTarget, leftLast, depthLimit - 1,
+                pivotSelector);
+        multiSelectHelper(array, greaterStart(bounds), high, targets, rightFirst, lastTarget, depthLimit - 1,
+                pivotSelector);
+    }
+
+    private static long partition(long[] array, int low, int high, int pivotIndex) {
+        /*
+        Dutch flag partition of array[low..high] (inclusive) around array[pivotIndex]
+
+        Returns:
+            The end of the less than part in the high 32 bits and the start of the greater than part
+            in the low 32 bits, packed so that partitioning never allocates
+         */
+
+        long pivot = array[pivotIndex];
+        int less = low;
+        int current = low;
+        int greater = high;
+
+        while (current <= greater) {
+            long element = array[current];
+
+            if (element < pivot) {
+                array[current] = array[less];
+                array[less] = element;
+                less += 1;
+                current += 1;
+            } else if (pivot < element) {
+                array[current] = array[greater];
+                array[greater] = element;
+                greater -= 1;
+            } else {
+                current += 1;
+            }
+        }
+
+        return ((long) less << 32) | (greater + 1);
+    }
+
+    private static int medianOfMedians(long[] array, int low, int high, PivotSelector pivotSelector) {
+        /*
+        Sorts groups of five, gathers their medians at the front of the range and selects the median of
+        those, returning its index. Pivoting on it discards at least 3/10 of the range
+         */
+
+        int numGroups = 0;
+
+        for (int groupStart = low; groupStart <= high; groupStart += GROUP_SIZE) {
+            int groupEnd = Math.min(groupStart + GROUP_SIZE - 1, high);
+            insertionSort(array, groupStart, groupEnd);
+
+            swap(array, low + numGroups, (groupStart + groupEnd) >>> 1);
+            numGroups += 1;
+        }
+
+        int middle = low + numGroups / 2;
+        selectHelper(array, low, low + numGroups - 1, middle, depthLimit(numGroups), pivotSelector);
+
+        return middle;
+    }
+
+    private static void insertionSort(long[] array, int low, int high) {
+        /*
+        Sorts the small range array[low..high] (inclusive) in ascending order
+         */
+
+        for (int i = low + 1; i <= high; i++) {
+            long element = array[i];
+            int j = i - 1;
+
+            while (j >= low && element < array[j]) {
+                array[j + 1] = array[j];
+                j -= 1;
+            }
+
+            array[j + 1] = element;
+        }
+    }
+
+    private static void swap(long[] array, int index1, int index2) {
+        /*
+        Swaps the elements of the given array at the given indices
+         */
+
+        long temp = array[index1];
+        array[index1] = array[index2];
+        array[index2] = temp;
+    }
+
+    public static double select(double[] array, int from, int to, int k) {
+        return select(array, from, to, k, PivotSelector.RANDOM);
+    }
+
+    public static double select(double[] array, int from, int to, int k, PivotSelector pivotSelector) {
+        /*
+        Selects the order statistic of rank k within array[from..to) in place, see the Comparable[]
+        overload for the parameters and guarantees
+
+        Elements are ordered as by Double.compare, so -0.0 ranks below 0.0 and NaN above everything
+         */
+
+        checkRank(k, to - from);
+
+        int target = from + k;
+        selectHelper(array, from, to - 1, target, depthLimit(to - from), pivotSelector);
+
+        return array[target];
+    }
+
+    public static double[] selectMany(double[] array, int[] ranks) {
+        /*
+        Selects the order statistics of several ranks at once, leaving the array untouched, see the
+        Comparable[] overload
+         */
+
+        double[] copy = array.clone();
+
+        return selectMany(copy, 0, copy.length, ranks, PivotSelector.RANDOM);
+    }
+
+    public static double[] selectMany(double[] array, int from, int to, int[] ranks) {
+        return selectMany(array, from, to, ranks, PivotSelector.RANDOM);
+    }
+
+    public static double[] selectMany(double[] array, int from, int to, int[] ranks, PivotSelector pivotSelector) {
+        /*
+        Selects the order statistics of several ranks within array[from..to) in place, see the
+        Comparable[] overload for the parameters and guarantees
+         */
+
+        int[] targets = sortedTargets(from, to, ranks);
+        multiSelectHelper(array, from, to - 1, targets, 0, targets.length - 1, depthLimit(to - from),
+                pivotSelector);
+
+        double[] statistics = new double[ranks.length];
+
+        for (int i = 0; i < ranks.length; i++) {
+            statistics[i] = array[from + ranks[i]];
+        }
+
+        return statistics;
+    }
+
+    private static void selectHelper(double[] array, int low, int high, int target, int depthLimit,
+                                     PivotSelector pivotSelector) {
+        /*
+        Moves the element of rank target - low within array[low..high] (inclusive) to index target
+         */
+
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            int pivotIndex = depthLimit > 0
+                    ? pivotSelector.selectPivot(array, low, high)
+                    : medianOfMedians(array, low, high, pivotSelector);
+            depthLimit -= 1;
+
+            long bounds = partition(array, low, high, pivotIndex);
+
+            // Only the side holding the target needs more work
+            if (target < lessEnd(bounds)) {
+                high = lessEnd(bounds) - 1;
+            } else if (target >= greaterStart(bounds)) {
+                low = greaterStart(bounds);
+            } else {
+                return;
+            }
+        }
+
+        insertionSort(array, low, high);
+    }
+
+    private static void multiSelectHelper(double[] array, int low, int high, int[] targets, int firstTarget,
+                                          int lastTarget, int depthLimit, PivotSelector pivotSelector) {
+        /*
+        Moves every element whose index is in targets[firstTarget..lastTarget] (sorted, inclusive) to
+        its sorted position within array[low..high] (inclusive)
+         */
+
+        if (firstTarget > lastTarget) {
+            return;
+        }
+
+        if (high - low < INSERTION_SORT_THRESHOLD) {
+            insertionSort(array, low, high);
+            return;
+        }
+
+        // A single rank is an ordinary selection
+        if (firstTarget == lastTarget) {
+            selectHelper(array, low, high, targets[firstTarget], depthLimit, pivotSelector);
+            return;
+        }
+
+        int pivotIndex = depthLimit > 0
+                ? pivotSelector.selectPivot(array, low, high)
+                : medianOfMedians(array, low, high, pivotSelector);
+
+        long bounds = partition(array, low, high, pivotIndex);
+
+        // Split the sorted targets into those left of, inside and right of the pivot block
+        int leftLast = firstTarget - 1;
+
+        while (leftLast < lastTarget && targets[leftLast + 1] < lessEnd(bounds)) {
+            leftLast += 1;
+        }
+
+        int rightFirst = leftLast + 1;
+
+        while (rightFirst <= lastTarget && targets[rightFirst] < greaterStart(bounds)) {
+            rightFirst += 1;
+        }
+
+        multiSelectHelper(array, low, lessEnd(bounds) - 1, targets, firstTarget, leftLast, depthLimit - 1,
+                pivotSelector);
+        multiSelectHelper(array, greaterStart(bounds), high, targets, rightFirst, lastTarget, depthLimit - 1,
+                pivotSelector);
+    }
+
+    private static long partition(double[] array, int low, int high, int pivotIndex) {
+        /*
+        Dutch flag partition of array[low..high] (inclusive) around array[pivotIndex]
+
+        Returns:
+            The end of the less than part in the high 32 bits and the start of the greater than part
+            in the low 32 bits, packed so that partitioning never allocates
+         */
+
+        double pivot = array[pivotIndex];
+        int less = low;
+        int current = low;
+        int greater = high;
+
+        while (current <= greater) {
+            double element = array[current];
+
+            if (Double.compare(element, pivot) < 0) {
+                array[current] = array[less];
+                array[less] = element;
+                less += 1;
+                current += 1;
+            } else if (Double.compare(pivot, element) < 0) {
+                array[current] = array[greater];
+                array[greater] = element;
+                greater -= 1;
+            } else {
+                current += 1;
+            }
+        }
+
+        return ((long) less << 32) | (greater + 1);
+    }
+
+    private static int medianOfMedians(double[] array, int low, int high, PivotSelector pivotSelector) {
+        /*
+        Sorts groups of five, gathers their medians at the front of the range and selects the median of
+        those, returning its index. Pivoting on it discards at least 3/10 of the range
+         */
+
+        int numGroups = 0;
+
+        for (int groupStart = low; groupStart <= high; groupStart += GROUP_SIZE) {
+            int groupEnd = Math.min(groupStart + GROUP_SIZE - 1, high);
+            insertionSort(array, groupStart, groupEnd);
+
+            swap(array, low + numGroups, (groupStart + groupEnd) >>> 1);
+            numGroups += 1;
+        }
+
+        int middle = low + numGroups / 2;
+        selectHelper(array, low, low + numGroups - 1, middle, depthLimit(numGroups), pivotSelector);
+
+        return middle;
+    }
+
+    private static void insertionSort(double[] array, int low, int high) {
+        /*
+        Sorts the small range array[low..high] (inclusive) in ascending order
+         */
+
+        for (int i = low + 1; i <= high; i++) {
+            double element = array[i];
+            int j = i - 1;
+
+            while (j >= low && Double.compare(element, array[j]) < 0) {
+                array[j + 1] = array[j];
+                j -= 1;
+            }
+
+            array[j + 1] = element;
+        }
+    }
+
+    private static void swap(double[] array, int index1, int index2) {
+        /*
+        Swaps the elements of the given array at the given indices
+         */
+
+        double temp = array[index1];
+        array[index1] = array[index2];
+        array[index2] = temp;
     }
 }